@@ -0,0 +1,10 @@
+package com.endorodrigo.eCommerce.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+    // Habilita los métodos @Async (envío de notificaciones desde el outbox, etc.)
+}
@@ -0,0 +1,56 @@
+package com.endorodrigo.eCommerce.config;
+
+import com.endorodrigo.eCommerce.service.CartStore;
+import com.endorodrigo.eCommerce.service.InMemoryCartStore;
+import com.endorodrigo.eCommerce.service.JdbcCartStore;
+import com.endorodrigo.eCommerce.service.MappedFileCartStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Paths;
+
+/**
+ * Selección del almacén de carritos según app.cart.store:
+ * memory (por defecto), jdbc (tabla cart_session, apto para varios nodos sin afinidad de sesión)
+ * o file (archivo mapeado en memoria, un solo nodo)
+ */
+@Configuration
+public class CartStoreConfig {
+
+    @Value("${app.cart.max-sessions:50000}")
+    private int maxSessions;
+
+    @Value("${app.cart.max-heap-bytes:67108864}")
+    private long maxHeapBytes;
+
+    @Value("${app.cart.idle-timeout-minutes:1440}")
+    private long idleTimeoutMinutes;
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cart.store", havingValue = "memory", matchIfMissing = true)
+    public CartStore inMemoryCartStore() {
+        return newCache();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cart.store", havingValue = "jdbc")
+    public CartStore jdbcCartStore(JdbcTemplate jdbcTemplate,
+                                   @Value("${app.cart.jdbc.batch-size:500}") int batchSize,
+                                   @Value("${app.cart.jdbc.revalidate-interval-ms:250}") long revalidateIntervalMillis) {
+        return new JdbcCartStore(newCache(), jdbcTemplate, batchSize, idleTimeoutMinutes, revalidateIntervalMillis);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cart.store", havingValue = "file")
+    public CartStore mappedFileCartStore(@Value("${app.cart.file.path:data/cart-sessions.dat}") String path,
+                                         @Value("${app.cart.file.capacity-bytes:134217728}") int capacityBytes) {
+        return new MappedFileCartStore(newCache(), Paths.get(path), capacityBytes, idleTimeoutMinutes);
+    }
+
+    private InMemoryCartStore newCache() {
+        return new InMemoryCartStore(maxSessions, maxHeapBytes, idleTimeoutMinutes);
+    }
+}
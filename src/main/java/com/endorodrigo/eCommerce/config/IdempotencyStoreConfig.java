@@ -0,0 +1,33 @@
+package com.endorodrigo.eCommerce.config;
+
+import com.endorodrigo.eCommerce.service.IdempotencyStore;
+import com.endorodrigo.eCommerce.service.InMemoryIdempotencyStore;
+import com.endorodrigo.eCommerce.service.JdbcIdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Selección del almacén de claves de idempotencia según app.idempotency.store:
+ * memory (por defecto, un solo nodo) o jdbc (tabla idempotency_key, varios nodos)
+ */
+@Configuration
+public class IdempotencyStoreConfig {
+
+    @Value("${app.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Bean
+    @ConditionalOnProperty(name = "app.idempotency.store", havingValue = "memory", matchIfMissing = true)
+    public IdempotencyStore inMemoryIdempotencyStore() {
+        return new InMemoryIdempotencyStore(ttlMinutes);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.idempotency.store", havingValue = "jdbc")
+    public IdempotencyStore jdbcIdempotencyStore(JdbcTemplate jdbcTemplate) {
+        return new JdbcIdempotencyStore(jdbcTemplate, ttlMinutes);
+    }
+}
@@ -0,0 +1,10 @@
+package com.endorodrigo.eCommerce.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    // Habilita las tareas @Scheduled (limpieza de sesiones de carrito, etc.)
+}
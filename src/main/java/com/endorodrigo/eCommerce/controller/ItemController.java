@@ -6,6 +6,7 @@ import com.endorodrigo.eCommerce.model.Item;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -22,6 +23,8 @@ import java.util.List;
 public class ItemController {
 
     private static final Logger logger = LoggerFactory.getLogger(ItemController.class);
+    private static final String STALE_PRODUCT_MESSAGE =
+        "El producto fue modificado por otro usuario. Revise los datos vigentes y vuelva a aplicar sus cambios.";
 
     private final ItemService productService;
 
@@ -66,6 +69,13 @@ public class ItemController {
         }
         try {
             productService.update(product);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Otro usuario guardó el producto después de abrir el formulario: se muestran los datos vigentes
+            logger.warn("Conflicto de versión al actualizar producto {}", product.getId());
+            model.addAttribute("listProduct", productService.getAll());
+            model.addAttribute("errorMsg", STALE_PRODUCT_MESSAGE);
+            model.addAttribute("product", currentOrSubmitted(product));
+            return "product";
         } catch (RuntimeException e) {
             model.addAttribute("listProduct", productService.getAll());
             model.addAttribute("errorMsg", e.getMessage());
@@ -84,5 +94,11 @@ public class ItemController {
         return "redirect:/product";
     }
 
-
+    /**
+     * Métodos auxiliares privados
+     */
+    private Item currentOrSubmitted(Item submitted) {
+        Item current = productService.findId(submitted.getId());
+        return current != null ? current : submitted;
+    }
 }
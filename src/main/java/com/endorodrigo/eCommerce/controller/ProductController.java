@@ -12,6 +12,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -195,6 +196,13 @@ public class ProductController {
                 "Producto '" + updatedProduct.getName() + "' actualizado exitosamente");
             return "redirect:/products/" + updatedProduct.getId();
             
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // Otro usuario guardó el producto después de abrir el formulario: se muestran los datos vigentes
+            logger.warn("Conflicto de versión al actualizar producto con ID: {}", id);
+            model.addAttribute("error", "El producto fue modificado por otro usuario. Revise los datos vigentes y vuelva a aplicar sus cambios.");
+            itemService.findById(id).ifPresent(current -> model.addAttribute("product", current));
+            model.addAttribute("categories", itemService.getAllCategories());
+            return "products/form";
         } catch (Exception e) {
             logger.error("Error al actualizar producto con ID: {}", id, e);
             model.addAttribute("error", "Error al actualizar el producto");
@@ -2,18 +2,23 @@ package com.endorodrigo.eCommerce.controller;
 
 import com.endorodrigo.eCommerce.service.ReportService;
 import com.endorodrigo.eCommerce.service.DashboardService;
+import com.endorodrigo.eCommerce.service.SalesService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.Map;
 
 /**
@@ -28,10 +33,13 @@ public class ReportController {
     private static final Logger logger = LoggerFactory.getLogger(ReportController.class);
     private final ReportService reportService;
     private final DashboardService dashboardService;
+    private final SalesService salesService;
 
-    public ReportController(ReportService reportService, DashboardService dashboardService) {
+    public ReportController(ReportService reportService, DashboardService dashboardService,
+                            SalesService salesService) {
         this.reportService = reportService;
         this.dashboardService = dashboardService;
+        this.salesService = salesService;
     }
 
     /**
@@ -301,6 +309,50 @@ public class ReportController {
         return "redirect:/reports/sales";
     }
 
+    /**
+     * Descargar reporte de ventas con órdenes en streaming (ndjson o csv), en memoria constante.
+     * En ndjson las estadísticas del rango se escriben en la última línea; el csv solo contiene
+     * órdenes y sus estadísticas se obtienen de /reports/api/sales/statistics
+     */
+    @GetMapping("/api/sales/stream")
+    public ResponseEntity<StreamingResponseBody> streamSalesReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "ndjson") String format) {
+
+        LocalDate start = startDate != null ? startDate : LocalDate.now().minusDays(30);
+        LocalDate end = endDate != null ? endDate : LocalDate.now();
+        boolean csv = "csv".equalsIgnoreCase(format);
+
+        StreamingResponseBody body = out -> salesService.writeSalesReport(
+            start.atStartOfDay(), end.atTime(LocalTime.MAX), format, out);
+
+        String filename = "ventas-" + start + "-" + end + (csv ? ".csv" : ".ndjson");
+        return ResponseEntity.ok()
+            .contentType(csv ? MediaType.parseMediaType("text/csv") : MediaType.parseMediaType("application/x-ndjson"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .body(body);
+    }
+
+    /**
+     * API REST con las estadísticas de ventas del rango (las del reporte csv)
+     */
+    @GetMapping("/api/sales/statistics")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getSalesStatistics(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+
+        LocalDate start = startDate != null ? startDate : LocalDate.now().minusDays(30);
+        LocalDate end = endDate != null ? endDate : LocalDate.now();
+
+        Map<String, Object> statistics = salesService.getSalesStatistics(start.atStartOfDay(), end.atTime(LocalTime.MAX));
+        if (statistics.containsKey("error")) {
+            return ResponseEntity.internalServerError().body(statistics);
+        }
+        return ResponseEntity.ok(statistics);
+    }
+
     /**
      * Exportar reporte de inventario
      */
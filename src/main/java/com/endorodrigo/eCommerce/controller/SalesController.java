@@ -1,23 +1,33 @@
 package com.endorodrigo.eCommerce.controller;
 
+import com.endorodrigo.eCommerce.exception.InsufficientStockException;
 import com.endorodrigo.eCommerce.model.*;
 import com.endorodrigo.eCommerce.service.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 /**
  * Controlador para manejar ventas y checkout del sistema eCommerce
@@ -29,23 +39,33 @@ import java.util.Optional;
 public class SalesController {
 
     private static final Logger logger = LoggerFactory.getLogger(SalesController.class);
+
+    // Órdenes leídas por bloque al exportar en streaming
+    private static final int STREAM_CHUNK_SIZE = 500;
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final String CONFIRMATION_REDIRECT = "redirect:/sales/confirmation/";
     
     private final CartService cartService;
     private final com.endorodrigo.eCommerce.service.ItemService itemService;
     private final CustomerService customerService;
-    private final PaymentService paymentService;
+    private final PaymentProcessor paymentProcessor;
+    private final IdempotencyStore idempotencyStore;
+    private final InventoryContention inventoryContention;
     private final SalesService salesService;
-    private final NotificationService notificationService;
+    private final ObjectMapper objectMapper;
 
     public SalesController(CartService cartService, ItemService itemService,
-                           CustomerService customerService, PaymentService paymentService,
-                           SalesService salesService, NotificationService notificationService) {
+                           CustomerService customerService, PaymentProcessor paymentProcessor, IdempotencyStore idempotencyStore,
+                           InventoryContention inventoryContention, SalesService salesService,
+                           ObjectMapper objectMapper) {
         this.cartService = cartService;
         this.itemService = itemService;
         this.customerService = customerService;
-        this.paymentService = paymentService;
+        this.paymentProcessor = paymentProcessor;
+        this.idempotencyStore = idempotencyStore;
+        this.inventoryContention = inventoryContention;
         this.salesService = salesService;
-        this.notificationService = notificationService;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -55,7 +75,7 @@ public class SalesController {
     public String viewCart(HttpSession session, Model model) {
         try {
             String sessionId = session.getId();
-            CartSession cartSession = cartService.getCartSession(sessionId);
+            CartSession cartSession = cartService.findCartSession(sessionId);
             
             if (cartSession != null && !cartSession.getItems().isEmpty()) {
                 List<CartItem> cartItems = cartSession.getItems();
@@ -108,23 +128,15 @@ public class SalesController {
             if (product.isPresent()) {
                 Item item = product.get();
                 
-                // Verificar stock disponible
-                if (item.getQuantity() < quantity) {
-                    return ResponseEntity.badRequest()
-                        .body(Map.of("error", "Stock insuficiente. Disponible: " + item.getQuantity()));
-                }
-                
-                // Agregar al carrito
-                CartItem cartItem = new CartItem();
-                cartItem.setProductId(item.getId());
-                cartItem.setProductName(item.getName());
-                cartItem.setPrice(BigDecimal.valueOf(item.getPrice()));
-                cartItem.setQuantity(quantity);
-                cartItem.setProductCode(item.getCode_reference());
-                cartItem.setDescription(item.getName());
-                cartItem.setStockAvailable(item.getQuantity());
+                // Agregar al carrito: la reserva verifica el stock no retenido por otros carritos
+                CartItem cartItem = toCartItem(item, quantity);
                 
-                cartService.addToCart(sessionId, cartItem);
+                if (!cartService.addToCart(sessionId, cartItem)) {
+                    CartItem inCart = cartService.findCartSession(sessionId).findItemById(productId);
+                    int available = cartService.getAvailableQuantity(sessionId, productId)
+                        - (inCart != null ? inCart.getQuantity() : 0);
+                    return rejectedCartChange(quantity, available, "No se pudo agregar el producto al carrito");
+                }
                 
                 // Obtener conteo actualizado del carrito
                 int itemCount = cartService.getCartItemCount(sessionId);
@@ -170,16 +182,12 @@ public class SalesController {
                 ));
             }
             
-            // Verificar stock disponible
-            Optional<Item> product = itemService.findById(productId);
-            if (product.isPresent() && product.get().getQuantity() < quantity) {
-                return ResponseEntity.badRequest()
-                    .body(Map.of("error", "Stock insuficiente. Disponible: " + product.get().getQuantity()));
+            // Actualizar cantidad: la reserva verifica el stock no retenido por otros carritos
+            if (!cartService.updateCartItemQuantity(sessionId, productId, quantity)) {
+                return rejectedCartChange(quantity, cartService.getAvailableQuantity(sessionId, productId),
+                    "Producto no encontrado en el carrito");
             }
             
-            // Actualizar cantidad
-            cartService.updateCartItemQuantity(sessionId, productId, quantity);
-            
             // Obtener total actualizado
             BigDecimal total = cartService.getCartTotal(sessionId);
             
@@ -249,6 +257,70 @@ public class SalesController {
         }
     }
 
+    /**
+     * Aplicar varias operaciones (add/update/remove) sobre el carrito en una sola petición
+     */
+    @PostMapping("/cart/batch")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> batchUpdateCart(
+            @RequestBody List<CartOperation> operations,
+            HttpSession session) {
+        
+        try {
+            if (operations == null || operations.isEmpty()) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("error", "No se recibieron operaciones"));
+            }
+            
+            String sessionId = session.getId();
+            
+            // Resolver en una sola consulta los productos a agregar o actualizar
+            Set<Long> productIds = operations.stream()
+                .filter(operation -> !CartOperation.REMOVE.equals(operation.getType()))
+                .map(CartOperation::getProductId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+            Map<Long, Item> products = itemService.findAllById(productIds);
+            
+            // El stock se verifica al reservar dentro del lote, neto de las reservas de otros carritos
+            for (CartOperation operation : operations) {
+                if (!CartOperation.ADD.equals(operation.getType()) || operation.getQuantity() <= 0) {
+                    continue;
+                }
+                
+                Item item = products.get(operation.getProductId());
+                if (item == null) {
+                    return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Producto no encontrado: " + operation.getProductId()));
+                }
+                operation.setCartItem(toCartItem(item, operation.getQuantity()));
+            }
+            
+            Map<String, Object> result = cartService.applyBatch(sessionId, operations);
+            if (result.containsKey("error")) {
+                return ResponseEntity.internalServerError().body(result);
+            }
+            
+            Map<String, Object> response = new HashMap<>(result);
+            List<Map<String, Object>> failed = withAvailableStock(sessionId, operations, result);
+            response.put("failed", failed);
+            if (failed.stream().anyMatch(failure -> failure.containsKey("available"))) {
+                // Igual que un cambio individual rechazado: 409 con lo disponible para cada producto
+                response.put("success", false);
+                response.put("error", "Stock insuficiente para algunos productos");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            response.put("success", true);
+            response.put("message", "Carrito actualizado");
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Error al aplicar operaciones por lotes al carrito", e);
+            return ResponseEntity.internalServerError()
+                .body(Map.of("error", "Error interno del servidor"));
+        }
+    }
+
     /**
      * Proceso de checkout
      */
@@ -256,7 +328,7 @@ public class SalesController {
     public String checkout(HttpSession session, Model model) {
         try {
             String sessionId = session.getId();
-            CartSession cartSession = cartService.getCartSession(sessionId);
+            CartSession cartSession = cartService.findCartSession(sessionId);
             
             if (cartSession == null || cartSession.getItems().isEmpty()) {
                 return "redirect:/sales/cart";
@@ -291,6 +363,9 @@ public class SalesController {
                 Map.of("id", "bank_transfer", "name", "Transferencia Bancaria", "icon", "fas fa-university")
             ));
             
+            // Clave de idempotencia del formulario: los reenvíos del mismo checkout no crean otra orden
+            model.addAttribute("idempotencyKey", UUID.randomUUID().toString());
+            
             return "sales/checkout";
             
         } catch (Exception e) {
@@ -301,7 +376,9 @@ public class SalesController {
     }
 
     /**
-     * Procesar orden
+     * Procesar orden.
+     * Con clave de idempotencia (cabecera Idempotency-Key o campo idempotencyKey), un reintento
+     * de la misma petición retorna el resultado original sin crear otra orden ni cobrar de nuevo
      */
     @PostMapping("/checkout/process")
     public String processOrder(
@@ -312,6 +389,50 @@ public class SalesController {
             @RequestParam String cardNumber,
             @RequestParam String cardExpiry,
             @RequestParam String cardCvv,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyHeader,
+            @RequestParam(required = false) String idempotencyKey,
+            HttpSession session,
+            Model model) {
+        
+        String clientKey = idempotencyHeader != null && !idempotencyHeader.isBlank() ? idempotencyHeader : idempotencyKey;
+        if (clientKey == null || clientKey.isBlank()) {
+            return placeOrder(customer, result, shippingMethod, paymentMethod, cardNumber, cardExpiry, cardCvv, session, model);
+        }
+        
+        // Claves por sesión: una clave repetida de otro cliente no comparte resultado
+        String key = "checkout:" + session.getId() + ":" + clientKey;
+        IdempotencyStore.Entry existing = idempotencyStore.begin(key);
+        if (existing != null) {
+            if (existing.isCompleted()) {
+                logger.info("Checkout repetido con clave de idempotencia, se retorna el resultado original");
+                return existing.outcome();
+            }
+            model.addAttribute("error", "La orden ya se está procesando. Espere un momento.");
+            return checkout(session, model);
+        }
+        
+        String view = null;
+        try {
+            view = placeOrder(customer, result, shippingMethod, paymentMethod, cardNumber, cardExpiry, cardCvv, session, model);
+            return view;
+        } finally {
+            // Solo se recuerda la orden creada; los errores liberan la clave para reintentar
+            if (view != null && view.startsWith(CONFIRMATION_REDIRECT)) {
+                idempotencyStore.complete(key, view);
+            } else {
+                idempotencyStore.release(key);
+            }
+        }
+    }
+
+    private String placeOrder(
+            Customer customer,
+            BindingResult result,
+            String shippingMethod,
+            String paymentMethod,
+            String cardNumber,
+            String cardExpiry,
+            String cardCvv,
             HttpSession session,
             Model model) {
         
@@ -322,14 +443,14 @@ public class SalesController {
             }
             
             String sessionId = session.getId();
-            CartSession cartSession = cartService.getCartSession(sessionId);
+            CartSession cartSession = cartService.findCartSession(sessionId);
             
             if (cartSession == null || cartSession.getItems().isEmpty()) {
                 return "redirect:/sales/cart";
             }
             
             // Validar stock antes de procesar
-            if (!validateStock(cartSession)) {
+            if (!validateStock(sessionId)) {
                 model.addAttribute("error", "Algunos productos no tienen stock suficiente");
                 return checkout(session, model);
             }
@@ -339,49 +460,38 @@ public class SalesController {
             
             // Crear orden
             String orderNumber = salesService.createOrder(cartSession, savedCustomer, shippingMethod);
+            BigDecimal orderTotal = cartService.getCartTotal(sessionId);
+            List<CartItem> orderedItems = cartSession.getItems();
+            
+            // El carrito pasa a la orden en esta misma petición: el stock reservado se convierte y el carrito
+            // se vacía, sin esperar al pago (cambios posteriores del cliente no se pierden)
+            cartService.convertReservations(sessionId);
+            cartService.clearCart(sessionId);
             
             // Procesar pago
             Payment payment = new Payment();
-            payment.setOrderNumber(orderNumber);
-            payment.setAmount(cartService.getCartTotal(sessionId));
+            payment.setAmount(orderTotal);
             payment.setMethod(paymentMethod);
-            payment.setStatus("PENDING");
-            payment.setCreatedAt(LocalDateTime.now());
-            
-            Payment savedPayment = paymentService.insert(payment);
-            
-            // Procesar pago con gateway (simulado)
-            boolean paymentSuccess = processPaymentWithGateway(savedPayment, cardNumber, cardExpiry, cardCvv);
-            
-            if (paymentSuccess) {
-                // Actualizar estado de pago
-                savedPayment.setStatus("COMPLETED");
-                paymentService.insert(savedPayment);
-                
-                // Actualizar estado de orden
-                salesService.updateOrderStatus(orderNumber, "PAID");
-                
-                // Actualizar inventario
-                updateInventory(cartSession);
-                
-                // Enviar notificaciones
-                sendOrderNotifications(orderNumber, savedCustomer, cartSession);
-                
-                // Limpiar carrito
-                cartService.clearCart(sessionId);
-                
-                // Redirigir a confirmación
-                return "redirect:/sales/confirmation/" + orderNumber;
-                
-            } else {
-                // Pago fallido
-                savedPayment.setStatus("FAILED");
-                paymentService.insert(savedPayment);
-                
-                model.addAttribute("error", "El pago no pudo ser procesado. Intente nuevamente.");
-                return checkout(session, model);
-            }
             
+            // Procesar pago con la pasarela de forma asíncrona; la petición no espera la respuesta
+            // El stock ya se descontó al crear la orden; si el pago se rechaza, cancelarla lo restaura
+            // y los productos vuelven al carrito para reintentar
+            paymentProcessor.submit(orderNumber, payment, cardNumber, cardExpiry, cardCvv,
+                // Actualizar estado de orden (registra las notificaciones en el outbox)
+                () -> salesService.updateOrderStatus(orderNumber, "PAID"),
+                () -> {
+                    salesService.cancelOrder(orderNumber);
+                    cartService.restoreCart(sessionId, orderedItems);
+                });
+            
+            // Redirigir a confirmación; el cliente consulta el estado en /sales/api/payments/{orderNumber}
+            return CONFIRMATION_REDIRECT + orderNumber;
+            
+        } catch (InsufficientStockException e) {
+            // Otro cliente compró el stock entre la validación y la orden
+            logger.info("Orden rechazada por stock insuficiente: {}", e.getProductIds());
+            model.addAttribute("error", "Algunos productos no tienen stock suficiente");
+            return checkout(session, model);
         } catch (Exception e) {
             logger.error("Error al procesar orden", e);
             model.addAttribute("error", "Error al procesar la orden. Intente nuevamente.");
@@ -405,6 +515,7 @@ public class SalesController {
             
             model.addAttribute("orderDetails", orderDetails);
             model.addAttribute("orderNumber", orderNumber);
+            model.addAttribute("paymentStatus", paymentProcessor.getStatus(orderNumber));
             
             return "sales/confirmation";
             
@@ -514,70 +625,179 @@ public class SalesController {
     }
 
     /**
-     * Métodos auxiliares privados
+     * API de estadísticas globales de carritos (O(1), apta para monitoreo)
+     */
+    @GetMapping("/api/cart/statistics")
+    @ResponseBody
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<Map<String, Object>> getCartStatistics() {
+        Map<String, Object> statistics = cartService.getCartStatistics();
+        if (statistics.containsKey("error")) {
+            return ResponseEntity.internalServerError().body(statistics);
+        }
+        return ResponseEntity.ok(statistics);
+    }
+
+    /**
+     * API de contención de inventario: productos con más descuentos rechazados y reintentos de versión
+     */
+    @GetMapping("/api/inventory/contention")
+    @ResponseBody
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<List<Map<String, Object>>> getInventoryContention(
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(inventoryContention.hotProducts(Math.max(1, limit)));
+    }
+
+    /**
+     * API de estado del pago de una orden (consulta periódica después del checkout)
      */
-    private boolean validateStock(CartSession cartSession) {
-        /*for (Cart item : cartSession.getItems()) {
-            Optional<Item> product = itemService.findById(item.getId());
-            if (product.isPresent() && product.get().getStock() < item.getQuantity()) {
-                return false;
+    @GetMapping("/api/payments/{orderNumber}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getPaymentStatus(@PathVariable String orderNumber) {
+        PaymentProcessor.PaymentStatus status = paymentProcessor.getStatus(orderNumber);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("orderNumber", status.orderNumber());
+        response.put("status", status.status());
+        response.put("message", status.message());
+        response.put("final", status.isFinal());
+        response.put("updatedAt", status.updatedAt());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * API de órdenes paginada por cursor: más recientes primero, con filtros opcionales.
+     * Para la página siguiente se envía el nextCursor de la respuesta anterior
+     */
+    @GetMapping("/api/orders")
+    @ResponseBody
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<Map<String, Object>> getOrdersPage(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long customerId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+
+        Map<String, Object> page = salesService.getOrdersPage(status, customerId, cursor, limit);
+        if (page.containsKey("error")) {
+            return ResponseEntity.badRequest().body(page);
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * API de auditoría: eventos registrados de una orden, en orden de secuencia
+     */
+    @GetMapping("/api/orders/{orderNumber}/events")
+    @ResponseBody
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<List<Map<String, Object>>> getOrderEvents(@PathVariable String orderNumber) {
+        return ResponseEntity.ok(salesService.getOrderEvents(orderNumber));
+    }
+
+    /**
+     * Exportación de órdenes en streaming (una orden JSON por línea) para herramientas de back-office.
+     * Recorre el historial por bloques con el mismo cursor, sin cargarlo completo en memoria
+     */
+    @GetMapping("/api/orders/stream")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<StreamingResponseBody> streamOrders(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long customerId) {
+
+        OrderStatus orderStatus = null;
+        if (status != null && !status.isBlank()) {
+            orderStatus = OrderStatus.parse(status);
+            if (orderStatus == null) {
+                return ResponseEntity.badRequest().build();
             }
-        }*/
-        return true;
+        }
+
+        OrderStatus filter = orderStatus;
+        StreamingResponseBody body = out -> {
+            OrderCursor cursor = null;
+            List<OrderRecord> chunk;
+            do {
+                chunk = salesService.findOrderPage(filter, customerId, cursor, STREAM_CHUNK_SIZE);
+                for (OrderRecord order : chunk) {
+                    out.write(objectMapper.writeValueAsBytes(salesService.toOrderMap(order)));
+                    out.write('\n');
+                }
+                out.flush();
+                if (!chunk.isEmpty()) {
+                    cursor = OrderCursor.of(chunk.get(chunk.size() - 1));
+                }
+            } while (chunk.size() == STREAM_CHUNK_SIZE);
+        };
+
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
     }
 
-    private boolean processPaymentWithGateway(Payment payment, String cardNumber, String cardExpiry, String cardCvv) {
-        // Simular procesamiento de pago
-        // En implementación real, integrar con gateway de pago (Stripe, PayPal, etc.)
-        try {
-            // Simular delay de procesamiento
-            Thread.sleep(2000);
-            
-            // Simular éxito del pago (90% de éxito)
-            return Math.random() > 0.1;
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
+    /**
+     * Métodos auxiliares privados
+     */
+    private ResponseEntity<Map<String, Object>> rejectedCartChange(int requested, int available, String otherwise) {
+        // Si faltó stock se informa lo disponible neto de las reservas de otros carritos
+        if (available < requested) {
+            int units = Math.max(0, available);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                "error", "Stock insuficiente. Disponible: " + units,
+                "available", units
+            ));
         }
+        return ResponseEntity.badRequest().body(Map.of("error", otherwise));
     }
 
-    private void updateInventory(CartSession cartSession) {
-        /*for (Cart item : cartSession.getItems()) {
-            Optional<Item> product = itemService.findById(item.getId());
-            if (product.isPresent()) {
-                Item updatedProduct = product.get();
-                updatedProduct.setStock(updatedProduct.getStock() - item.getQuantity());
-                itemService.saveItem(updatedProduct);
-                
-                // Enviar notificación de stock bajo si es necesario
-                if (updatedProduct.getStock() <= updatedProduct.getMinStock()) {
-                    notificationService.sendLowStockAlert(updatedProduct);
+    /**
+     * Operaciones fallidas de un lote; las rechazadas por falta de stock incluyen lo disponible
+     * para la sesión, neto de las reservas de otros carritos
+     */
+    private List<Map<String, Object>> withAvailableStock(String sessionId, List<CartOperation> operations,
+                                                         Map<String, Object> result) {
+        List<Map<String, Object>> failed = new ArrayList<>();
+        CartSession cartSession = cartService.findCartSession(sessionId);
+        for (Object entry : (List<?>) result.getOrDefault("failed", List.of())) {
+            Map<String, Object> failure = new HashMap<>();
+            ((Map<?, ?>) entry).forEach((key, value) -> failure.put(String.valueOf(key), value));
+            CartOperation operation = operations.get((Integer) failure.get("index"));
+            if (!CartOperation.REMOVE.equals(operation.getType()) && operation.getQuantity() > 0
+                    && operation.getProductId() != null) {
+                CartItem current = cartSession.findItemById(operation.getProductId());
+                int requested = CartOperation.ADD.equals(operation.getType())
+                    ? operation.getQuantity() + (current != null ? current.getQuantity() : 0)
+                    : operation.getQuantity();
+                int available = cartService.getAvailableQuantity(sessionId, operation.getProductId());
+                if (available < requested) {
+                    failure.put("available", Math.max(0, available));
                 }
             }
-        }*/
+            failed.add(failure);
+        }
+        return failed;
     }
 
-    private void sendOrderNotifications(String orderNumber, Customer customer, CartSession cartSession) {
-        try {
-            // Notificar al cliente
-            Map<String, Object> orderData = Map.of(
-                "orderNumber", orderNumber,
-                "customerName", customer.getNames(),
-                "total", cartService.getCartTotal(cartSession.getSessionId()),
-                "items", cartSession.getItems()
-            );
-            
-            notificationService.sendSaleNotification(null, orderData); // Placeholder para User
-            
-            // Notificar a administradores sobre venta de alto valor
-            BigDecimal total = cartService.getCartTotal(cartSession.getSessionId());
-            if (total.compareTo(BigDecimal.valueOf(1000)) > 0) {
-                notificationService.sendSaleNotification(null, orderData); // Placeholder para User
-            }
-            
-        } catch (Exception e) {
-            logger.error("Error al enviar notificaciones de orden", e);
+    private CartItem toCartItem(Item item, int quantity) {
+        CartItem cartItem = new CartItem();
+        cartItem.setProductId(item.getId());
+        cartItem.setProductName(item.getName());
+        cartItem.setPrice(BigDecimal.valueOf(item.getPrice()));
+        cartItem.setQuantity(quantity);
+        cartItem.setProductCode(item.getCode_reference());
+        cartItem.setDescription(item.getName());
+        cartItem.setStockAvailable(item.getQuantity());
+        return cartItem;
+    }
+
+    private boolean validateStock(String sessionId) {
+        Map<String, Object> validation = cartService.validateCartStock(sessionId);
+        if (!Boolean.TRUE.equals(validation.get("valid"))) {
+            logger.warn("Validación de stock fallida para sesión {}: {}", sessionId, validation.get("issues"));
+            return false;
         }
+        return true;
     }
 }
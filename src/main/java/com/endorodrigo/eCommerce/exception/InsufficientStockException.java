@@ -0,0 +1,20 @@
+package com.endorodrigo.eCommerce.exception;
+
+import java.util.List;
+
+/**
+ * Excepción lanzada cuando no hay stock suficiente para confirmar una orden.
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    private final List<Long> productIds;
+
+    public InsufficientStockException(List<Long> productIds) {
+        super("Stock insuficiente para los productos: " + productIds);
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public List<Long> getProductIds() {
+        return productIds;
+    }
+}
@@ -0,0 +1,73 @@
+package com.endorodrigo.eCommerce.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Operación individual dentro de una modificación por lotes del carrito
+ * Tipos soportados: "add", "update" y "remove"
+ */
+public class CartOperation {
+
+    public static final String ADD = "add";
+    public static final String UPDATE = "update";
+    public static final String REMOVE = "remove";
+
+    private String type;
+    private Long productId;
+    private int quantity;
+
+    // Item resuelto por el controlador para las operaciones "add"
+    @JsonIgnore
+    private CartItem cartItem;
+
+    public CartOperation() {
+    }
+
+    public CartOperation(String type, Long productId, int quantity) {
+        this.type = type;
+        this.productId = productId;
+        this.quantity = quantity;
+    }
+
+    // Getters y Setters
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public CartItem getCartItem() {
+        return cartItem;
+    }
+
+    public void setCartItem(CartItem cartItem) {
+        this.cartItem = cartItem;
+    }
+
+    @Override
+    public String toString() {
+        return "CartOperation{" +
+                "type='" + type + '\'' +
+                ", productId=" + productId +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
@@ -3,16 +3,25 @@ package com.endorodrigo.eCommerce.model;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Clase que representa una sesión de carrito de compras
  * Contiene los items del carrito y metadatos de la sesión
  */
 public class CartSession {
+
+    // Vista compartida e inmutable de un carrito vacío para lecturas sin sesión materializada
+    private static final CartSession EMPTY_VIEW = new EmptyCartSession();
     
     private String sessionId;
-    private List<CartItem> items;
+    // Índice productId -> item que conserva el orden de inserción
+    private Map<Long, CartItem> items;
+    // Vista inmutable de los items, reconstruida solo tras cambios estructurales
+    private volatile List<CartItem> itemsView;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private String discountCode;
@@ -29,8 +38,14 @@ public class CartSession {
     private BigDecimal taxAmount;
     private String status; // "active", "abandoned", "converted", "expired"
 
+    // Totales mantenidos incrementalmente en cada modificación del carrito.
+    // Toda escritura de items o totales toma el monitor de la sesión; las lecturas no requieren lock
+    private volatile BigDecimal subtotal;
+    private volatile BigDecimal total;
+    private volatile int totalQuantity;
+
     public CartSession() {
-        this.items = new ArrayList<>();
+        this.items = new LinkedHashMap<>();
         this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
         this.discountAmount = BigDecimal.ZERO;
@@ -38,6 +53,23 @@ public class CartSession {
         this.taxAmount = BigDecimal.ZERO;
         this.currency = "USD";
         this.status = "active";
+        this.subtotal = BigDecimal.ZERO;
+        this.total = BigDecimal.ZERO;
+        this.totalQuantity = 0;
+    }
+
+    /**
+     * Carrito vacío de solo lectura compartido. Cualquier modificación lanza UnsupportedOperationException
+     */
+    public static CartSession emptyView() {
+        return EMPTY_VIEW;
+    }
+
+    /**
+     * Indica si la sesión es la vista vacía de solo lectura
+     */
+    public boolean isReadOnly() {
+        return false;
     }
 
     // Getters y Setters
@@ -49,12 +81,24 @@ public class CartSession {
         this.sessionId = sessionId;
     }
 
-    public List<CartItem> getItems() {
-        return items;
+    public synchronized List<CartItem> getItems() {
+        List<CartItem> view = this.itemsView;
+        if (view == null) {
+            view = Collections.unmodifiableList(new ArrayList<>(this.items.values()));
+            this.itemsView = view;
+        }
+        return view;
     }
 
-    public void setItems(List<CartItem> items) {
-        this.items = items;
+    public synchronized void setItems(List<CartItem> items) {
+        this.items = new LinkedHashMap<>();
+        if (items != null) {
+            for (CartItem item : items) {
+                this.items.put(item.getProductId(), item);
+            }
+        }
+        this.itemsView = null;
+        recalculateTotals();
     }
 
     public LocalDateTime getCreatedAt() {
@@ -85,8 +129,9 @@ public class CartSession {
         return discountAmount;
     }
 
-    public void setDiscountAmount(BigDecimal discountAmount) {
+    public synchronized void setDiscountAmount(BigDecimal discountAmount) {
         this.discountAmount = discountAmount;
+        updateTotal();
     }
 
     public String getCustomerId() {
@@ -157,16 +202,18 @@ public class CartSession {
         return shippingCost;
     }
 
-    public void setShippingCost(BigDecimal shippingCost) {
+    public synchronized void setShippingCost(BigDecimal shippingCost) {
         this.shippingCost = shippingCost;
+        updateTotal();
     }
 
     public BigDecimal getTaxAmount() {
         return taxAmount;
     }
 
-    public void setTaxAmount(BigDecimal taxAmount) {
+    public synchronized void setTaxAmount(BigDecimal taxAmount) {
         this.taxAmount = taxAmount;
+        updateTotal();
     }
 
     public String getStatus() {
@@ -178,90 +225,71 @@ public class CartSession {
     }
 
     // Métodos de negocio
-    public void addItem(CartItem item) {
-        if (this.items == null) {
-            this.items = new ArrayList<>();
+    public synchronized void addItem(CartItem item) {
+        CartItem replaced = this.items.put(item.getProductId(), item);
+        if (replaced != null) {
+            adjustTotals(lineSubtotal(replaced).negate(), -replaced.getQuantity());
         }
-        this.items.add(item);
+        adjustTotals(lineSubtotal(item), item.getQuantity());
+        this.itemsView = null;
         this.updatedAt = LocalDateTime.now();
     }
 
     public void removeItem(CartItem item) {
-        if (this.items != null) {
-            this.items.remove(item);
-            this.updatedAt = LocalDateTime.now();
+        if (item != null) {
+            removeItemById(item.getProductId());
         }
     }
 
-    public void removeItemById(Long productId) {
-        if (this.items != null) {
-            this.items.removeIf(item -> productId.equals(item.getProductId()));
-            this.updatedAt = LocalDateTime.now();
+    public synchronized void removeItemById(Long productId) {
+        CartItem removed = this.items.remove(productId);
+        if (removed != null) {
+            adjustTotals(lineSubtotal(removed).negate(), -removed.getQuantity());
+            this.itemsView = null;
         }
+        this.updatedAt = LocalDateTime.now();
     }
 
-    public void clearItems() {
-        if (this.items != null) {
-            this.items.clear();
-            this.updatedAt = LocalDateTime.now();
-        }
+    public synchronized void clearItems() {
+        this.items.clear();
+        this.itemsView = null;
+        this.subtotal = BigDecimal.ZERO;
+        this.totalQuantity = 0;
+        updateTotal();
+        this.updatedAt = LocalDateTime.now();
     }
 
     public boolean isEmpty() {
-        return this.items == null || this.items.isEmpty();
+        return this.items.isEmpty();
     }
 
     public int getItemCount() {
-        return this.items != null ? this.items.size() : 0;
+        return this.items.size();
     }
 
     public int getTotalQuantity() {
-        if (this.items == null || this.items.isEmpty()) {
-            return 0;
-        }
-        return this.items.stream()
-            .mapToInt(CartItem::getQuantity)
-            .sum();
+        return this.totalQuantity;
     }
 
     public BigDecimal getSubtotal() {
-        if (this.items == null || this.items.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-        
-        return this.items.stream()
-            .map(CartItem::getSubtotal)
-            .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return this.subtotal;
     }
 
     public BigDecimal getTotal() {
-        BigDecimal subtotal = getSubtotal();
-        BigDecimal total = subtotal;
-        
-        if (this.shippingCost != null) {
-            total = total.add(this.shippingCost);
-        }
-        
-        if (this.taxAmount != null) {
-            total = total.add(this.taxAmount);
-        }
-        
-        if (this.discountAmount != null && this.discountAmount.compareTo(BigDecimal.ZERO) > 0) {
-            total = total.subtract(this.discountAmount);
-        }
-        
-        return total.max(BigDecimal.ZERO);
+        return this.total;
     }
 
-    public void applyDiscount(String code, BigDecimal amount) {
+    public synchronized void applyDiscount(String code, BigDecimal amount) {
         this.discountCode = code;
         this.discountAmount = amount;
+        updateTotal();
         this.updatedAt = LocalDateTime.now();
     }
 
-    public void removeDiscount() {
+    public synchronized void removeDiscount() {
         this.discountCode = null;
         this.discountAmount = BigDecimal.ZERO;
+        updateTotal();
         this.updatedAt = LocalDateTime.now();
     }
 
@@ -284,32 +312,76 @@ public class CartSession {
     }
 
     public CartItem findItemById(Long productId) {
-        if (this.items == null || this.items.isEmpty()) {
-            return null;
-        }
-        return this.items.stream()
-            .filter(item -> productId.equals(item.getProductId()))
-            .findFirst()
-            .orElse(null);
+        return this.items.get(productId);
     }
 
     public boolean containsProduct(Long productId) {
-        return findItemById(productId) != null;
+        return this.items.containsKey(productId);
     }
 
-    public void updateItemQuantity(Long productId, int newQuantity) {
+    public synchronized void updateItemQuantity(Long productId, int newQuantity) {
         CartItem item = findItemById(productId);
         if (item != null) {
+            BigDecimal previousSubtotal = lineSubtotal(item);
+            int previousQuantity = item.getQuantity();
+
             item.setQuantity(newQuantity);
+
+            adjustTotals(lineSubtotal(item).subtract(previousSubtotal), item.getQuantity() - previousQuantity);
             this.updatedAt = LocalDateTime.now();
         }
     }
 
+    /**
+     * Métodos auxiliares privados
+     */
+    private static BigDecimal lineSubtotal(CartItem item) {
+        return item.getSubtotal() != null ? item.getSubtotal() : BigDecimal.ZERO;
+    }
+
+    private void adjustTotals(BigDecimal subtotalDelta, int quantityDelta) {
+        if (subtotalDelta.signum() != 0) {
+            this.subtotal = this.subtotal.add(subtotalDelta);
+        }
+        this.totalQuantity += quantityDelta;
+        updateTotal();
+    }
+
+    private void recalculateTotals() {
+        BigDecimal sum = BigDecimal.ZERO;
+        int quantity = 0;
+        for (CartItem item : this.items.values()) {
+            sum = sum.add(lineSubtotal(item));
+            quantity += item.getQuantity();
+        }
+        this.subtotal = sum;
+        this.totalQuantity = quantity;
+        updateTotal();
+    }
+
+    private void updateTotal() {
+        BigDecimal newTotal = this.subtotal;
+        
+        if (this.shippingCost != null) {
+            newTotal = newTotal.add(this.shippingCost);
+        }
+        
+        if (this.taxAmount != null) {
+            newTotal = newTotal.add(this.taxAmount);
+        }
+        
+        if (this.discountAmount != null && this.discountAmount.compareTo(BigDecimal.ZERO) > 0) {
+            newTotal = newTotal.subtract(this.discountAmount);
+        }
+        
+        this.total = newTotal.max(BigDecimal.ZERO);
+    }
+
     @Override
     public String toString() {
         return "CartSession{" +
                 "sessionId='" + sessionId + '\'' +
-                ", items=" + items +
+                ", items=" + items.values() +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
                 ", discountCode='" + discountCode + '\'' +
@@ -321,4 +393,55 @@ public class CartSession {
                 ", total=" + getTotal() +
                 '}';
     }
+
+    /**
+     * Carrito vacío inmutable: no pertenece a ninguna sesión y rechaza toda modificación
+     */
+    private static final class EmptyCartSession extends CartSession {
+
+        private EmptyCartSession() {
+            super();
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return true;
+        }
+
+        @Override
+        public List<CartItem> getItems() {
+            return List.of();
+        }
+
+        @Override public void setSessionId(String sessionId) { throw readOnly(); }
+        @Override public void setItems(List<CartItem> items) { throw readOnly(); }
+        @Override public void setCreatedAt(LocalDateTime createdAt) { throw readOnly(); }
+        @Override public void setUpdatedAt(LocalDateTime updatedAt) { throw readOnly(); }
+        @Override public void setDiscountCode(String discountCode) { throw readOnly(); }
+        @Override public void setDiscountAmount(BigDecimal discountAmount) { throw readOnly(); }
+        @Override public void setCustomerId(String customerId) { throw readOnly(); }
+        @Override public void setCustomerEmail(String customerEmail) { throw readOnly(); }
+        @Override public void setCustomerName(String customerName) { throw readOnly(); }
+        @Override public void setNotes(String notes) { throw readOnly(); }
+        @Override public void setShippingAddress(String shippingAddress) { throw readOnly(); }
+        @Override public void setBillingAddress(String billingAddress) { throw readOnly(); }
+        @Override public void setPaymentMethod(String paymentMethod) { throw readOnly(); }
+        @Override public void setCurrency(String currency) { throw readOnly(); }
+        @Override public void setShippingCost(BigDecimal shippingCost) { throw readOnly(); }
+        @Override public void setTaxAmount(BigDecimal taxAmount) { throw readOnly(); }
+        @Override public void setStatus(String status) { throw readOnly(); }
+        @Override public void addItem(CartItem item) { throw readOnly(); }
+        @Override public void removeItem(CartItem item) { throw readOnly(); }
+        @Override public void removeItemById(Long productId) { throw readOnly(); }
+        @Override public void clearItems() { throw readOnly(); }
+        @Override public void applyDiscount(String code, BigDecimal amount) { throw readOnly(); }
+        @Override public void removeDiscount() { throw readOnly(); }
+        @Override public void updateStatus(String newStatus) { throw readOnly(); }
+        @Override public void refresh() { throw readOnly(); }
+        @Override public void updateItemQuantity(Long productId, int newQuantity) { throw readOnly(); }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("La vista de carrito vacío es de solo lectura");
+        }
+    }
 }
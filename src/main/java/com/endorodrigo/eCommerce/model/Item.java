@@ -25,6 +25,10 @@ public class Item {
     
     @NotNull
     private Integer quantity;
+
+    // Control de concurrencia optimista sobre el stock
+    @Version
+    private Long version;
     
     @NotEmpty
     private String discount_rate;
@@ -86,6 +90,14 @@ public class Item {
         this.quantity = quantity;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getDiscount_rate() {
         return discount_rate;
     }
@@ -0,0 +1,40 @@
+package com.endorodrigo.eCommerce.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Cursor de paginación de órdenes: posición (fecha de creación, número de orden) de la última
+ * orden entregada. Las órdenes se listan por fecha descendente y número ascendente.
+ * Se expone a los clientes como texto opaco en base64 URL-safe.
+ */
+public record OrderCursor(LocalDateTime createdAt, String orderNumber) {
+
+    private static final String SEPARATOR = "|";
+
+    public static OrderCursor of(OrderRecord order) {
+        return new OrderCursor(order.createdAt(), order.orderNumber());
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + orderNumber;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Leer un cursor recibido del cliente. Retorna null si está vacío
+     */
+    public static OrderCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new OrderCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor de paginación inválido", e);
+        }
+    }
+}
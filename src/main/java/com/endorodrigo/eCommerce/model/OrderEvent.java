@@ -0,0 +1,15 @@
+package com.endorodrigo.eCommerce.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento del registro de auditoría de órdenes: creación (previousStatus null) o cambio de estado.
+ * La secuencia es monótona y la asigna el registro al escribir.
+ */
+public record OrderEvent(long sequence,
+                         LocalDateTime occurredAt,
+                         String orderNumber,
+                         OrderStatus previousStatus,
+                         OrderStatus status,
+                         String trackingNumber) {
+}
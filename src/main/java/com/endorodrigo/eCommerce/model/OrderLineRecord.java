@@ -0,0 +1,41 @@
+package com.endorodrigo.eCommerce.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Línea de orden inmutable para la vista en memoria, con montos en centavos
+ */
+public record OrderLineRecord(long productId, String productName, long priceCents, int quantity, String image) {
+
+    public long subtotalCents() {
+        return priceCents * quantity;
+    }
+
+    public static OrderLineRecord from(OrderLine line) {
+        return new OrderLineRecord(
+            line.getProductId(),
+            line.getProductName(),
+            toCents(line.getPrice()),
+            line.getQuantity(),
+            line.getImage()
+        );
+    }
+
+    /**
+     * Convertir un monto a centavos (redondeo HALF_UP)
+     */
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Convertir centavos a monto con dos decimales
+     */
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
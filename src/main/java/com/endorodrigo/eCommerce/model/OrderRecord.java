@@ -0,0 +1,58 @@
+package com.endorodrigo.eCommerce.model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.endorodrigo.eCommerce.model.OrderLineRecord.toCents;
+
+/**
+ * Orden inmutable para la vista en memoria de órdenes.
+ * Montos en centavos y estado tipado: sin mapas por orden, sin boxing ni casts al leer.
+ * Cada cambio de la orden publica un nuevo registro.
+ */
+public record OrderRecord(
+    String orderNumber,
+    long customerId,
+    String customerName,
+    String shippingAddress,
+    String shippingMethod,
+    long shippingCents,
+    long subtotalCents,
+    long taxCents,
+    long totalCents,
+    OrderStatus status,
+    String trackingNumber,
+    LocalDateTime createdAt,
+    LocalDateTime updatedAt,
+    LocalDateTime shippedAt,
+    LocalDateTime deliveredAt,
+    List<OrderLineRecord> lines
+) {
+
+    public static OrderRecord from(Order order) {
+        List<OrderLineRecord> lines = new ArrayList<>(order.getLines().size());
+        for (OrderLine line : order.getLines()) {
+            lines.add(OrderLineRecord.from(line));
+        }
+
+        return new OrderRecord(
+            order.getOrderNumber(),
+            order.getCustomerId() != null ? order.getCustomerId() : 0L,
+            order.getCustomerName(),
+            order.getShippingAddress(),
+            order.getShippingMethod(),
+            toCents(order.getShippingCost()),
+            toCents(order.getSubtotal()),
+            toCents(order.getTax()),
+            toCents(order.getTotal()),
+            order.getStatus(),
+            order.getTrackingNumber(),
+            order.getCreatedAt(),
+            order.getUpdatedAt(),
+            order.getShippedAt(),
+            order.getDeliveredAt(),
+            List.copyOf(lines)
+        );
+    }
+}
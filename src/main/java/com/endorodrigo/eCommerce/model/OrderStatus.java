@@ -0,0 +1,27 @@
+package com.endorodrigo.eCommerce.model;
+
+/**
+ * Estados de una orden de venta
+ */
+public enum OrderStatus {
+    PENDING,
+    PAID,
+    PROCESSING,
+    SHIPPED,
+    DELIVERED,
+    CANCELLED;
+
+    /**
+     * Convertir un texto en estado. Retorna null si no es un estado válido
+     */
+    public static OrderStatus parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -18,6 +18,10 @@ public class Payment {
     private double price; // Monto
     private String method; // Método de pago (Efectivo, Tarjeta, Transferencia, etc.)
     private String status; // Estado del pago (Pagado, Pendiente, Cancelado)
+    private String orderNumber; // Orden pagada
+    private String statusMessage; // Respuesta de la pasarela para el estado actual
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
 
     /**
      * Entidad que representa un pago realizado en el sistema.
@@ -85,15 +89,43 @@ public class Payment {
                 ", price=" + price +
                 ", method='" + method + '\'' +
                 ", status='" + status + '\'' +
+                ", orderNumber='" + orderNumber + '\'' +
                 '}';
     }
 
+    public String getOrderNumber() {
+        return orderNumber;
+    }
+
     public void setOrderNumber(String orderNumber) {
+        this.orderNumber = orderNumber;
     }
 
     public void setAmount(BigDecimal cartTotal) {
+        this.price = cartTotal != null ? cartTotal.doubleValue() : 0;
+    }
+
+    public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    public void setStatusMessage(String statusMessage) {
+        this.statusMessage = statusMessage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
     }
 
-    public void setCreatedAt(LocalDateTime now) {
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
     }
 }
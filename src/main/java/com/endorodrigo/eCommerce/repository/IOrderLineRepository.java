@@ -0,0 +1,17 @@
+package com.endorodrigo.eCommerce.repository;
+
+import com.endorodrigo.eCommerce.model.OrderLine;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+/**
+ * Repositorio para la entidad OrderLine.
+ */
+public interface IOrderLineRepository extends CrudRepository<OrderLine, Long> {
+
+    /**
+     * Líneas de una orden (usa el índice por order_id)
+     */
+    List<OrderLine> findByOrder_OrderNumber(String orderNumber);
+}
@@ -0,0 +1,60 @@
+package com.endorodrigo.eCommerce.repository;
+
+import com.endorodrigo.eCommerce.model.Order;
+import com.endorodrigo.eCommerce.model.OrderStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio para la entidad Order.
+ * Las consultas por estado, cliente y fecha usan los índices de la tabla sales_order
+ * y cargan las líneas en la misma consulta.
+ */
+public interface IOrderRepository extends CrudRepository<Order, Long> {
+
+    @EntityGraph(attributePaths = "lines")
+    Optional<Order> findByOrderNumber(String orderNumber);
+
+    @EntityGraph(attributePaths = "lines")
+    List<Order> findAllByOrderByCreatedAtDesc();
+
+    @EntityGraph(attributePaths = "lines")
+    List<Order> findByStatusOrderByCreatedAtDesc(OrderStatus status);
+
+    @EntityGraph(attributePaths = "lines")
+    List<Order> findByCustomerIdOrderByCreatedAtDesc(Long customerId);
+
+    @EntityGraph(attributePaths = "lines")
+    List<Order> findByStatusAndCreatedAtBeforeOrderByCreatedAtDesc(OrderStatus status, LocalDateTime before);
+
+    @EntityGraph(attributePaths = "lines")
+    List<Order> findByCustomerIdAndCreatedAtBeforeOrderByCreatedAtDesc(Long customerId, LocalDateTime before);
+
+    @EntityGraph(attributePaths = "lines")
+    List<Order> findByCreatedAtBetweenOrderByCreatedAtDesc(LocalDateTime startDate, LocalDateTime endDate);
+
+    @EntityGraph(attributePaths = "lines")
+    List<Order> findByUpdatedAtGreaterThanEqualOrderByUpdatedAtAsc(LocalDateTime since);
+
+    /**
+     * Página por keyset: órdenes posteriores a (createdAt, orderNumber) en orden
+     * fecha descendente y número ascendente. Las líneas se cargan por lotes (@BatchSize)
+     */
+    @Query("SELECT o FROM SalesOrder o "
+        + "WHERE (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.orderNumber > :orderNumber)) "
+        + "AND (:status IS NULL OR o.status = :status) "
+        + "AND (:customerId IS NULL OR o.customerId = :customerId) "
+        + "ORDER BY o.createdAt DESC, o.orderNumber ASC")
+    List<Order> findPageAfter(@Param("createdAt") LocalDateTime createdAt,
+                              @Param("orderNumber") String orderNumber,
+                              @Param("status") OrderStatus status,
+                              @Param("customerId") Long customerId,
+                              Pageable pageable);
+}
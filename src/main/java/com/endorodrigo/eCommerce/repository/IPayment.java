@@ -3,9 +3,16 @@ package com.endorodrigo.eCommerce.repository;
 import com.endorodrigo.eCommerce.model.Payment;
 import org.springframework.data.repository.CrudRepository;
 
+import java.util.Optional;
+
 /**
  * Repositorio para la entidad Payment.
  * Proporciona operaciones CRUD sobre pagos.
  */
 public interface IPayment extends CrudRepository<Payment, Integer> {
+
+    /**
+     * Último pago registrado para una orden
+     */
+    Optional<Payment> findFirstByOrderNumberOrderByIdDesc(String orderNumber);
 }
@@ -1,11 +1,15 @@
 package com.endorodrigo.eCommerce.repository;
 
 import com.endorodrigo.eCommerce.model.Item;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface IProductRepository extends CrudRepository<Item, Long> {
+public interface IProductRepository extends CrudRepository<Item, Long>, ProductStockRepository {
     /**
      * Repositorio para la entidad Product.
      * Proporciona operaciones CRUD sobre productos.
@@ -25,4 +29,27 @@ public interface IProductRepository extends CrudRepository<Item, Long> {
      */
     java.util.List<Item> findByQuantity(Integer quantity);
 
+    /**
+     * Stock actual de varios productos en una sola consulta (solo id y cantidad)
+     */
+    java.util.List<StockLevel> findByIdIn(java.util.Collection<Long> ids);
+
+    /**
+     * Asignar la versión inicial a un producto anterior a la columna version.
+     * Retorna 0 si el producto no existe o ya tenía versión
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Item i SET i.version = 0 WHERE i.id = :id AND i.version IS NULL")
+    int initializeVersion(@Param("id") Long id);
+
+    /**
+     * Proyección con el stock de un producto
+     */
+    interface StockLevel {
+        Long getId();
+
+        Integer getQuantity();
+    }
+
 }
@@ -0,0 +1,26 @@
+package com.endorodrigo.eCommerce.repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fragmento de IProductRepository con actualizaciones de stock por lotes en SQL,
+ * sin cargar ni guardar las entidades producto.
+ */
+public interface ProductStockRepository {
+
+    /**
+     * Sumar cantidades al stock de varios productos (productId → unidades) en un solo lote
+     * de UPDATE quantity = quantity + ?. Participa en la transacción en curso.
+     * Retorna el número de productos actualizados
+     */
+    int incrementStock(Map<Long, Integer> quantities);
+
+    /**
+     * Descontar stock de varios productos en un solo lote de UPDATE condicional
+     * (quantity = quantity - ? WHERE quantity >= ?). Participa en la transacción en curso.
+     * Retorna los productos que no tenían stock suficiente y no se descontaron.
+     * Si el driver no informa el conteo de una sentencia lanza una excepción en lugar de suponer éxito
+     */
+    List<Long> decrementStockIfAvailable(Map<Long, Integer> quantities);
+}
@@ -0,0 +1,73 @@
+package com.endorodrigo.eCommerce.repository;
+
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Implementación JDBC del fragmento ProductStockRepository
+ */
+public class ProductStockRepositoryImpl implements ProductStockRepository {
+
+    private static final String INCREMENT_STOCK =
+        "UPDATE item SET quantity = quantity + ?, version = version + 1 WHERE id = ?";
+    private static final String DECREMENT_STOCK =
+        "UPDATE item SET quantity = quantity - ?, version = version + 1 WHERE id = ? AND quantity >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProductStockRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int incrementStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> batch = new ArrayList<>(quantities.size());
+        quantities.forEach((productId, quantity) -> batch.add(new Object[] {quantity, productId}));
+
+        int updated = 0;
+        for (int rows : jdbcTemplate.batchUpdate(INCREMENT_STOCK, batch)) {
+            // Algunos drivers informan SUCCESS_NO_INFO (-2) en lotes
+            updated += rows != 0 ? 1 : 0;
+        }
+        return updated;
+    }
+
+    @Override
+    public List<Long> decrementStockIfAvailable(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+
+        // Orden fijo por id: las transacciones concurrentes bloquean las filas en el mismo orden
+        List<Long> productIds = new ArrayList<>(new TreeMap<>(quantities).keySet());
+        List<Object[]> batch = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            int quantity = quantities.get(productId);
+            batch.add(new Object[] {quantity, productId, quantity});
+        }
+
+        int[] counts = jdbcTemplate.batchUpdate(DECREMENT_STOCK, batch);
+        List<Long> insufficient = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                insufficient.add(productIds.get(i));
+            } else if (counts[i] != 1) {
+                // Sin conteo por sentencia (SUCCESS_NO_INFO de lotes "bulk") no se sabe si hubo stock:
+                // se falla y la transacción revierte los descuentos del lote
+                throw new IncorrectUpdateSemanticsDataAccessException(
+                    "Conteo inesperado " + counts[i] + " al descontar stock del producto " + productIds.get(i)
+                        + " (useBulkStmts debe ser false)");
+            }
+        }
+        return insufficient;
+    }
+}
@@ -4,14 +4,16 @@ package com.endorodrigo.eCommerce.service;
 import com.endorodrigo.eCommerce.model.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Servicio para manejar el carrito de compras del sistema eCommerce
@@ -22,24 +24,48 @@ public class CartService {
 
     private static final Logger logger = LoggerFactory.getLogger(CartService.class);
     
-    // Almacenamiento temporal de sesiones de carrito (en producción usar Redis o base de datos)
-    private final Map<String, CartSession> cartSessions = new ConcurrentHashMap<>();
+    // Almacén de sesiones de carrito (en memoria, JDBC o archivo según app.cart.store)
+    private final CartStore cartSessions;
+
+    // Contadores globales de carritos mantenidos en cada modificación
+    private final CartStatistics cartStatistics;
+
+    // Instantáneas de stock para validar el carrito completo en una sola consulta
+    private final StockSnapshotCache stockSnapshotCache;
+
+    // Reservas temporales de stock de los carritos activos
+    private final StockReservationLedger reservations;
+
+    // Locks por franjas: las modificaciones de un mismo carrito se serializan sin bloquear otras sesiones
+    private final Lock[] sessionLocks;
+
+    public CartService(CartStore cartSessions,
+                       CartStatistics cartStatistics,
+                       StockSnapshotCache stockSnapshotCache,
+                       StockReservationLedger reservations,
+                       @Value("${app.cart.lock-stripes:64}") int lockStripes) {
+        this.cartSessions = cartSessions;
+        this.cartStatistics = cartStatistics;
+        this.stockSnapshotCache = stockSnapshotCache;
+        this.reservations = reservations;
+
+        int stripes = 1;
+        while (stripes < lockStripes) {
+            stripes <<= 1;
+        }
+        this.sessionLocks = new Lock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.sessionLocks[i] = new ReentrantLock();
+        }
+    }
 
     /**
      * Obtener sesión de carrito por ID de sesión
      */
     public CartSession getCartSession(String sessionId) {
         try {
-            CartSession cartSession = cartSessions.get(sessionId);
-            if (cartSession == null) {
-                // Crear nueva sesión de carrito si no existe
-                cartSession = new CartSession();
-                cartSession.setSessionId(sessionId);
-                cartSession.setItems(new ArrayList<>());
-                cartSession.setCreatedAt(java.time.LocalDateTime.now());
-                cartSessions.put(sessionId, cartSession);
-            }
-            return cartSession;
+            // Crear nueva sesión de carrito si no existe
+            return cartSessions.getOrCreate(sessionId);
             
         } catch (Exception e) {
             logger.error("Error al obtener sesión de carrito para: {}", sessionId, e);
@@ -47,54 +73,98 @@ public class CartService {
         }
     }
 
+    /**
+     * Obtener sesión de carrito en modo lectura, sin crearla.
+     * Si la sesión no tiene carrito retorna la vista vacía compartida de solo lectura
+     */
+    public CartSession findCartSession(String sessionId) {
+        CartSession cartSession = cartSessions.get(sessionId);
+        return cartSession != null ? cartSession : CartSession.emptyView();
+    }
+
     /**
      * Agregar producto al carrito
      */
     public boolean addToCart(String sessionId, CartItem cartItem) {
+        Lock lock = lockFor(sessionId);
+        lock.lock();
         try {
-            CartSession cartSession = getCartSession(sessionId);
+            // Reservar antes de crear la sesión: un rechazo no debe dejar un carrito vacío en el almacén
+            CartSession existingSession = cartSessions.get(sessionId);
+            CartItem existingItem = existingSession != null ? findCartItem(existingSession, cartItem.getProductId()) : null;
+            int reservedQuantity = cartItem.getQuantity() + (existingItem != null ? existingItem.getQuantity() : 0);
+            if (!reserve(sessionId, cartItem.getProductId(), reservedQuantity)) {
+                logger.info("Stock no disponible para reservar {} unidades del producto {}",
+                    reservedQuantity, cartItem.getProductId());
+                return false;
+            }
+
+            CartSession cartSession = existingSession != null ? existingSession : getCartSession(sessionId);
             if (cartSession == null) {
                 logger.error("No se pudo obtener sesión de carrito para: {}", sessionId);
+                reservations.release(sessionId, cartItem.getProductId());
                 return false;
             }
-
-            // Verificar si el producto ya existe en el carrito
-            CartItem existingItem = findCartItem(cartSession, cartItem.getProductId());
             
-            if (existingItem != null) {
-                // Actualizar cantidad si el producto ya existe
-                int newQuantity = existingItem.getQuantity() + cartItem.getQuantity();
-                existingItem.setQuantity(newQuantity);
-                
-                logger.info("Cantidad actualizada para producto {} en carrito: {}", 
-                    cartItem.getProductName(), newQuantity);
-            } else {
-                // Agregar nuevo producto al carrito
-                cartSession.addItem(cartItem);
-                
-                logger.info("Producto {} agregado al carrito: {}", 
-                    cartItem.getProductName(), cartItem.getQuantity());
-            }
+            try {
+                if (existingItem != null) {
+                    // Actualizar cantidad si el producto ya existe
+                    int newQuantity = existingItem.getQuantity() + cartItem.getQuantity();
+                    cartSession.updateItemQuantity(cartItem.getProductId(), newQuantity);
+
+                    logger.info("Cantidad actualizada para producto {} en carrito: {}",
+                        cartItem.getProductName(), newQuantity);
+                } else {
+                    // Agregar nuevo producto al carrito
+                    cartSession.addItem(cartItem);
+
+                    logger.info("Producto {} agregado al carrito: {}",
+                        cartItem.getProductName(), cartItem.getQuantity());
+                }
 
-            // Actualizar timestamp de la sesión
-            cartSession.setUpdatedAt(java.time.LocalDateTime.now());
+                // Actualizar timestamp de la sesión
+                cartSession.setUpdatedAt(java.time.LocalDateTime.now());
+            } finally {
+                cartStatistics.onModified(cartSession);
+            }
+            cartSessions.markModified(sessionId);
             
             return true;
             
         } catch (Exception e) {
             logger.error("Error al agregar producto al carrito: {}", cartItem.getProductName(), e);
             return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Devolver al carrito los productos de una orden que no se pagó.
+     * Cada producto se agrega con su propia reserva; los que ya no tienen stock se omiten.
+     * Retorna la cantidad de productos devueltos
+     */
+    public int restoreCart(String sessionId, List<CartItem> items) {
+        int restored = 0;
+        for (CartItem item : items) {
+            if (addToCart(sessionId, item)) {
+                restored++;
+            }
         }
+        logger.info("{} de {} productos devueltos al carrito de la sesión: {}", restored, items.size(), sessionId);
+        return restored;
     }
 
     /**
      * Actualizar cantidad de un producto en el carrito
      */
     public boolean updateCartItemQuantity(String sessionId, Long productId, int newQuantity) {
+        Lock lock = lockFor(sessionId);
+        lock.lock();
         try {
-            CartSession cartSession = getCartSession(sessionId);
+            CartSession cartSession = cartSessions.get(sessionId);
             if (cartSession == null) {
-                logger.error("No se pudo obtener sesión de carrito para: {}", sessionId);
+                logger.warn("No existe carrito para la sesión: {}", sessionId);
                 return false;
             }
 
@@ -104,11 +174,21 @@ public class CartService {
                 return false;
             }
 
-            // Actualizar cantidad
-            existingItem.setQuantity(newQuantity);
+            if (!reserve(sessionId, productId, newQuantity)) {
+                logger.info("Stock no disponible para reservar {} unidades del producto {}", newQuantity, productId);
+                return false;
+            }
 
-            // Actualizar timestamp de la sesión
-            cartSession.setUpdatedAt(java.time.LocalDateTime.now());
+            // Actualizar cantidad (mantiene los totales de la sesión)
+            try {
+                cartSession.updateItemQuantity(productId, newQuantity);
+
+                // Actualizar timestamp de la sesión
+                cartSession.setUpdatedAt(java.time.LocalDateTime.now());
+            } finally {
+                cartStatistics.onModified(cartSession);
+            }
+            cartSessions.markModified(sessionId);
 
             logger.info("Cantidad actualizada para producto {} en carrito: {}", 
                 existingItem.getProductName(), newQuantity);
@@ -118,6 +198,8 @@ public class CartService {
         } catch (Exception e) {
             logger.error("Error al actualizar cantidad del producto {} en carrito", productId, e);
             return false;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -125,20 +207,28 @@ public class CartService {
      * Eliminar producto del carrito
      */
     public boolean removeFromCart(String sessionId, Long productId) {
+        Lock lock = lockFor(sessionId);
+        lock.lock();
         try {
-            CartSession cartSession = getCartSession(sessionId);
+            CartSession cartSession = cartSessions.get(sessionId);
             if (cartSession == null) {
-                logger.error("No se pudo obtener sesión de carrito para: {}", sessionId);
+                logger.warn("No existe carrito para la sesión: {}", sessionId);
                 return false;
             }
 
             // Verificar si el producto existe antes de removerlo
             boolean existed = cartSession.containsProduct(productId);
-            cartSession.removeItemById(productId);
+            try {
+                cartSession.removeItemById(productId);
+            } finally {
+                cartStatistics.onModified(cartSession);
+            }
+            reservations.release(sessionId, productId);
 
             if (existed) {
                 // Actualizar timestamp de la sesión
                 cartSession.setUpdatedAt(java.time.LocalDateTime.now());
+                cartSessions.markModified(sessionId);
                 
                 logger.info("Producto {} eliminado del carrito para sesión: {}", productId, sessionId);
                 return true;
@@ -150,6 +240,8 @@ public class CartService {
         } catch (Exception e) {
             logger.error("Error al eliminar producto {} del carrito", productId, e);
             return false;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -157,15 +249,23 @@ public class CartService {
      * Limpiar carrito completo
      */
     public boolean clearCart(String sessionId) {
+        Lock lock = lockFor(sessionId);
+        lock.lock();
         try {
-            CartSession cartSession = getCartSession(sessionId);
+            CartSession cartSession = cartSessions.get(sessionId);
             if (cartSession == null) {
-                logger.error("No se pudo obtener sesión de carrito para: {}", sessionId);
-                return false;
+                // No hay carrito materializado: ya está vacío
+                return true;
             }
 
-            cartSession.clearItems();
+            try {
+                cartSession.clearItems();
+            } finally {
+                cartStatistics.onModified(cartSession);
+            }
+            reservations.releaseAll(sessionId);
             cartSession.setUpdatedAt(java.time.LocalDateTime.now());
+            cartSessions.markModified(sessionId);
 
             logger.info("Carrito limpiado para sesión: {}", sessionId);
             return true;
@@ -173,6 +273,75 @@ public class CartService {
         } catch (Exception e) {
             logger.error("Error al limpiar carrito para sesión: {}", sessionId, e);
             return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Unidades de un producto que el carrito puede tener, descontando lo reservado por otros carritos
+     */
+    public int getAvailableQuantity(String sessionId, Long productId) {
+        Integer stock = stockSnapshotCache.getStock(List.of(productId)).get(productId);
+        return stock != null ? reservations.available(sessionId, productId, stock) : 0;
+    }
+
+    /**
+     * Convertir las reservas del carrito en la orden creada (el stock ya se descontó)
+     */
+    public void convertReservations(String sessionId) {
+        reservations.convert(sessionId);
+    }
+
+    /**
+     * Aplicar un lote de operaciones (add/update/remove) bajo un único lock de sesión
+     * Retorna el subtotal final (sin descuento) una sola vez junto con las operaciones rechazadas
+     */
+    public Map<String, Object> applyBatch(String sessionId, List<CartOperation> operations) {
+        Lock lock = lockFor(sessionId);
+        lock.lock();
+        try {
+            int applied = 0;
+            List<Map<String, Object>> failures = new ArrayList<>();
+
+            for (int i = 0; i < operations.size(); i++) {
+                CartOperation operation = operations.get(i);
+                boolean success = switch (String.valueOf(operation.getType())) {
+                    case CartOperation.ADD -> operation.getCartItem() != null
+                        && addToCart(sessionId, operation.getCartItem());
+                    case CartOperation.UPDATE -> operation.getQuantity() <= 0
+                        ? removeFromCart(sessionId, operation.getProductId())
+                        : updateCartItemQuantity(sessionId, operation.getProductId(), operation.getQuantity());
+                    case CartOperation.REMOVE -> removeFromCart(sessionId, operation.getProductId());
+                    default -> false;
+                };
+
+                if (success) {
+                    applied++;
+                } else {
+                    failures.add(Map.of(
+                        "index", i,
+                        "type", String.valueOf(operation.getType()),
+                        "productId", String.valueOf(operation.getProductId())
+                    ));
+                }
+            }
+
+            CartSession cartSession = findCartSession(sessionId);
+
+            return Map.of(
+                "applied", applied,
+                "failed", failures,
+                "subtotal", cartSession.getSubtotal(),
+                "itemCount", cartSession.getTotalQuantity(),
+                "uniqueItemCount", cartSession.getItemCount()
+            );
+
+        } catch (Exception e) {
+            logger.error("Error al aplicar lote de operaciones al carrito para sesión: {}", sessionId, e);
+            return Map.of("error", "Error al aplicar operaciones al carrito");
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -181,8 +350,8 @@ public class CartService {
      */
     public BigDecimal getCartTotal(String sessionId) {
         try {
-            CartSession cartSession = getCartSession(sessionId);
-            if (cartSession == null || cartSession.getItems().isEmpty()) {
+            CartSession cartSession = findCartSession(sessionId);
+            if (cartSession == null || cartSession.isEmpty()) {
                 return BigDecimal.ZERO;
             }
 
@@ -199,7 +368,7 @@ public class CartService {
      */
     public int getCartItemCount(String sessionId) {
         try {
-            CartSession cartSession = getCartSession(sessionId);
+            CartSession cartSession = findCartSession(sessionId);
             if (cartSession == null) {
                 return 0;
             }
@@ -217,7 +386,7 @@ public class CartService {
      */
     public int getCartUniqueItemCount(String sessionId) {
         try {
-            CartSession cartSession = getCartSession(sessionId);
+            CartSession cartSession = findCartSession(sessionId);
             if (cartSession == null) {
                 return 0;
             }
@@ -235,7 +404,7 @@ public class CartService {
      */
     public boolean isCartEmpty(String sessionId) {
         try {
-            CartSession cartSession = getCartSession(sessionId);
+            CartSession cartSession = findCartSession(sessionId);
             return cartSession == null || cartSession.isEmpty();
                 
         } catch (Exception e) {
@@ -248,9 +417,11 @@ public class CartService {
      * Obtener resumen del carrito
      */
     public Map<String, Object> getCartSummary(String sessionId) {
+        Lock lock = lockFor(sessionId);
+        lock.lock();
         try {
-            CartSession cartSession = getCartSession(sessionId);
-            if (cartSession == null) {
+            CartSession cartSession = findCartSession(sessionId);
+            if (cartSession == null || cartSession.isReadOnly()) {
                 return Map.of(
                     "isEmpty", true,
                     "itemCount", 0,
@@ -277,6 +448,8 @@ public class CartService {
         } catch (Exception e) {
             logger.error("Error al obtener resumen del carrito para sesión: {}", sessionId, e);
             return Map.of("error", "Error al obtener resumen del carrito");
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -284,13 +457,9 @@ public class CartService {
      * Aplicar descuento al carrito
      */
     public boolean applyDiscount(String sessionId, String discountCode, BigDecimal discountAmount) {
+        Lock lock = lockFor(sessionId);
+        lock.lock();
         try {
-            CartSession cartSession = getCartSession(sessionId);
-            if (cartSession == null) {
-                logger.error("No se pudo obtener sesión de carrito para: {}", sessionId);
-                return false;
-            }
-
             // Validar descuento
             if (discountAmount.compareTo(BigDecimal.ZERO) <= 0) {
                 logger.warn("Monto de descuento inválido: {}", discountAmount);
@@ -303,8 +472,15 @@ public class CartService {
                 return false;
             }
 
+            CartSession cartSession = getCartSession(sessionId);
+            if (cartSession == null) {
+                logger.error("No se pudo obtener sesión de carrito para: {}", sessionId);
+                return false;
+            }
+
             // Aplicar descuento
             cartSession.applyDiscount(discountCode, discountAmount);
+            cartSessions.markModified(sessionId);
 
             logger.info("Descuento aplicado al carrito: {} - ${}", discountCode, discountAmount);
             return true;
@@ -312,6 +488,8 @@ public class CartService {
         } catch (Exception e) {
             logger.error("Error al aplicar descuento al carrito para sesión: {}", sessionId, e);
             return false;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -319,14 +497,17 @@ public class CartService {
      * Remover descuento del carrito
      */
     public boolean removeDiscount(String sessionId) {
+        Lock lock = lockFor(sessionId);
+        lock.lock();
         try {
-            CartSession cartSession = getCartSession(sessionId);
+            CartSession cartSession = cartSessions.get(sessionId);
             if (cartSession == null) {
-                logger.error("No se pudo obtener sesión de carrito para: {}", sessionId);
-                return false;
+                // Sin carrito materializado no hay descuento que remover
+                return true;
             }
 
             cartSession.removeDiscount();
+            cartSessions.markModified(sessionId);
 
             logger.info("Descuento removido del carrito para sesión: {}", sessionId);
             return true;
@@ -334,6 +515,8 @@ public class CartService {
         } catch (Exception e) {
             logger.error("Error al remover descuento del carrito para sesión: {}", sessionId, e);
             return false;
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -343,7 +526,7 @@ public class CartService {
     public BigDecimal getCartTotalWithDiscount(String sessionId) {
         try {
             BigDecimal cartTotal = getCartTotal(sessionId);
-            CartSession cartSession = getCartSession(sessionId);
+            CartSession cartSession = findCartSession(sessionId);
             
             if (cartSession != null && cartSession.getDiscountAmount() != null) {
                 return cartTotal.subtract(cartSession.getDiscountAmount()).max(BigDecimal.ZERO);
@@ -362,24 +545,32 @@ public class CartService {
      */
     public Map<String, Object> validateCartStock(String sessionId) {
         try {
-            CartSession cartSession = getCartSession(sessionId);
+            CartSession cartSession = findCartSession(sessionId);
             if (cartSession == null || cartSession.getItems().isEmpty()) {
                 return Map.of("valid", true, "issues", List.of());
             }
 
+            List<CartItem> items = cartSession.getItems();
+            List<Long> productIds = new ArrayList<>(items.size());
+            for (CartItem item : items) {
+                productIds.add(item.getProductId());
+            }
+
+            // Una sola consulta por lote para todas las líneas del carrito
+            Map<Long, Integer> stock = stockSnapshotCache.getStock(productIds);
+
             List<Map<String, Object>> issues = new ArrayList<>();
             boolean isValid = true;
 
-            for (CartItem item : cartSession.getItems()) {
-                // Aquí se debería verificar el stock real contra la base de datos
-                // Por ahora, simulamos la validación
-                if (item.getQuantity() > 100) { // Simular stock máximo
+            for (CartItem item : items) {
+                Integer available = stock.get(item.getProductId());
+                if (available == null || item.getQuantity() > available) {
                     issues.add(Map.of(
                         "productId", item.getProductId(),
-                        "productName", item.getProductName(),
-                        "issue", "Stock insuficiente",
+                        "productName", String.valueOf(item.getProductName()),
+                        "issue", available == null ? "Producto no disponible" : "Stock insuficiente",
                         "requested", item.getQuantity(),
-                        "available", 100
+                        "available", available == null ? 0 : available
                     ));
                     isValid = false;
                 }
@@ -401,23 +592,8 @@ public class CartService {
      */
     public void cleanupExpiredSessions() {
         try {
-            java.time.LocalDateTime expirationTime = java.time.LocalDateTime.now().minusHours(24);
-            
-            List<String> expiredSessions = cartSessions.entrySet().stream()
-                .filter(entry -> {
-                    CartSession session = entry.getValue();
-                    return session.getUpdatedAt() != null && 
-                           session.getUpdatedAt().isBefore(expirationTime);
-                })
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-
-            for (String sessionId : expiredSessions) {
-                cartSessions.remove(sessionId);
-                logger.info("Sesión de carrito expirada removida: {}", sessionId);
-            }
-
-            logger.info("Limpieza de sesiones expiradas completada. {} sesiones removidas", expiredSessions.size());
+            int removed = cartSessions.evictExpired();
+            logger.info("Limpieza de sesiones expiradas completada. {} sesiones removidas", removed);
                 
         } catch (Exception e) {
             logger.error("Error al limpiar sesiones expiradas", e);
@@ -425,31 +601,13 @@ public class CartService {
     }
 
     /**
-     * Obtener estadísticas del carrito
+     * Obtener estadísticas del carrito (O(1): contadores globales mantenidos incrementalmente)
      */
     public Map<String, Object> getCartStatistics() {
         try {
-            int totalSessions = cartSessions.size();
-            int activeSessions = (int) cartSessions.values().stream()
-                .filter(session -> !session.isEmpty())
-                .count();
-
-            long totalItems = cartSessions.values().stream()
-                .mapToLong(session -> session.getItemCount())
-                .sum();
-
-            BigDecimal totalValue = cartSessions.values().stream()
-                .map(session -> getCartTotal(session.getSessionId()))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            return Map.of(
-                "totalSessions", totalSessions,
-                "activeSessions", activeSessions,
-                "totalItems", totalItems,
-                "totalValue", totalValue,
-                "averageItemsPerSession", totalSessions > 0 ? (double) totalItems / totalSessions : 0.0,
-                "averageValuePerSession", totalSessions > 0 ? totalValue.divide(BigDecimal.valueOf(totalSessions), 2, BigDecimal.ROUND_HALF_UP) : BigDecimal.ZERO
-            );
+            Map<String, Object> statistics = cartStatistics.snapshot();
+            statistics.put("store", cartSessions.getMetrics());
+            return statistics;
                 
         } catch (Exception e) {
             logger.error("Error al obtener estadísticas del carrito", e);
@@ -460,15 +618,19 @@ public class CartService {
     /**
      * Métodos auxiliares privados
      */
-    private CartItem findCartItem(CartSession cartSession, Long productId) {
-        return cartSession.findItemById(productId);
+    private boolean reserve(String sessionId, Long productId, int quantity) {
+        // Las reservas retienen stock: se comparan con el valor actual, no con una instantánea
+        Integer stock = stockSnapshotCache.getCurrentStock(List.of(productId)).get(productId);
+        return stock != null && reservations.hold(sessionId, productId, quantity, stock);
     }
 
-    private BigDecimal getCartTotal(CartSession cartSession) {
-        if (cartSession == null || cartSession.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
+    private Lock lockFor(String sessionId) {
+        int hash = Objects.hashCode(sessionId);
+        hash ^= (hash >>> 16);
+        return sessionLocks[hash & (sessionLocks.length - 1)];
+    }
 
-        return cartSession.getSubtotal();
+    private CartItem findCartItem(CartSession cartSession, Long productId) {
+        return cartSession.findItemById(productId);
     }
 }
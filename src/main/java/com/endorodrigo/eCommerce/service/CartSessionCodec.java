@@ -0,0 +1,208 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartItem;
+import com.endorodrigo.eCommerce.model.CartSession;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serialización binaria compacta de sesiones de carrito
+ * Usada por los almacenes persistentes de carritos
+ */
+public final class CartSessionCodec {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private CartSessionCodec() {
+    }
+
+    public static byte[] encode(CartSession cartSession) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            write(out, cartSession);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al serializar sesión de carrito", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static CartSession decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return read(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error al leer sesión de carrito", e);
+        }
+    }
+
+    /**
+     * Escribir una sesión en un flujo de datos, bajo el monitor de la sesión para no
+     * mezclar items de antes y después de una modificación concurrente
+     */
+    public static void write(DataOutput out, CartSession cartSession) throws IOException {
+        synchronized (cartSession) {
+            writeSession(out, cartSession);
+        }
+    }
+
+    private static void writeSession(DataOutput out, CartSession cartSession) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        writeString(out, cartSession.getSessionId());
+        writeDateTime(out, cartSession.getCreatedAt());
+        writeDateTime(out, cartSession.getUpdatedAt());
+        writeString(out, cartSession.getDiscountCode());
+        writeDecimal(out, cartSession.getDiscountAmount());
+        writeString(out, cartSession.getCustomerId());
+        writeString(out, cartSession.getCustomerEmail());
+        writeString(out, cartSession.getCustomerName());
+        writeString(out, cartSession.getNotes());
+        writeString(out, cartSession.getShippingAddress());
+        writeString(out, cartSession.getBillingAddress());
+        writeString(out, cartSession.getPaymentMethod());
+        writeString(out, cartSession.getCurrency());
+        writeDecimal(out, cartSession.getShippingCost());
+        writeDecimal(out, cartSession.getTaxAmount());
+        writeString(out, cartSession.getStatus());
+
+        List<CartItem> items = cartSession.getItems();
+        out.writeInt(items.size());
+        for (CartItem item : items) {
+            out.writeLong(item.getProductId() != null ? item.getProductId() : -1L);
+            writeString(out, item.getProductName());
+            writeString(out, item.getProductCode());
+            writeString(out, item.getDescription());
+            writeDecimal(out, item.getPrice());
+            out.writeInt(item.getQuantity());
+            writeString(out, item.getImage());
+            writeString(out, item.getCategory());
+            writeString(out, item.getBrand());
+            writeDateTime(out, item.getAddedAt());
+            out.writeBoolean(item.isAvailable());
+            out.writeInt(item.getStockAvailable());
+            writeString(out, item.getUnitMeasure());
+            writeDecimal(out, item.getTaxRate());
+            writeDecimal(out, item.getDiscountRate());
+            writeString(out, item.getNotes());
+        }
+    }
+
+    /**
+     * Leer una sesión de un flujo de datos
+     */
+    public static CartSession read(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Versión de formato de carrito no soportada: " + version);
+        }
+
+        CartSession cartSession = new CartSession();
+        cartSession.setSessionId(readString(in));
+        cartSession.setCreatedAt(readDateTime(in));
+        LocalDateTime updatedAt = readDateTime(in);
+        cartSession.setDiscountCode(readString(in));
+        cartSession.setDiscountAmount(readDecimal(in));
+        cartSession.setCustomerId(readString(in));
+        cartSession.setCustomerEmail(readString(in));
+        cartSession.setCustomerName(readString(in));
+        cartSession.setNotes(readString(in));
+        cartSession.setShippingAddress(readString(in));
+        cartSession.setBillingAddress(readString(in));
+        cartSession.setPaymentMethod(readString(in));
+        cartSession.setCurrency(readString(in));
+        cartSession.setShippingCost(readDecimal(in));
+        cartSession.setTaxAmount(readDecimal(in));
+        cartSession.setStatus(readString(in));
+
+        int itemCount = in.readInt();
+        List<CartItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            CartItem item = new CartItem();
+            long productId = in.readLong();
+            item.setProductId(productId >= 0 ? productId : null);
+            item.setProductName(readString(in));
+            item.setProductCode(readString(in));
+            item.setDescription(readString(in));
+            item.setPrice(readDecimal(in));
+            item.setQuantity(in.readInt());
+            item.setImage(readString(in));
+            item.setCategory(readString(in));
+            item.setBrand(readString(in));
+            item.setAddedAt(readDateTime(in));
+            item.setAvailable(in.readBoolean());
+            item.setStockAvailable(in.readInt());
+            item.setUnitMeasure(readString(in));
+            item.setTaxRate(readDecimal(in));
+            item.setDiscountRate(readDecimal(in));
+            item.setNotes(readString(in));
+            items.add(item);
+        }
+        cartSession.setItems(items);
+
+        // Restaurar la fecha de actualización al final: los setters anteriores no la modifican
+        cartSession.setUpdatedAt(updatedAt);
+        return cartSession;
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeDecimal(DataOutput out, BigDecimal value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            out.writeInt(value.scale());
+            out.writeShort(unscaled.length);
+            out.write(unscaled);
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readShort()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private static void writeDateTime(DataOutput out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readDateTime(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long epochSecond = in.readLong();
+        int nano = in.readInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,189 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartSession;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Snapshot de los carritos en memoria para despliegues sin pérdida de carritos.
+ * Al cerrar la aplicación (después de que el servidor web deja de aceptar peticiones)
+ * vuelca todas las sesiones a un archivo binario compacto; al arrancar, antes de aceptar
+ * tráfico, lo lee mapeado en memoria y restaura las sesiones vigentes.
+ * Solo aplica al almacén en memoria: los almacenes JDBC y de archivo ya son persistentes.
+ *
+ * Formato: cabecera [magic:int][versión:int][sesiones:int] seguida de registros
+ * [longitud:int][payload de CartSessionCodec].
+ */
+@Component
+@DependsOn("cartStatistics") // Su listener debe estar registrado antes de restaurar
+public class CartSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartSnapshotService.class);
+
+    private static final int MAGIC = 0x43534E50; // "CSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    // Tamaño máximo de cada ventana mapeada al leer el snapshot
+    private static final long MAX_WINDOW_BYTES = 256L * 1024 * 1024;
+
+    private final CartStore cartStore;
+    private final boolean enabled;
+    private final Path path;
+    private final long idleTimeoutMinutes;
+
+    public CartSnapshotService(CartStore cartStore,
+                               @Value("${app.cart.snapshot.enabled:true}") boolean enabled,
+                               @Value("${app.cart.snapshot.path:data/cart-snapshot.bin}") String path,
+                               @Value("${app.cart.idle-timeout-minutes:1440}") long idleTimeoutMinutes) {
+        this.cartStore = cartStore;
+        this.enabled = enabled && cartStore instanceof InMemoryCartStore;
+        this.path = Paths.get(path);
+        this.idleTimeoutMinutes = idleTimeoutMinutes;
+    }
+
+    /**
+     * Restaurar los carritos del último snapshot al arrancar
+     */
+    @PostConstruct
+    public void restoreOnStartup() {
+        if (!enabled || !Files.exists(path)) {
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            int restored = restore((InMemoryCartStore) cartStore);
+            logger.info("Snapshot de carritos restaurado: {} sesiones en {} ms",
+                restored, (System.nanoTime() - start) / 1_000_000);
+
+            // El snapshot se consume: si la aplicación cae sin cerrar, no se restauran carritos obsoletos
+            Files.deleteIfExists(path);
+
+        } catch (Exception e) {
+            logger.error("Error al restaurar el snapshot de carritos desde {}", path, e);
+        }
+    }
+
+    /**
+     * Volcar todos los carritos a disco al cerrar la aplicación
+     */
+    @PreDestroy
+    public void snapshotOnShutdown() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            int written = write(cartStore.sessions());
+            logger.info("Snapshot de carritos guardado: {} sesiones en {} ms",
+                written, (System.nanoTime() - start) / 1_000_000);
+
+        } catch (Exception e) {
+            logger.error("Error al guardar el snapshot de carritos en {}", path, e);
+        }
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private int write(Collection<CartSession> sessions) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        int written = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sessions.size());
+
+            for (CartSession cartSession : sessions) {
+                byte[] payload = CartSessionCodec.encode(cartSession);
+                out.writeInt(payload.length);
+                out.write(payload);
+                written++;
+            }
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    private int restore(InMemoryCartStore store) throws IOException {
+        LocalDateTime expiredBefore = LocalDateTime.now().minusMinutes(idleTimeoutMinutes);
+        int restored = 0;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                return 0;
+            }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                logger.warn("Snapshot de carritos con formato desconocido, se ignora: {}", path);
+                return 0;
+            }
+            int expected = header.getInt();
+
+            // Lectura por ventanas mapeadas; cada ventana empieza en el límite de un registro
+            long offset = HEADER_BYTES;
+            while (offset < size) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                    Math.min(size - offset, MAX_WINDOW_BYTES));
+                int consumed = 0;
+
+                while (window.remaining() >= Integer.BYTES) {
+                    int length = window.getInt(window.position());
+                    if (length <= 0 || length > window.remaining() - Integer.BYTES) {
+                        break;
+                    }
+                    window.position(window.position() + Integer.BYTES);
+                    byte[] payload = new byte[length];
+                    window.get(payload);
+                    consumed = window.position();
+
+                    CartSession cartSession = CartSessionCodec.decode(payload);
+                    if (cartSession.getUpdatedAt() == null || cartSession.getUpdatedAt().isAfter(expiredBefore)) {
+                        store.put(cartSession);
+                        restored++;
+                    }
+                }
+
+                if (consumed == 0) {
+                    // Registro truncado o corrupto: se descarta el resto del archivo
+                    break;
+                }
+                offset += consumed;
+            }
+
+            if (restored < expected) {
+                logger.info("Snapshot de carritos: {} de {} sesiones descartadas por expiración o truncamiento",
+                    expected - restored, expected);
+            }
+        }
+        return restored;
+    }
+}
@@ -0,0 +1,155 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartSession;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estadísticas globales de carritos mantenidas de forma incremental.
+ * Los contadores se actualizan en cada modificación de carrito (desde CartService, bajo el lock
+ * de la sesión) y en cada alta o baja del almacén, por lo que consultarlos es O(1).
+ * El valor total se acumula en centavos para evitar BigDecimal en el camino caliente.
+ *
+ * Sin locks globales: cada sesión guarda el aporte que ya sumó a los contadores, y las altas,
+ * bajas y modificaciones lo sustituyen con una operación atómica sobre la clave de esa sesión.
+ * Una modificación que llega después de la baja de la sesión no encuentra aporte y no cambia
+ * los contadores, así que no hay deriva que reconciliar.
+ */
+@Component
+public class CartStatistics implements CartStore.Listener {
+
+    private final CartStore cartStore;
+
+    private final LongAdder sessions = new LongAdder();
+    private final LongAdder activeSessions = new LongAdder();
+    private final LongAdder totalItems = new LongAdder();
+    private final LongAdder totalValueCents = new LongAdder();
+
+    // Aporte sumado a los contadores por cada sesión presente en el almacén
+    private final Map<String, Published> published = new ConcurrentHashMap<>();
+
+    public CartStatistics(CartStore cartStore) {
+        this.cartStore = cartStore;
+    }
+
+    /**
+     * Registrar el listener en el almacén y contar las sesiones que ya contenía
+     */
+    @PostConstruct
+    public void register() {
+        cartStore.addListener(this);
+        for (CartSession cartSession : cartStore.sessions()) {
+            onAdded(cartSession);
+        }
+    }
+
+    /**
+     * Aporte de una sesión a los contadores globales
+     */
+    public record Contribution(boolean active, int items, long valueCents) {
+
+        static final Contribution NONE = new Contribution(false, 0, 0);
+
+        public static Contribution of(CartSession cartSession) {
+            if (cartSession == null || cartSession.isEmpty()) {
+                return NONE;
+            }
+            return new Contribution(true, cartSession.getItemCount(), toCents(cartSession.getSubtotal()));
+        }
+    }
+
+    /**
+     * Registrar la modificación de una sesión: sustituye su aporte anterior por el actual.
+     * Se llama después de modificar el carrito, bajo el lock de la sesión
+     */
+    public void onModified(CartSession cartSession) {
+        published.computeIfPresent(cartSession.getSessionId(), (sessionId, current) -> {
+            if (current.cartSession != cartSession) {
+                return current;
+            }
+            Contribution contribution = Contribution.of(cartSession);
+            apply(current.contribution, -1);
+            apply(contribution, 1);
+            return new Published(cartSession, contribution);
+        });
+    }
+
+    @Override
+    public void onAdded(CartSession cartSession) {
+        published.compute(cartSession.getSessionId(), (sessionId, current) -> {
+            if (current != null && current.cartSession == cartSession) {
+                // Ya contada (alta notificada mientras se registraba el listener)
+                return current;
+            }
+            if (current != null) {
+                sessions.decrement();
+                apply(current.contribution, -1);
+            }
+            Contribution contribution = Contribution.of(cartSession);
+            sessions.increment();
+            apply(contribution, 1);
+            return new Published(cartSession, contribution);
+        });
+    }
+
+    @Override
+    public void onRemoved(CartSession cartSession, CartStore.RemovalCause cause) {
+        published.computeIfPresent(cartSession.getSessionId(), (sessionId, current) -> {
+            if (current.cartSession != cartSession) {
+                return current;
+            }
+            sessions.decrement();
+            apply(current.contribution, -1);
+            return null;
+        });
+    }
+
+    /**
+     * Instantánea de los contadores globales
+     */
+    public Map<String, Object> snapshot() {
+        long totalSessions = sessions.sum();
+        long active = activeSessions.sum();
+        long items = totalItems.sum();
+        BigDecimal totalValue = BigDecimal.valueOf(totalValueCents.sum(), 2);
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("totalSessions", totalSessions);
+        statistics.put("activeSessions", active);
+        statistics.put("totalItems", items);
+        statistics.put("totalValue", totalValue);
+        statistics.put("averageItemsPerSession", totalSessions > 0 ? (double) items / totalSessions : 0.0);
+        statistics.put("averageValuePerSession", totalSessions > 0
+            ? totalValue.divide(BigDecimal.valueOf(totalSessions), 2, RoundingMode.HALF_UP)
+            : BigDecimal.ZERO);
+        return statistics;
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private void apply(Contribution contribution, int sign) {
+        if (contribution.active()) {
+            activeSessions.add(sign);
+            totalItems.add((long) sign * contribution.items());
+            totalValueCents.add(sign * contribution.valueCents());
+        }
+    }
+
+    private static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private record Published(CartSession cartSession, Contribution contribution) {
+    }
+}
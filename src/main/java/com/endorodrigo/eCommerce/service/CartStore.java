@@ -0,0 +1,71 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartSession;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Almacén de sesiones de carrito.
+ * Implementaciones: en memoria (por defecto), JDBC con escritura diferida y archivo mapeado en memoria.
+ * Se selecciona con la propiedad app.cart.store (memory, jdbc, file)
+ */
+public interface CartStore {
+
+    /**
+     * Motivo por el que una sesión sale del almacén
+     */
+    enum RemovalCause {
+        EXPLICIT,   // eliminada por la aplicación
+        EXPIRED,    // superó el tiempo máximo de inactividad
+        EVICTED,    // desalojada por límite de capacidad
+        REPLACED    // sustituida por una versión más reciente leída de la persistencia
+    }
+
+    /**
+     * Obtener una sesión existente sin crearla. Retorna null si no existe
+     */
+    CartSession get(String sessionId);
+
+    /**
+     * Obtener la sesión o crearla si no existe
+     */
+    CartSession getOrCreate(String sessionId);
+
+    /**
+     * Notificar que la sesión fue modificada para que el almacén la recalcule o persista
+     */
+    void markModified(String sessionId);
+
+    /**
+     * Eliminar una sesión del almacén
+     */
+    void remove(String sessionId);
+
+    /**
+     * Expirar las sesiones inactivas. Retorna el número de sesiones removidas
+     */
+    int evictExpired();
+
+    int size();
+
+    Collection<CartSession> sessions();
+
+    Map<String, Object> getMetrics();
+
+    /**
+     * Registrar un listener que se notifica cuando una sesión entra o sale del almacén.
+     * Los listeners se notifican en orden de registro
+     */
+    void addListener(Listener listener);
+
+    /**
+     * Listener de altas y bajas de sesiones en el almacén
+     */
+    interface Listener {
+
+        void onAdded(CartSession cartSession);
+
+        void onRemoved(CartSession cartSession, RemovalCause cause);
+    }
+}
@@ -0,0 +1,46 @@
+package com.endorodrigo.eCommerce.service;
+
+/**
+ * Almacén de claves de idempotencia para peticiones que no deben repetirse
+ * (por ejemplo, el checkout reintentado por el cliente después de un timeout).
+ *
+ * Flujo: begin reserva la clave; si ya existía retorna su entrada y la petición no se procesa.
+ * Al terminar con éxito, complete guarda el resultado que recibirán los reintentos;
+ * si la petición falla, release libera la clave para permitir un nuevo intento.
+ * Las claves expiran después de app.idempotency.ttl-minutes.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Reservar una clave. Retorna null si quedó reservada para el llamador,
+     * o la entrada existente si otra petición ya la usó
+     */
+    Entry begin(String key);
+
+    /**
+     * Guardar el resultado de la petición que reservó la clave
+     */
+    void complete(String key, String outcome);
+
+    /**
+     * Liberar una clave reservada cuya petición no terminó
+     */
+    void release(String key);
+
+    /**
+     * Eliminar las claves expiradas
+     */
+    int purgeExpired();
+
+    String getType();
+
+    /**
+     * Entrada de una clave: outcome es null mientras la petición original sigue en proceso
+     */
+    record Entry(String outcome, long createdAtMillis) {
+
+        public boolean isCompleted() {
+            return outcome != null;
+        }
+    }
+}
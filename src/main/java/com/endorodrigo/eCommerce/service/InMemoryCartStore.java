@@ -0,0 +1,388 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Almacén en memoria de sesiones de carrito, acotado por número de sesiones,
+ * por presupuesto estimado de heap y por tiempo de inactividad.
+ * Las sesiones inactivas se expiran en segundo plano; cuando se supera algún límite
+ * se desaloja la sesión menos usada de una muestra tomada en una zona aleatoria del mapa (LRU aproximado).
+ * También sirve como caché local de los almacenes JDBC y de archivo.
+ *
+ * Los listeners se notifican fuera de las operaciones del mapa, bajo el monitor de la entrada:
+ * el alta de una entrada siempre se notifica antes que su baja, y una entrada eliminada antes
+ * de notificar su alta no se notifica.
+ */
+public class InMemoryCartStore implements CartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryCartStore.class);
+
+    // Estimación del tamaño en heap de una sesión vacía y de cada línea del carrito
+    static final long BASE_SESSION_BYTES = 512;
+    static final long BYTES_PER_ITEM = 320;
+
+    // Número de sesiones examinadas para elegir la víctima de desalojo
+    private static final int EVICTION_SAMPLE_SIZE = 16;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    private final int maxSessions;
+    private final long maxHeapBytes;
+    private final long idleTimeoutNanos;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public InMemoryCartStore(int maxSessions, long maxHeapBytes, long idleTimeoutMinutes) {
+        this.maxSessions = maxSessions;
+        this.maxHeapBytes = maxHeapBytes;
+        this.idleTimeoutNanos = TimeUnit.MINUTES.toNanos(idleTimeoutMinutes);
+    }
+
+    /**
+     * Obtener una sesión existente sin crearla. Retorna null si no existe o expiró
+     */
+    @Override
+    public CartSession get(String sessionId) {
+        Entry entry = entries.get(sessionId);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (entry.isIdle(now, idleTimeoutNanos)) {
+            if (removeEntry(sessionId, entry, RemovalCause.EXPIRED)) {
+                expirations.increment();
+            }
+            misses.increment();
+            return null;
+        }
+
+        entry.lastAccessNanos = now;
+        hits.increment();
+        return entry.session;
+    }
+
+    /**
+     * Consultar una sesión sin actualizar su último acceso ni las métricas
+     */
+    public CartSession peek(String sessionId) {
+        Entry entry = entries.get(sessionId);
+        return entry != null ? entry.session : null;
+    }
+
+    /**
+     * Obtener la sesión o crearla si no existe, aplicando los límites del almacén
+     */
+    @Override
+    public CartSession getOrCreate(String sessionId) {
+        CartSession existing = get(sessionId);
+        if (existing != null) {
+            return existing;
+        }
+
+        Entry entry = entries.computeIfAbsent(sessionId, id -> {
+            CartSession cartSession = new CartSession();
+            cartSession.setSessionId(id);
+            return newEntry(cartSession);
+        });
+        announce(entry);
+
+        enforceBounds(sessionId);
+        return entry.session;
+    }
+
+    /**
+     * Cargar una sesión existente (por ejemplo, leída de base de datos o de archivo)
+     */
+    public CartSession put(CartSession cartSession) {
+        Entry entry = entries.computeIfAbsent(cartSession.getSessionId(), id -> newEntry(cartSession));
+        announce(entry);
+        enforceBounds(cartSession.getSessionId());
+        return entry.session;
+    }
+
+    /**
+     * Sustituir la sesión en caché por otra copia (por ejemplo, una versión más reciente escrita por otro nodo)
+     */
+    public CartSession replace(CartSession cartSession) {
+        Entry current = entries.get(cartSession.getSessionId());
+        if (current != null) {
+            removeEntry(cartSession.getSessionId(), current, RemovalCause.REPLACED);
+        }
+        return put(cartSession);
+    }
+
+    /**
+     * Recalcular el peso estimado de una sesión después de modificar sus items
+     */
+    @Override
+    public void markModified(String sessionId) {
+        Entry entry = entries.get(sessionId);
+        if (entry == null) {
+            return;
+        }
+
+        long newWeight = weigh(entry.session);
+        long delta;
+        synchronized (entry) {
+            if (entry.removed) {
+                return;
+            }
+            delta = newWeight - entry.weight;
+            entry.weight = newWeight;
+        }
+        entry.lastAccessNanos = System.nanoTime();
+
+        if (delta != 0) {
+            estimatedBytes.addAndGet(delta);
+        }
+        if (delta > 0) {
+            enforceBounds(sessionId);
+        }
+    }
+
+    /**
+     * Eliminar una sesión del almacén
+     */
+    @Override
+    public void remove(String sessionId) {
+        Entry entry = entries.get(sessionId);
+        if (entry != null) {
+            removeEntry(sessionId, entry, RemovalCause.EXPLICIT);
+        }
+    }
+
+    /**
+     * Expirar las sesiones que superaron el tiempo máximo de inactividad
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${app.cart.sweep-interval-ms:60000}")
+    public int evictExpired() {
+        long now = System.nanoTime();
+        int removed = 0;
+
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue().isIdle(now, idleTimeoutNanos) && removeEntry(e.getKey(), e.getValue(), RemovalCause.EXPIRED)) {
+                expirations.increment();
+                removed++;
+            }
+        }
+
+        if (removed > 0) {
+            logger.info("Limpieza de sesiones de carrito: {} sesiones expiradas, {} activas", removed, entries.size());
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public Collection<CartSession> sessions() {
+        return entries.values().stream()
+            .map(entry -> entry.session)
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Métricas del almacén: tamaño, memoria estimada, aciertos/fallos y desalojos
+     */
+    @Override
+    public Map<String, Object> getMetrics() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+
+        Map<String, Object> metrics = new HashMap<>();
+        metrics.put("type", "memory");
+        metrics.put("size", entries.size());
+        metrics.put("maxSessions", maxSessions);
+        metrics.put("estimatedBytes", estimatedBytes.get());
+        metrics.put("maxHeapBytes", maxHeapBytes);
+        metrics.put("hits", hitCount);
+        metrics.put("misses", missCount);
+        metrics.put("hitRate", lookups > 0 ? (double) hitCount / lookups : 0.0);
+        metrics.put("evictions", evictions.sum());
+        metrics.put("expirations", expirations.sum());
+        return metrics;
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private Entry newEntry(CartSession cartSession) {
+        Entry created = new Entry(cartSession, System.nanoTime());
+        estimatedBytes.addAndGet(created.weight);
+        return created;
+    }
+
+    /**
+     * Notificar el alta de una entrada una sola vez, salvo que ya se haya eliminado
+     */
+    private void announce(Entry entry) {
+        synchronized (entry) {
+            if (entry.announced || entry.removed) {
+                return;
+            }
+            entry.announced = true;
+            for (Listener listener : listeners) {
+                listener.onAdded(entry.session);
+            }
+        }
+    }
+
+    private void enforceBounds(String protectedSessionId) {
+        while (entries.size() > maxSessions || estimatedBytes.get() > maxHeapBytes) {
+            String victim = selectVictim(protectedSessionId);
+            if (victim == null) {
+                return;
+            }
+            Entry entry = entries.get(victim);
+            if (entry != null && removeEntry(victim, entry, RemovalCause.EVICTED)) {
+                evictions.increment();
+                logger.debug("Sesión de carrito desalojada por límite de capacidad: {}", victim);
+            }
+        }
+    }
+
+    private String selectVictim(String protectedSessionId) {
+        // Partir el recorrido del mapa en mitades elegidas al azar hasta una zona del tamaño de la muestra,
+        // para no examinar siempre las mismas sesiones del principio de la tabla
+        Spliterator<Map.Entry<String, Entry>> region = entries.entrySet().spliterator();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (region.estimateSize() > EVICTION_SAMPLE_SIZE) {
+            Spliterator<Map.Entry<String, Entry>> prefix = region.trySplit();
+            if (prefix == null) {
+                break;
+            }
+            if (random.nextBoolean()) {
+                region = prefix;
+            }
+        }
+
+        Sample sample = new Sample(protectedSessionId);
+        while (sample.size < EVICTION_SAMPLE_SIZE && region.tryAdvance(sample)) {
+            // tryAdvance entrega cada candidata a la muestra
+        }
+        if (sample.victim == null) {
+            // Zona sin candidatas: recorrer desde el principio
+            Spliterator<Map.Entry<String, Entry>> all = entries.entrySet().spliterator();
+            while (sample.size < EVICTION_SAMPLE_SIZE && all.tryAdvance(sample)) {
+            }
+        }
+        return sample.victim;
+    }
+
+    private boolean removeEntry(String sessionId, Entry entry, RemovalCause cause) {
+        boolean[] removed = {false};
+        entries.computeIfPresent(sessionId, (id, current) -> {
+            if (current != entry) {
+                return current;
+            }
+            synchronized (entry) {
+                estimatedBytes.addAndGet(-entry.weight);
+                entry.weight = 0;
+                entry.removed = true;
+            }
+            removed[0] = true;
+            return null;
+        });
+        if (!removed[0]) {
+            return false;
+        }
+
+        // Notificar fuera del mapa; solo se notifica la baja de una entrada cuya alta ya se notificó
+        synchronized (entry) {
+            if (entry.announced) {
+                for (Listener listener : listeners) {
+                    try {
+                        listener.onRemoved(entry.session, cause);
+                    } catch (Exception e) {
+                        logger.error("Error en listener de remoción de sesión de carrito: {}", sessionId, e);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long weigh(CartSession cartSession) {
+        return BASE_SESSION_BYTES + BYTES_PER_ITEM * cartSession.getItemCount();
+    }
+
+    private static final class Entry {
+        private final CartSession session;
+        private volatile long lastAccessNanos;
+        private long weight;
+        private boolean removed;
+        private boolean announced;
+
+        private Entry(CartSession session, long now) {
+            this.session = session;
+            this.lastAccessNanos = now;
+            this.weight = weigh(session);
+        }
+
+        private boolean isIdle(long now, long idleTimeoutNanos) {
+            return now - lastAccessNanos > idleTimeoutNanos;
+        }
+    }
+
+    /**
+     * Muestra de candidatas a desalojo: conserva la de acceso más antiguo
+     */
+    private static final class Sample implements Consumer<Map.Entry<String, Entry>> {
+        private final String protectedSessionId;
+        private String victim;
+        private long oldestAccess;
+        private int size;
+
+        private Sample(String protectedSessionId) {
+            this.protectedSessionId = protectedSessionId;
+        }
+
+        @Override
+        public void accept(Map.Entry<String, Entry> candidate) {
+            if (candidate.getKey().equals(protectedSessionId)) {
+                return;
+            }
+            size++;
+            long lastAccess = candidate.getValue().lastAccessNanos;
+            if (victim == null || lastAccess - oldestAccess < 0) {
+                victim = candidate.getKey();
+                oldestAccess = lastAccess;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.endorodrigo.eCommerce.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Claves de idempotencia en memoria, válidas para un único nodo
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+
+    public InMemoryIdempotencyStore(long ttlMinutes) {
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    @Override
+    public Entry begin(String key) {
+        long now = System.currentTimeMillis();
+        Entry reserved = new Entry(null, now);
+        while (true) {
+            Entry existing = entries.putIfAbsent(key, reserved);
+            if (existing == null) {
+                return null;
+            }
+            if (!isExpired(existing, now)) {
+                return existing;
+            }
+            // Clave expirada pendiente de purga: se reemplaza si nadie la reemplazó antes
+            if (entries.replace(key, existing, reserved)) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void complete(String key, String outcome) {
+        entries.computeIfPresent(key, (k, entry) -> new Entry(outcome, entry.createdAtMillis()));
+    }
+
+    @Override
+    public void release(String key) {
+        entries.computeIfPresent(key, (k, entry) -> entry.isCompleted() ? entry : null);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.idempotency.sweep-interval-ms:60000}")
+    public int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int before = entries.size();
+        entries.values().removeIf(entry -> isExpired(entry, now));
+        return Math.max(0, before - entries.size());
+    }
+
+    @Override
+    public String getType() {
+        return "memory";
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.createdAtMillis() > ttlMillis;
+    }
+}
@@ -0,0 +1,60 @@
+package com.endorodrigo.eCommerce.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de contención de inventario por producto: descuentos condicionales rechazados
+ * por falta de stock y reintentos por conflicto de versión (bloqueo optimista).
+ * Permite identificar los productos más disputados durante ventas flash.
+ */
+@Component
+public class InventoryContention {
+
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    public void recordRejected(Long productId) {
+        counters(productId).rejected.increment();
+    }
+
+    public void recordOptimisticRetry(Long productId) {
+        counters(productId).optimisticRetries.increment();
+    }
+
+    /**
+     * Productos con más contención, de mayor a menor
+     */
+    public List<Map<String, Object>> hotProducts(int limit) {
+        List<Map<String, Object>> products = new ArrayList<>(counters.size());
+        counters.forEach((productId, counter) -> {
+            Map<String, Object> product = new HashMap<>();
+            product.put("productId", productId);
+            product.put("rejected", counter.rejected.sum());
+            product.put("optimisticRetries", counter.optimisticRetries.sum());
+            product.put("total", counter.rejected.sum() + counter.optimisticRetries.sum());
+            products.add(product);
+        });
+
+        products.sort(Comparator.comparingLong((Map<String, Object> product) -> (Long) product.get("total")).reversed());
+        return products.size() > limit ? new ArrayList<>(products.subList(0, limit)) : products;
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private Counters counters(Long productId) {
+        return counters.computeIfAbsent(productId, id -> new Counters());
+    }
+
+    private static final class Counters {
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder optimisticRetries = new LongAdder();
+    }
+}
@@ -3,10 +3,13 @@ package com.endorodrigo.eCommerce.service;
 
 import com.endorodrigo.eCommerce.model.Item;
 import com.endorodrigo.eCommerce.repository.IProductRepository;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
@@ -26,9 +29,17 @@ public class ItemService implements IGenericService<Item, Long> {
     private static final Logger logger = LoggerFactory.getLogger(ItemService.class);
 
     private final IProductRepository productRepository;
+    private final StockSnapshotCache stockSnapshotCache;
+    private final InventoryContention inventoryContention;
 
-    public ItemService(IProductRepository productRepository) {
+    // Intentos de actualización de stock ante conflictos de versión
+    private static final int MAX_STOCK_UPDATE_ATTEMPTS = 3;
+
+    public ItemService(IProductRepository productRepository, StockSnapshotCache stockSnapshotCache,
+                       InventoryContention inventoryContention) {
         this.productRepository = productRepository;
+        this.stockSnapshotCache = stockSnapshotCache;
+        this.inventoryContention = inventoryContention;
     }
 
     @Override
@@ -53,11 +64,25 @@ public class ItemService implements IGenericService<Item, Long> {
         return productRepository.findById(id);
     }
 
+    /**
+     * Busca varios productos en una sola consulta, indexados por ID
+     */
+    public Map<Long, Item> findAllById(Collection<Long> ids) {
+        Map<Long, Item> items = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return items;
+        }
+        for (Item item : productRepository.findAllById(ids)) {
+            items.put(item.getId(), item);
+        }
+        return items;
+    }
+
     /**
      * Guarda un producto (crear o actualizar)
      */
     public Item save(Item item) {
-        return productRepository.save(item);
+        return productRepository.save(requireVersion(item));
     }
 
     /**
@@ -142,15 +167,31 @@ public class ItemService implements IGenericService<Item, Long> {
      * Actualiza el stock de un producto
      */
     public void updateStock(Long productId, int quantity, String operation) {
-        Optional<Item> itemOpt = productRepository.findById(productId);
-        if (itemOpt.isPresent()) {
+        // Lectura-modificación-escritura con control de versión: ante un conflicto se relee y reintenta
+        for (int attempt = 1; ; attempt++) {
+            Optional<Item> itemOpt = productRepository.findById(productId);
+            if (itemOpt.isEmpty()) {
+                return;
+            }
+
             Item item = itemOpt.get();
             if ("add".equals(operation)) {
                 item.setQuantity(item.getQuantity() + quantity);
             } else if ("subtract".equals(operation)) {
                 item.setQuantity(Math.max(0, item.getQuantity() - quantity));
             }
-            productRepository.save(item);
+
+            try {
+                productRepository.save(item);
+                stockSnapshotCache.invalidate(productId);
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                inventoryContention.recordOptimisticRetry(productId);
+                if (attempt >= MAX_STOCK_UPDATE_ATTEMPTS) {
+                    throw e;
+                }
+                logger.debug("Conflicto de versión al actualizar stock del producto {}, reintento {}", productId, attempt);
+            }
         }
     }
 
@@ -201,7 +242,7 @@ public class ItemService implements IGenericService<Item, Long> {
      */
     public Item update(Item entity) {
         logger.info("Actualizando producto capa service: {}", entity);
-        return productRepository.save(entity);
+        return productRepository.save(requireVersion(entity));
     }
 
     @Override
@@ -212,4 +253,21 @@ public class ItemService implements IGenericService<Item, Long> {
     public void delete(Item entity) {
         if (entity != null) productRepository.delete(entity);
     }
+
+    /**
+     * Una actualización debe traer la versión que leyó el formulario: sin ella no se pueden
+     * detectar cambios concurrentes, así que se rechaza como conflicto en lugar de sobrescribir.
+     * La excepción son los productos anteriores a la columna version (versión nula en la base),
+     * cuyo formulario no puede traerla: se les asigna la versión inicial y se guardan sobre ella
+     */
+    private Item requireVersion(Item item) {
+        if (item.getId() != null && item.getVersion() == null) {
+            if (productRepository.initializeVersion(item.getId()) == 0) {
+                throw new ObjectOptimisticLockingFailureException(Item.class, item.getId());
+            }
+            logger.info("Versión inicial asignada al producto {}", item.getId());
+            item.setVersion(0L);
+        }
+        return item;
+    }
 }
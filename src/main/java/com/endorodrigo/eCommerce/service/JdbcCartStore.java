@@ -0,0 +1,191 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartSession;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Almacén de carritos en la base de datos (tabla cart_session) con escritura diferida.
+ * Las sesiones modificadas se escriben en lotes, lo que permite reiniciar o escalar
+ * horizontalmente sin perder carritos ni depender de afinidad de sesión.
+ *
+ * Cada fila lleva una versión que se incrementa en cada escritura. Las actualizaciones y
+ * borrados son condicionales a la versión leída por este nodo, y una lectura de caché se
+ * revalida contra la base de datos como máximo cada app.cart.jdbc.revalidate-interval-ms.
+ * Un conteo de filas distinto de 1 (incluido SUCCESS_NO_INFO) se trata como conflicto.
+ */
+public class JdbcCartStore extends WriteBehindCartStore {
+
+    private static final String SELECT_SQL =
+        "SELECT payload, version FROM cart_session WHERE session_id = ?";
+    private static final String SELECT_IF_NEWER_SQL =
+        "SELECT payload, version FROM cart_session WHERE session_id = ? AND version > ?";
+    private static final String INSERT_SQL =
+        "INSERT IGNORE INTO cart_session (session_id, payload, updated_at, version) VALUES (?, ?, ?, 1)";
+    private static final String UPDATE_SQL =
+        "UPDATE cart_session SET payload = ?, updated_at = ?, version = version + 1 " +
+        "WHERE session_id = ? AND version = ?";
+    private static final String DELETE_SQL =
+        "DELETE FROM cart_session WHERE session_id = ? AND version = ?";
+    private static final String DELETE_EXPIRED_SQL =
+        "DELETE FROM cart_session WHERE updated_at < ?";
+
+    private static final RowMapper<Stored> STORED_MAPPER = (rs, rowNum) ->
+        new Stored(CartSessionCodec.decode(rs.getBytes(1)), rs.getLong(2));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final long idleTimeoutMillis;
+    private final long revalidateNanos;
+
+    // Última versión persistida conocida por este nodo para cada sesión
+    private final Map<String, Known> known = new ConcurrentHashMap<>();
+
+    public JdbcCartStore(InMemoryCartStore cache, JdbcTemplate jdbcTemplate, int batchSize,
+                         long idleTimeoutMinutes, long revalidateIntervalMillis) {
+        super(cache);
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.idleTimeoutMillis = TimeUnit.MINUTES.toMillis(idleTimeoutMinutes);
+        this.revalidateNanos = TimeUnit.MILLISECONDS.toNanos(revalidateIntervalMillis);
+    }
+
+    @Override
+    protected CartSession load(String sessionId) {
+        List<Stored> rows = jdbcTemplate.query(SELECT_SQL, STORED_MAPPER, sessionId);
+        if (rows.isEmpty()) {
+            known.remove(sessionId);
+            return null;
+        }
+        Stored stored = rows.get(0);
+        remember(sessionId, stored.version, System.nanoTime());
+        return stored.session;
+    }
+
+    @Override
+    protected CartSession loadIfChanged(String sessionId) {
+        long now = System.nanoTime();
+        Known current = known.get(sessionId);
+        if (current != null && now - current.validatedAtNanos < revalidateNanos) {
+            return null;
+        }
+
+        long version = current != null ? current.version : 0;
+        List<Stored> rows = jdbcTemplate.query(SELECT_IF_NEWER_SQL, STORED_MAPPER, sessionId, version);
+        if (rows.isEmpty()) {
+            if (current != null) {
+                remember(sessionId, version, now);
+            }
+            return null;
+        }
+
+        Stored stored = rows.get(0);
+        remember(sessionId, stored.version, now);
+        return stored.session;
+    }
+
+    @Override
+    protected Collection<String> persist(Map<String, byte[]> payloads, Collection<String> deletedSessionIds) {
+        List<String> conflicted = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        List<Write> inserts = new ArrayList<>();
+        List<Write> updates = new ArrayList<>();
+        for (Map.Entry<String, byte[]> payload : payloads.entrySet()) {
+            Known current = known.get(payload.getKey());
+            Write write = new Write(payload.getKey(), payload.getValue(), current != null ? current.version : 0);
+            (current != null ? updates : inserts).add(write);
+        }
+
+        if (!inserts.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(INSERT_SQL, inserts, batchSize, (ps, write) -> {
+                ps.setString(1, write.sessionId);
+                ps.setBytes(2, write.payload);
+                ps.setLong(3, now);
+            });
+            collect(inserts, counts, conflicted);
+        }
+
+        if (!updates.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates, batchSize, (ps, write) -> {
+                ps.setBytes(1, write.payload);
+                ps.setLong(2, now);
+                ps.setString(3, write.sessionId);
+                ps.setLong(4, write.expectedVersion);
+            });
+            collect(updates, counts, conflicted);
+        }
+
+        // Solo se borran las filas que este nodo conoce y que nadie modificó después
+        List<Write> deletes = new ArrayList<>();
+        for (String sessionId : deletedSessionIds) {
+            Known current = known.remove(sessionId);
+            if (current != null) {
+                deletes.add(new Write(sessionId, null, current.version));
+            }
+        }
+        if (!deletes.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_SQL, deletes, batchSize, (ps, write) -> {
+                ps.setString(1, write.sessionId);
+                ps.setLong(2, write.expectedVersion);
+            });
+        }
+
+        return conflicted;
+    }
+
+    @Override
+    protected void purgeExpired() {
+        jdbcTemplate.update(DELETE_EXPIRED_SQL, System.currentTimeMillis() - idleTimeoutMillis);
+    }
+
+    @Override
+    protected void onEvicted(String sessionId) {
+        known.remove(sessionId);
+    }
+
+    @Override
+    protected String getType() {
+        return "jdbc";
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private void collect(List<Write> writes, int[][] counts, List<String> conflicted) {
+        long now = System.nanoTime();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                Write write = writes.get(index++);
+                if (count == 1) {
+                    remember(write.sessionId, write.expectedVersion + 1, now);
+                } else {
+                    conflicted.add(write.sessionId);
+                }
+            }
+        }
+    }
+
+    private void remember(String sessionId, long version, long validatedAtNanos) {
+        // La versión conocida solo avanza, aunque una lectura y un flush se crucen
+        known.merge(sessionId, new Known(version, validatedAtNanos),
+            (previous, next) -> next.version >= previous.version ? next : previous);
+    }
+
+    private record Known(long version, long validatedAtNanos) {
+    }
+
+    private record Stored(CartSession session, long version) {
+    }
+
+    private record Write(String sessionId, byte[] payload, long expectedVersion) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.endorodrigo.eCommerce.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Claves de idempotencia en la base de datos (tabla idempotency_key), compartidas entre nodos.
+ * La reserva es un INSERT sobre la clave primaria: solo una petición la obtiene.
+ */
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcIdempotencyStore.class);
+
+    private static final String INSERT_SQL =
+        "INSERT INTO idempotency_key (id_key, outcome, created_at) VALUES (?, NULL, ?)";
+    private static final String SELECT_SQL =
+        "SELECT outcome, created_at FROM idempotency_key WHERE id_key = ?";
+    private static final String COMPLETE_SQL =
+        "UPDATE idempotency_key SET outcome = ? WHERE id_key = ?";
+    private static final String RELEASE_SQL =
+        "DELETE FROM idempotency_key WHERE id_key = ? AND outcome IS NULL";
+    private static final String DELETE_EXPIRED_KEY_SQL =
+        "DELETE FROM idempotency_key WHERE id_key = ? AND created_at < ?";
+    private static final String DELETE_EXPIRED_SQL =
+        "DELETE FROM idempotency_key WHERE created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlMillis;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, long ttlMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+    @Override
+    public Entry begin(String key) {
+        long now = System.currentTimeMillis();
+        if (tryInsert(key, now)) {
+            return null;
+        }
+
+        // Clave expirada pendiente de purga: eliminarla y reintentar la reserva una vez
+        if (jdbcTemplate.update(DELETE_EXPIRED_KEY_SQL, key, now - ttlMillis) > 0 && tryInsert(key, now)) {
+            return null;
+        }
+
+        List<Entry> rows = jdbcTemplate.query(SELECT_SQL,
+            (rs, rowNum) -> new Entry(rs.getString(1), rs.getLong(2)), key);
+        // Si la fila desapareció entre el INSERT y la consulta, se trata como en proceso
+        return rows.isEmpty() ? new Entry(null, now) : rows.get(0);
+    }
+
+    @Override
+    public void complete(String key, String outcome) {
+        jdbcTemplate.update(COMPLETE_SQL, outcome, key);
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update(RELEASE_SQL, key);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.idempotency.sweep-interval-ms:60000}")
+    public int purgeExpired() {
+        try {
+            return jdbcTemplate.update(DELETE_EXPIRED_SQL, System.currentTimeMillis() - ttlMillis);
+        } catch (Exception e) {
+            logger.error("Error al purgar claves de idempotencia expiradas", e);
+            return 0;
+        }
+    }
+
+    @Override
+    public String getType() {
+        return "jdbc";
+    }
+
+    private boolean tryInsert(String key, long now) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, key, now);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Almacén de carritos en un archivo mapeado en memoria, para despliegues de un solo nodo.
+ * El archivo es un log de registros (alta/baja de sesión) que se reproduce al arrancar;
+ * cuando se llena se compacta conservando solo la última versión de cada sesión viva.
+ *
+ * Formato: cabecera [magic:int][reservado:int] seguida de registros
+ * [longitud:int][tipo:byte][sessionId:UTF][payload], terminados por una longitud 0.
+ */
+public class MappedFileCartStore extends WriteBehindCartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileCartStore.class);
+
+    private static final int MAGIC = 0x43415254; // "CART"
+    private static final int HEADER_BYTES = 8;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+
+    private final Path path;
+    private final int capacityBytes;
+    private final long idleTimeoutMillis;
+
+    // Acceso al archivo serializado por el monitor de la instancia (flush es synchronized)
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+
+    public MappedFileCartStore(InMemoryCartStore cache, Path path, int capacityBytes, long idleTimeoutMinutes) {
+        super(cache);
+        this.path = path;
+        this.capacityBytes = capacityBytes;
+        this.idleTimeoutMillis = TimeUnit.MINUTES.toMillis(idleTimeoutMinutes);
+
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            open(path);
+            restore();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el archivo de carritos: " + path, e);
+        }
+    }
+
+    @Override
+    protected CartSession load(String sessionId) {
+        // Todas las sesiones vigentes se cargan en memoria al arrancar
+        return null;
+    }
+
+    @Override
+    protected synchronized Collection<String> persist(Map<String, byte[]> payloads, Collection<String> deletedSessionIds) throws IOException {
+        List<byte[]> records = new ArrayList<>(payloads.size() + deletedSessionIds.size());
+        int required = 0;
+        for (Map.Entry<String, byte[]> payload : payloads.entrySet()) {
+            byte[] record = encodeRecord(RECORD_PUT, payload.getKey(), payload.getValue());
+            records.add(record);
+            required += Integer.BYTES + record.length;
+        }
+        for (String sessionId : deletedSessionIds) {
+            byte[] record = encodeRecord(RECORD_DELETE, sessionId, new byte[0]);
+            records.add(record);
+            required += Integer.BYTES + record.length;
+        }
+
+        if (position + required + Integer.BYTES > capacityBytes) {
+            compact(records);
+            return List.of();
+        }
+
+        for (byte[] record : records) {
+            appendRecord(record);
+        }
+        writeEndMarker();
+        buffer.force();
+        // Un solo nodo escribe el archivo: no hay conflictos de versión
+        return List.of();
+    }
+
+    @Override
+    protected synchronized void onShutdown() {
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Error al cerrar el archivo de carritos: {}", path, e);
+        }
+    }
+
+    @Override
+    protected String getType() {
+        return "file";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = super.getMetrics();
+        synchronized (this) {
+            metrics.put("fileBytesUsed", position);
+        }
+        metrics.put("fileCapacityBytes", capacityBytes);
+        return metrics;
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private void open(Path file) throws IOException {
+        this.channel = FileChannel.open(file,
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacityBytes);
+    }
+
+    private void restore() throws IOException {
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, 0);
+            position = HEADER_BYTES;
+            writeEndMarker();
+            buffer.force();
+            return;
+        }
+
+        Map<String, byte[]> live = readLiveRecords();
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis));
+        int restored = 0;
+        for (byte[] payload : live.values()) {
+            CartSession cartSession = CartSessionCodec.decode(payload);
+            if (cartSession.getUpdatedAt() == null || cartSession.getUpdatedAt().isAfter(cutoff)) {
+                cache.put(cartSession);
+                restored++;
+            }
+        }
+        logger.info("Carritos restaurados desde {}: {} de {} registros vivos", path, restored, live.size());
+    }
+
+    /**
+     * Recorrer el log y quedarse con la última versión de cada sesión viva
+     */
+    private Map<String, byte[]> readLiveRecords() throws IOException {
+        Map<String, byte[]> live = new LinkedHashMap<>();
+        int offset = HEADER_BYTES;
+
+        while (offset + Integer.BYTES < capacityBytes) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + Integer.BYTES + length > capacityBytes) {
+                break;
+            }
+
+            byte[] record = new byte[length];
+            buffer.get(offset + Integer.BYTES, record);
+
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+                byte type = in.readByte();
+                String sessionId = in.readUTF();
+                if (type == RECORD_PUT) {
+                    live.put(sessionId, in.readAllBytes());
+                } else {
+                    live.remove(sessionId);
+                }
+            }
+            offset += Integer.BYTES + length;
+        }
+
+        position = offset;
+        return live;
+    }
+
+    /**
+     * Reescribir el archivo con las sesiones vivas más el lote pendiente, en un archivo
+     * temporal que reemplaza al actual de forma atómica
+     */
+    private void compact(List<byte[]> pendingRecords) throws IOException {
+        Map<String, byte[]> live = readLiveRecords();
+        for (byte[] record : pendingRecords) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+                byte type = in.readByte();
+                String sessionId = in.readUTF();
+                if (type == RECORD_PUT) {
+                    live.put(sessionId, in.readAllBytes());
+                } else {
+                    live.remove(sessionId);
+                }
+            }
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minusNanos(TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis));
+        List<byte[]> records = new ArrayList<>(live.size());
+        long required = HEADER_BYTES + Integer.BYTES;
+        for (Map.Entry<String, byte[]> entry : live.entrySet()) {
+            LocalDateTime updatedAt = CartSessionCodec.decode(entry.getValue()).getUpdatedAt();
+            if (updatedAt != null && updatedAt.isBefore(cutoff)) {
+                continue;
+            }
+            byte[] record = encodeRecord(RECORD_PUT, entry.getKey(), entry.getValue());
+            records.add(record);
+            required += Integer.BYTES + record.length;
+        }
+
+        if (required > capacityBytes) {
+            throw new IOException("El archivo de carritos no tiene capacidad suficiente (" + capacityBytes + " bytes)");
+        }
+
+        Path tempPath = path.resolveSibling(path.getFileName() + ".compact");
+        Files.deleteIfExists(tempPath);
+
+        buffer.force();
+        channel.close();
+        open(tempPath);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, 0);
+        position = HEADER_BYTES;
+        for (byte[] record : records) {
+            appendRecord(record);
+        }
+        writeEndMarker();
+        buffer.force();
+        channel.close();
+
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        int compactedPosition = position;
+        open(path);
+        position = compactedPosition;
+
+        logger.info("Archivo de carritos compactado: {} sesiones, {} bytes", records.size(), position);
+    }
+
+    private static byte[] encodeRecord(byte type, String sessionId, byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeUTF(sessionId);
+            out.write(payload);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void appendRecord(byte[] record) {
+        buffer.putInt(position, record.length);
+        buffer.put(position + Integer.BYTES, record);
+        position += Integer.BYTES + record.length;
+    }
+
+    private void writeEndMarker() {
+        if (position + Integer.BYTES <= capacityBytes) {
+            buffer.putInt(position, 0);
+        }
+    }
+}
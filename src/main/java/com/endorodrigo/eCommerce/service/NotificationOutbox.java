@@ -0,0 +1,139 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outbox transaccional de notificaciones (tabla notification_outbox).
+ * enqueue se llama dentro de la transacción que cambia la orden: la notificación queda
+ * registrada si y solo si el cambio se confirma. OutboxDispatcher la entrega después,
+ * fuera del camino de la petición.
+ *
+ * Los lotes se reclaman con un token y un plazo (claimed_until), de modo que varios nodos
+ * pueden despachar sin entregar dos veces el mismo evento ni bloquear filas. Las confirmaciones
+ * y los reintentos solo cambian filas que siguen reclamadas con el mismo token: si el plazo venció
+ * y otro nodo reclamó el evento, el resultado del primer envío no pisa ese reclamo.
+ */
+@Component
+public class NotificationOutbox {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+
+    private static final String INSERT_SQL =
+        "INSERT INTO notification_outbox (event_type, aggregate_id, payload, status, attempts, next_attempt_at, created_at) " +
+        "VALUES (?, ?, ?, 'PENDING', 0, ?, ?)";
+    private static final String CLAIM_SQL =
+        "UPDATE notification_outbox SET claim_token = ?, claimed_until = ? " +
+        "WHERE status = 'PENDING' AND next_attempt_at <= ? AND claimed_until < ? ORDER BY id LIMIT ?";
+    private static final String SELECT_CLAIMED_SQL =
+        "SELECT id, event_type, aggregate_id, payload, attempts FROM notification_outbox WHERE claim_token = ? ORDER BY id";
+    private static final String MARK_SENT_SQL =
+        "UPDATE notification_outbox SET status = 'SENT', attempts = attempts + 1, claim_token = NULL, claimed_until = 0 " +
+        "WHERE id = ? AND claim_token = ?";
+    private static final String MARK_RETRY_SQL =
+        "UPDATE notification_outbox SET status = ?, attempts = ?, next_attempt_at = ?, last_error = ?, " +
+        "claim_token = NULL, claimed_until = 0 WHERE id = ? AND claim_token = ?";
+    private static final String PURGE_SENT_SQL =
+        "DELETE FROM notification_outbox WHERE status = 'SENT' AND created_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public NotificationOutbox(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Evento pendiente de entrega, con el token del reclamo que lo entregó al despachador
+     */
+    public record Event(long id, String type, String aggregateId, Map<String, Object> payload, int attempts,
+                        String claimToken) {
+    }
+
+    /**
+     * Registrar un evento en la transacción en curso
+     */
+    public void enqueue(String type, String aggregateId, Map<String, Object> payload) {
+        long now = System.currentTimeMillis();
+        jdbcTemplate.update(INSERT_SQL, type, aggregateId, toJson(payload), now, now);
+    }
+
+    /**
+     * Reclamar hasta {@code limit} eventos vencidos durante {@code leaseMillis}
+     */
+    public List<Event> claim(int limit, long leaseMillis) {
+        String token = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        if (jdbcTemplate.update(CLAIM_SQL, token, now + leaseMillis, now, now, limit) == 0) {
+            return List.of();
+        }
+        return jdbcTemplate.query(SELECT_CLAIMED_SQL, (rs, rowNum) -> new Event(
+            rs.getLong(1), rs.getString(2), rs.getString(3), fromJson(rs.getString(4)), rs.getInt(5), token), token);
+    }
+
+    /**
+     * Confirmar los eventos enviados que siguen reclamados con su token.
+     * Retorna cuántos no se confirmaron porque su reclamo ya no es de este despachador
+     */
+    public int markSent(List<Event> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(MARK_SENT_SQL, events, events.size(), (ps, event) -> {
+            ps.setLong(1, event.id());
+            ps.setString(2, event.claimToken());
+        });
+        int lost = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == 0) {
+                    lost++;
+                }
+            }
+        }
+        return lost;
+    }
+
+    /**
+     * Programar un nuevo intento, o marcar el evento como fallido si no quedan intentos.
+     * Retorna false si el reclamo del evento ya no es de este despachador
+     */
+    public boolean markFailed(Event event, String error, long nextAttemptAt, boolean exhausted) {
+        String message = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        return jdbcTemplate.update(MARK_RETRY_SQL, exhausted ? FAILED : PENDING, event.attempts() + 1,
+            nextAttemptAt, message, event.id(), event.claimToken()) > 0;
+    }
+
+    public int purgeSent(long olderThanMillis) {
+        return jdbcTemplate.update(PURGE_SENT_SQL, olderThanMillis);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Payload de notificación no serializable", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> fromJson(String payload) {
+        try {
+            return objectMapper.readValue(payload, Map.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Payload de notificación ilegible", e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.endorodrigo.eCommerce.service;
 
 
+import com.endorodrigo.eCommerce.model.Customer;
 import com.endorodrigo.eCommerce.model.Item;
 import com.endorodrigo.eCommerce.model.User;
 import org.slf4j.Logger;
@@ -183,31 +184,27 @@ public class NotificationService {
     }
 
     /**
-     * Enviar notificación de venta realizada
+     * Enviar notificación de venta realizada.
+     * El cliente no tiene dirección de email registrada: se incluye en el aviso a los administradores
      */
     @Async
-    public CompletableFuture<Void> sendSaleNotification(User customer, Map<String, Object> saleData) {
+    public CompletableFuture<Void> sendSaleNotification(Customer customer, Map<String, Object> saleData) {
         if (!notificationsEnabled) {
             return CompletableFuture.completedFuture(null);
         }
 
         try {
-            // Email de confirmación al cliente
-            if (emailEnabled) {
-                sendSaleConfirmationEmail(customer, saleData);
-            }
-
             // Notificar a administradores sobre venta importante
             if (saleData.get("total") != null && 
                 Double.parseDouble(saleData.get("total").toString()) > 1000) {
                 
                 List<User> admins = getUserService().findByRole("ADMIN");
                 for (User admin : admins) {
-                    sendHighValueSaleNotification(admin, saleData);
+                    sendHighValueSaleNotification(admin, customer, saleData);
                 }
             }
 
-            logger.info("Notificaciones de venta enviadas para cliente: {}", customer.getEmail());
+            logger.info("Notificaciones de venta enviadas para orden: {}", saleData.get("orderNumber"));
             return CompletableFuture.completedFuture(null);
 
         } catch (Exception e) {
@@ -381,28 +378,13 @@ public class NotificationService {
         );
     }
 
-    /**
-     * Enviar email de confirmación de venta
-     */
-    private void sendSaleConfirmationEmail(User customer, Map<String, Object> saleData) {
-        Context context = new Context();
-        context.setVariable("customer", customer);
-        context.setVariable("saleData", saleData);
-
-        sendHtmlEmail(
-            customer.getEmail(),
-            "Confirmación de Venta - eCommerce",
-            "emails/sale-confirmation",
-            context
-        );
-    }
-
     /**
      * Enviar email de venta de alto valor
      */
-    private void sendHighValueSaleNotification(User admin, Map<String, Object> saleData) {
+    private void sendHighValueSaleNotification(User admin, Customer customer, Map<String, Object> saleData) {
         Context context = new Context();
         context.setVariable("admin", admin);
+        context.setVariable("customer", customer);
         context.setVariable("saleData", saleData);
 
         sendHtmlEmail(
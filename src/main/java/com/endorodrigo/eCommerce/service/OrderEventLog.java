@@ -0,0 +1,489 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.OrderEvent;
+import com.endorodrigo.eCommerce.model.OrderStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Registro de auditoría de órdenes, solo de anexado, en archivos de segmento.
+ * Un único hilo escritor agrupa los eventos pendientes y hace un solo fsync por lote
+ * (group commit): la escritura es secuencial y el coste de sincronización se reparte
+ * entre todos los eventos que llegaron mientras se sincronizaba el lote anterior.
+ *
+ * La base de datos sigue siendo la fuente de verdad del estado de las órdenes; el registro
+ * aporta la traza completa de cambios. Al arrancar solo se recorre el segmento activo para
+ * descartar un registro final incompleto y continuar la secuencia, por lo que el tiempo de
+ * recuperación está acotado por el tamaño de segmento.
+ *
+ * Los eventos se anexan después de confirmar la transacción del cambio, sin esperar al fsync:
+ * el registro nunca contiene cambios que no se confirmaron y la transacción no retiene sus locks
+ * mientras se sincroniza el disco. Una caída entre el commit y la sincronización puede perder
+ * los últimos eventos; {@link #reconcile} completa el historial con el estado vigente en base
+ * de datos.
+ *
+ * El registro es local a cada nodo: con varios nodos el historial solo contiene los eventos de
+ * los cambios hechos en el nodo que atiende la consulta (más el estado vigente reconciliado).
+ *
+ * Un índice en memoria orden → posiciones de sus registros evita recorrer los segmentos al
+ * consultar el historial. Los segmentos anteriores al arranque se indexan en segundo plano;
+ * mientras tanto el historial recorre los segmentos.
+ *
+ * Formato de registro: [longitud:int][crc32:int][payload].
+ */
+@Component
+public class OrderEventLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderEventLog.class);
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_BATCH = 1024;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentBytes;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    // Posiciones de los registros de cada orden; completo cuando indexed es true
+    private final Map<String, List<Location>> index = new ConcurrentHashMap<>();
+    private volatile boolean indexed;
+    private volatile boolean running;
+    private Thread writer;
+
+    // Estado del segmento activo, solo accedido por el hilo escritor (y al arrancar/cerrar)
+    private FileChannel segment;
+    private long segmentFirstSequence;
+    private long segmentSize;
+    private long nextSequence = 1;
+
+    public OrderEventLog(@Value("${app.orders.event-log.enabled:true}") boolean enabled,
+                         @Value("${app.orders.event-log.dir:data/order-events}") String directory,
+                         @Value("${app.orders.event-log.segment-bytes:67108864}") long segmentBytes) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Recuperar el segmento activo y arrancar el hilo escritor
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = segments();
+            if (segments.isEmpty()) {
+                openSegment(nextSequence);
+            } else {
+                recover(segments.get(segments.size() - 1));
+            }
+
+            // Lo escrito hasta ahora se indexa en segundo plano; lo nuevo lo indexa el escritor
+            long activeSegment = segmentFirstSequence;
+            long activeSize = segmentSize;
+            Thread indexer = new Thread(() -> buildIndex(activeSegment, activeSize), "order-event-log-index");
+            indexer.setDaemon(true);
+            indexer.start();
+
+            running = true;
+            writer = new Thread(this::writeLoop, "order-event-log");
+            writer.setDaemon(true);
+            writer.start();
+            logger.info("Registro de eventos de órdenes en {} (siguiente secuencia {})", directory, nextSequence);
+
+        } catch (Exception e) {
+            logger.error("Error al abrir el registro de eventos de órdenes en {}, queda deshabilitado", directory, e);
+        }
+    }
+
+    /**
+     * Detener el escritor después de sincronizar los eventos pendientes
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            if (segment != null) {
+                segment.force(false);
+                segment.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Error al cerrar el registro de eventos de órdenes", e);
+        }
+    }
+
+    /**
+     * Anexar un evento. El futuro se completa cuando el lote que lo contiene está sincronizado en disco
+     */
+    public CompletableFuture<Void> append(String orderNumber, OrderStatus previousStatus,
+                                          OrderStatus status, String trackingNumber) {
+        if (!running) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Pending pending = new Pending(LocalDateTime.now(), orderNumber, previousStatus, status, trackingNumber);
+        queue.add(pending);
+        return pending.done;
+    }
+
+    /**
+     * Recorrer todos los eventos registrados en orden de secuencia
+     */
+    public void replay(Consumer<OrderEvent> consumer) throws IOException {
+        if (!enabled || !Files.isDirectory(directory)) {
+            return;
+        }
+        for (Path path : segments()) {
+            readSegment(path, Long.MAX_VALUE, (event, offset) -> consumer.accept(event));
+        }
+    }
+
+    /**
+     * Historial de eventos de una orden en orden de secuencia. Lee solo los registros de la orden
+     * desde el índice; mientras el índice se construye recorre todos los segmentos
+     */
+    public List<OrderEvent> history(String orderNumber) throws IOException {
+        List<OrderEvent> events = new ArrayList<>();
+        if (!indexed) {
+            replay(event -> {
+                if (event.orderNumber().equals(orderNumber)) {
+                    events.add(event);
+                }
+            });
+            return events;
+        }
+
+        List<Location> locations = index.get(orderNumber);
+        if (locations == null) {
+            return events;
+        }
+        List<Location> snapshot;
+        synchronized (locations) {
+            snapshot = new ArrayList<>(locations);
+        }
+
+        Map<Long, FileChannel> channels = new HashMap<>();
+        try {
+            for (Location location : snapshot) {
+                FileChannel channel = channels.get(location.segment());
+                if (channel == null) {
+                    channel = FileChannel.open(segmentPath(location.segment()), StandardOpenOption.READ);
+                    channels.put(location.segment(), channel);
+                }
+                OrderEvent event = readRecord(channel, location.offset());
+                if (event != null) {
+                    events.add(event);
+                }
+            }
+        } finally {
+            for (FileChannel channel : channels.values()) {
+                channel.close();
+            }
+        }
+        events.sort(Comparator.comparingLong(OrderEvent::sequence));
+        return events;
+    }
+
+    /**
+     * Completar el historial registrado con el estado vigente de la orden en base de datos.
+     * Si el último evento no refleja ese estado (eventos perdidos en una caída o cambios hechos
+     * en otro nodo) se agrega un evento con secuencia 0, que no proviene del registro
+     */
+    public static List<OrderEvent> reconcile(List<OrderEvent> logged, String orderNumber, OrderStatus status,
+                                             String trackingNumber, LocalDateTime updatedAt) {
+        OrderEvent last = logged.isEmpty() ? null : logged.get(logged.size() - 1);
+        if (status == null || (last != null && last.status() == status
+                && Objects.equals(last.trackingNumber(), trackingNumber))) {
+            return logged;
+        }
+        List<OrderEvent> events = new ArrayList<>(logged);
+        events.add(new OrderEvent(0, updatedAt, orderNumber, last != null ? last.status() : null, status, trackingNumber));
+        return events;
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+
+                for (Pending pending : batch) {
+                    write(pending);
+                }
+                segment.force(false);
+                for (Pending pending : batch) {
+                    pending.done.complete(null);
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Error al escribir {} eventos de órdenes", batch.size(), e);
+                for (Pending pending : batch) {
+                    pending.done.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(Pending pending) throws IOException {
+        OrderEvent event = new OrderEvent(nextSequence, pending.occurredAt, pending.orderNumber,
+            pending.previousStatus, pending.status, pending.trackingNumber);
+        byte[] payload = encode(event);
+
+        if (segmentSize > 0 && segmentSize + RECORD_HEADER_BYTES + payload.length > segmentBytes) {
+            segment.force(false);
+            segment.close();
+            openSegment(event.sequence());
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+
+        addToIndex(event.orderNumber(), new Location(segmentFirstSequence, segmentSize));
+        segmentSize += RECORD_HEADER_BYTES + payload.length;
+        nextSequence++;
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        segment = FileChannel.open(segmentPath(firstSequence),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentFirstSequence = firstSequence;
+        segmentSize = segment.size();
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Indexar los registros escritos antes del arranque (el segmento activo hasta su tamaño al arrancar)
+     */
+    private void buildIndex(long activeSegment, long activeSize) {
+        long start = System.nanoTime();
+        try {
+            for (Path path : segments()) {
+                long first = firstSequence(path);
+                if (first > activeSegment) {
+                    break;
+                }
+                long limit = first == activeSegment ? activeSize : Long.MAX_VALUE;
+                readSegment(path, limit, (event, offset) -> addToIndex(event.orderNumber(), new Location(first, offset)));
+            }
+            indexed = true;
+            logger.info("Registro de eventos indexado: {} órdenes en {} ms",
+                index.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Error al indexar el registro de eventos, el historial recorrerá los segmentos", e);
+        }
+    }
+
+    private void addToIndex(String orderNumber, Location location) {
+        List<Location> locations = index.computeIfAbsent(orderNumber, key -> new ArrayList<>(4));
+        synchronized (locations) {
+            locations.add(location);
+        }
+    }
+
+    private void recover(Path path) throws IOException {
+        long[] last = {0};
+        long validBytes = readSegment(path, Long.MAX_VALUE, (event, offset) -> last[0] = event.sequence());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            if (channel.size() > validBytes) {
+                // Registro final incompleto por una caída durante la escritura
+                logger.warn("Segmento {} truncado de {} a {} bytes", path.getFileName(), channel.size(), validBytes);
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+        }
+
+        if (last[0] > 0) {
+            nextSequence = last[0] + 1;
+        } else {
+            nextSequence = firstSequence(path);
+        }
+        openSegment(firstSequence(path));
+    }
+
+    /**
+     * Leer los registros válidos de un segmento hasta limit bytes; retorna los bytes hasta el último registro íntegro
+     */
+    private long readSegment(Path path, long limit, RecordVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = Math.min(channel.size(), limit);
+            long offset = 0;
+
+            while (offset + RECORD_HEADER_BYTES <= size) {
+                byte[] payload = readPayload(channel, offset, size);
+                if (payload == null) {
+                    break;
+                }
+                visitor.visit(decode(payload), offset);
+                offset += RECORD_HEADER_BYTES + payload.length;
+            }
+            return offset;
+        }
+    }
+
+    private OrderEvent readRecord(FileChannel channel, long offset) throws IOException {
+        byte[] payload = readPayload(channel, offset, channel.size());
+        return payload != null ? decode(payload) : null;
+    }
+
+    /**
+     * Payload del registro en offset, o null si está incompleto o no pasa el CRC
+     */
+    private static byte[] readPayload(FileChannel channel, long offset, long size) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        channel.read(header, offset);
+        header.flip();
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (length <= 0 || offset + RECORD_HEADER_BYTES + length > size) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        channel.read(payload, offset + RECORD_HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        return (int) crc.getValue() == checksum ? payload.array() : null;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                .filter(path -> {
+                    String name = path.getFileName().toString();
+                    return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                })
+                .sorted()
+                .toList();
+        }
+    }
+
+    private static long firstSequence(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static byte[] encode(OrderEvent event) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(event.sequence());
+            out.writeUTF(event.occurredAt().toString());
+            out.writeUTF(event.orderNumber());
+            out.writeByte(event.previousStatus() != null ? event.previousStatus().ordinal() : -1);
+            out.writeByte(event.status().ordinal());
+            out.writeBoolean(event.trackingNumber() != null);
+            if (event.trackingNumber() != null) {
+                out.writeUTF(event.trackingNumber());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static OrderEvent decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            long sequence = in.readLong();
+            LocalDateTime occurredAt = LocalDateTime.parse(in.readUTF());
+            String orderNumber = in.readUTF();
+            int previous = in.readByte();
+            OrderStatus status = OrderStatus.values()[in.readByte()];
+            String trackingNumber = in.readBoolean() ? in.readUTF() : null;
+            return new OrderEvent(sequence, occurredAt, orderNumber,
+                previous >= 0 ? OrderStatus.values()[previous] : null, status, trackingNumber);
+        } catch (IOException e) {
+            throw new IllegalStateException("Evento de orden ilegible", e);
+        }
+    }
+
+    private interface RecordVisitor {
+        void visit(OrderEvent event, long offset);
+    }
+
+    /**
+     * Posición de un registro: segmento (por su primera secuencia) y desplazamiento
+     */
+    private record Location(long segment, long offset) {
+    }
+
+    private static final class Pending {
+        private final LocalDateTime occurredAt;
+        private final String orderNumber;
+        private final OrderStatus previousStatus;
+        private final OrderStatus status;
+        private final String trackingNumber;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Pending(LocalDateTime occurredAt, String orderNumber, OrderStatus previousStatus,
+                        OrderStatus status, String trackingNumber) {
+            this.occurredAt = occurredAt;
+            this.orderNumber = orderNumber;
+            this.previousStatus = previousStatus;
+            this.status = status;
+            this.trackingNumber = trackingNumber;
+        }
+    }
+}
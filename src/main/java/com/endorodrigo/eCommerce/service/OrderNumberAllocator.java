@@ -0,0 +1,180 @@
+package com.endorodrigo.eCommerce.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Asignador de números de orden con secuencia diaria monótona: ORD-yyyyMMdd-NNNNNN.
+ * Cada nodo reserva bloques de números avanzando una marca de agua persistida por día
+ * (tabla order_number_block), y los entrega desde memoria sin bloqueos ni consultas por orden.
+ * Los números no usados de un bloque (por reinicio del nodo o cambio de día) quedan como
+ * huecos, nunca como duplicados.
+ *
+ * El bloque siguiente se reserva en un hilo propio cuando se consume la mitad del actual, así
+ * que next() normalmente no accede a la base de datos. Si el bloque se agota antes (ráfagas o
+ * primer número del día) la reserva es síncrona y usa su propia transacción: quien llame a
+ * next() no debe tener una conexión abierta, o una ráfaga de recargas con el pool lleno puede
+ * dejar todas las peticiones esperando una segunda conexión (SalesService asigna el número
+ * antes de abrir la transacción de la orden).
+ */
+@Component
+public class OrderNumberAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderNumberAllocator.class);
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final String UPDATE_HIGH_WATER =
+        "UPDATE order_number_block SET high_water = high_water + ? WHERE day = ?";
+    private static final String INSERT_HIGH_WATER =
+        "INSERT INTO order_number_block (day, high_water) VALUES (?, ?)";
+    private static final String SELECT_HIGH_WATER =
+        "SELECT high_water FROM order_number_block WHERE day = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+
+    private final AtomicReference<Block> current = new AtomicReference<>(Block.EMPTY);
+
+    // Bloque reservado por adelantado, y si hay una reserva en curso
+    private final AtomicReference<Block> prefetched = new AtomicReference<>();
+    private final AtomicBoolean prefetching = new AtomicBoolean();
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-number-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public OrderNumberAllocator(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${app.orders.number-block-size:100}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionTemplate.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Siguiente número de orden del día
+     */
+    public String next() {
+        String day = LocalDate.now().format(DAY_FORMAT);
+
+        while (true) {
+            Block block = current.get();
+            if (block.day.equals(day)) {
+                long sequence = block.next.getAndIncrement();
+                if (sequence <= block.last) {
+                    if (sequence == block.prefetchAt) {
+                        prefetch(day);
+                    }
+                    return String.format("ORD-%s-%06d", day, sequence);
+                }
+            }
+            refill(block, day);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetcher.shutdownNow();
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private synchronized void refill(Block exhausted, String day) {
+        // Otro hilo ya reservó un bloque nuevo mientras se esperaba el monitor
+        if (current.get() != exhausted) {
+            return;
+        }
+
+        // Usar el bloque reservado por adelantado si es del mismo día y posterior al agotado
+        Block next = prefetched.getAndSet(null);
+        if (next == null || !next.day.equals(day) || (exhausted.day.equals(day) && next.first <= exhausted.last)) {
+            next = reserveBlock(day);
+        }
+        current.set(next);
+    }
+
+    private void prefetch(String day) {
+        if (!prefetching.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            prefetcher.execute(() -> {
+                try {
+                    prefetched.set(reserveBlock(day));
+                } catch (Exception e) {
+                    // El bloque se reservará de forma síncrona al agotarse el actual
+                    logger.warn("No se pudo reservar por adelantado un bloque de números de orden para {}", day, e);
+                } finally {
+                    prefetching.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            prefetching.set(false);
+        }
+    }
+
+    private Block reserveBlock(String day) {
+        long highWater = reserve(day);
+        logger.debug("Bloque de números de orden reservado para {}: {}-{}", day, highWater - blockSize + 1, highWater);
+        return new Block(day, highWater - blockSize + 1, highWater);
+    }
+
+    private long reserve(String day) {
+        Long highWater = transactionTemplate.execute(status -> {
+            if (jdbcTemplate.update(UPDATE_HIGH_WATER, blockSize, day) == 0) {
+                try {
+                    jdbcTemplate.update(INSERT_HIGH_WATER, day, blockSize);
+                } catch (DuplicateKeyException e) {
+                    // Otro nodo creó la fila del día al mismo tiempo
+                    jdbcTemplate.update(UPDATE_HIGH_WATER, blockSize, day);
+                }
+            }
+            return jdbcTemplate.queryForObject(SELECT_HIGH_WATER, Long.class, day);
+        });
+
+        if (highWater == null) {
+            throw new IllegalStateException("No se pudo reservar un bloque de números de orden para " + day);
+        }
+        return highWater;
+    }
+
+    private static final class Block {
+        private static final Block EMPTY = new Block("", 1, 0);
+
+        private final String day;
+        private final long first;
+        private final AtomicLong next;
+        private final long last;
+        // Número cuya entrega dispara la reserva del bloque siguiente
+        private final long prefetchAt;
+
+        private Block(String day, long first, long last) {
+            this.day = day;
+            this.first = first;
+            this.next = new AtomicLong(first);
+            this.last = last;
+            this.prefetchAt = first + (last - first) / 2;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.Order;
+import com.endorodrigo.eCommerce.model.OrderCursor;
+import com.endorodrigo.eCommerce.model.OrderRecord;
+import com.endorodrigo.eCommerce.model.OrderStatus;
+import com.endorodrigo.eCommerce.repository.IOrderRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Vista en memoria de las órdenes recientes como registros inmutables (OrderRecord).
+ * Se precarga desde base de datos al arrancar con las órdenes desde el inicio del día de hace
+ * app.orders.store.warm-days días (0 = todas) y se mantiene al día con cada cambio confirmado.
+ *
+ * Los cambios confirmados por otros nodos se incorporan consultando cada
+ * app.orders.store.refresh-interval-ms las órdenes con updated_at posterior a la última marca
+ * de agua. La consulta se solapa app.orders.store.refresh-lag-ms con la anterior para cubrir
+ * transacciones que confirman tarde y desfases de reloj entre nodos; publicar de nuevo una
+ * orden ya vista no tiene efecto, por lo que el solapamiento no duplica cambios.
+ *
+ * La ventana avanza cada app.orders.store.trim-interval-ms hasta el inicio del día de hace
+ * warm-days días: las órdenes que quedan fuera se descartan de la vista y de sus índices, y las
+ * consultas sobre ellas pasan a la base de datos.
+ *
+ * Índices secundarios mantenidos en cada publicación: estado → órdenes, cliente → órdenes
+ * y un índice navegable por fecha de creación. Todos ordenan de la más reciente a la más
+ * antigua, por lo que las consultas no copian ni ordenan el conjunto completo.
+ * Las escrituras se serializan; las lecturas no bloquean y validan contra el registro vigente.
+ */
+@Component
+public class OrderStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderStore.class);
+
+    private final IOrderRepository orderRepository;
+    private final int warmDays;
+    private final Duration refreshLag;
+
+    private final Map<String, OrderRecord> orders = new ConcurrentHashMap<>();
+
+    // Índices secundarios por clave (fecha de creación, número de orden)
+    private final Map<OrderStatus, NavigableSet<OrderKey>> byStatus = new EnumMap<>(OrderStatus.class);
+    private final Map<Long, NavigableSet<OrderKey>> byCustomer = new ConcurrentHashMap<>();
+    private final NavigableSet<OrderKey> byCreatedAt = new ConcurrentSkipListSet<>();
+
+    // Inicio de la ventana que admite la vista y de la ventana ya cargada (null mientras no está disponible)
+    private volatile LocalDateTime windowStart;
+    private volatile LocalDateTime loadedFrom;
+
+    // Instante de la última consulta de cambios (null mientras la vista no está disponible)
+    private volatile LocalDateTime refreshedAt;
+
+    // Recibe cada orden publicada (acumulados de ventas)
+    private Listener listener;
+
+    public OrderStore(IOrderRepository orderRepository,
+                      @Value("${app.orders.store.warm-days:120}") int warmDays,
+                      @Value("${app.orders.store.refresh-lag-ms:30000}") long refreshLagMillis) {
+        this.orderRepository = orderRepository;
+        this.warmDays = warmDays;
+        this.refreshLag = Duration.ofMillis(refreshLagMillis);
+        for (OrderStatus status : OrderStatus.values()) {
+            byStatus.put(status, new ConcurrentSkipListSet<>());
+        }
+    }
+
+    /**
+     * Precargar las órdenes de la ventana configurada
+     */
+    @PostConstruct
+    public void warmUp() {
+        try {
+            long start = System.nanoTime();
+            LocalDateTime startedAt = LocalDateTime.now();
+            // La ventana empieza a medianoche: cada día queda entero dentro o fuera de la vista
+            LocalDateTime from = warmDays > 0 ? LocalDate.now().minusDays(warmDays).atStartOfDay() : LocalDateTime.MIN;
+            windowStart = from;
+
+            List<Order> recent = warmDays > 0
+                ? orderRepository.findByCreatedAtBetweenOrderByCreatedAtDesc(from, LocalDateTime.now().plusDays(1))
+                : orderRepository.findAllByOrderByCreatedAtDesc();
+            for (Order order : recent) {
+                put(OrderRecord.from(order));
+            }
+            loadedFrom = from;
+            refreshedAt = startedAt;
+
+            logger.info("Vista de órdenes precargada: {} órdenes en {} ms",
+                orders.size(), (System.nanoTime() - start) / 1_000_000);
+
+        } catch (Exception e) {
+            windowStart = null;
+            logger.error("Error al precargar la vista de órdenes, las consultas usarán la base de datos", e);
+        }
+    }
+
+    /**
+     * Incorporar las órdenes modificadas desde la última consulta, incluidas las de otros nodos
+     */
+    @Scheduled(fixedDelayString = "${app.orders.store.refresh-interval-ms:5000}")
+    public void refresh() {
+        LocalDateTime since = refreshedAt;
+        if (since == null) {
+            return;
+        }
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            List<Order> changed = orderRepository.findByUpdatedAtGreaterThanEqualOrderByUpdatedAtAsc(since.minus(refreshLag));
+            int published = 0;
+            for (Order order : changed) {
+                if (put(OrderRecord.from(order))) {
+                    published++;
+                }
+            }
+            refreshedAt = startedAt;
+
+            if (published > 0) {
+                logger.debug("Vista de órdenes actualizada desde base de datos: {} órdenes", published);
+            }
+        } catch (Exception e) {
+            logger.error("Error al actualizar la vista de órdenes desde base de datos", e);
+        }
+    }
+
+    /**
+     * Avanzar la ventana y descartar las órdenes creadas antes de su nuevo inicio
+     */
+    @Scheduled(fixedDelayString = "${app.orders.store.trim-interval-ms:3600000}")
+    public void trim() {
+        if (warmDays > 0) {
+            trim(LocalDate.now().minusDays(warmDays).atStartOfDay());
+        }
+    }
+
+    /**
+     * Mover el inicio de la ventana a {@code newStart} (solo avanza) y quitar de la vista y de los
+     * índices las órdenes anteriores. La ventana cargada se mueve antes de quitar las órdenes, para
+     * que las consultas que combinan vista y base de datos no pierdan ninguna.
+     * Devuelve la cantidad de órdenes descartadas
+     */
+    synchronized int trim(LocalDateTime newStart) {
+        LocalDateTime from = windowStart;
+        if (from == null || !newStart.isAfter(from)) {
+            return 0;
+        }
+        windowStart = newStart;
+        LocalDateTime loaded = loadedFrom;
+        if (loaded != null && newStart.isAfter(loaded)) {
+            loadedFrom = newStart;
+        }
+
+        // El índice ordena de la más reciente a la más antigua: la cola son las órdenes anteriores al inicio
+        List<OrderKey> expired = new ArrayList<>(byCreatedAt.tailSet(OrderKey.last(newStart), false));
+        for (OrderKey key : expired) {
+            OrderRecord order = orders.remove(key.orderNumber());
+            byCreatedAt.remove(key);
+            for (NavigableSet<OrderKey> keys : byStatus.values()) {
+                keys.remove(key);
+            }
+            if (order != null) {
+                NavigableSet<OrderKey> customerKeys = byCustomer.get(order.customerId());
+                if (customerKeys != null) {
+                    customerKeys.remove(key);
+                    if (customerKeys.isEmpty()) {
+                        byCustomer.remove(order.customerId(), customerKeys);
+                    }
+                }
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            logger.info("Vista de órdenes recortada: {} órdenes anteriores a {}", expired.size(), newStart);
+        }
+        return expired.size();
+    }
+
+    /**
+     * Publicar la versión más reciente de una orden, actualizar los índices y notificar al listener.
+     * Las órdenes creadas antes de la ventana no se indexan, y una versión igual o anterior a la
+     * publicada se ignora: publicar dos veces la misma orden no tiene efecto.
+     * Devuelve true si la orden se publicó
+     */
+    public synchronized boolean put(OrderRecord order) {
+        LocalDateTime from = windowStart;
+        if (from == null || order.createdAt().isBefore(from)) {
+            return false;
+        }
+
+        OrderRecord previous = orders.get(order.orderNumber());
+        if (previous != null && !isNewer(order, previous)) {
+            return false;
+        }
+
+        OrderKey key = new OrderKey(order.createdAt(), order.orderNumber());
+        orders.put(order.orderNumber(), order);
+
+        // Indexar primero en el estado nuevo y luego quitar del anterior: las lecturas nunca pierden la orden
+        byStatus.get(order.status()).add(key);
+        if (previous != null && previous.status() != order.status()) {
+            byStatus.get(previous.status()).remove(key);
+        }
+        byCustomer.computeIfAbsent(order.customerId(), id -> new ConcurrentSkipListSet<>()).add(key);
+        byCreatedAt.add(key);
+
+        if (listener != null) {
+            listener.onPublished(previous, order);
+        }
+        return true;
+    }
+
+    /**
+     * Registrar el listener de publicaciones y devolver las órdenes ya publicadas.
+     * Ambas cosas ocurren de forma atómica respecto de put: ninguna orden se pierde ni se repite
+     */
+    public synchronized List<OrderRecord> setListener(Listener listener) {
+        this.listener = listener;
+        return List.copyOf(orders.values());
+    }
+
+    public OrderRecord get(String orderNumber) {
+        return orders.get(orderNumber);
+    }
+
+    /**
+     * Inicio de la ventana cargada (LocalDateTime.MIN si están todas), o null si la vista no está disponible
+     */
+    public LocalDateTime getLoadedFrom() {
+        return loadedFrom;
+    }
+
+    /**
+     * Indica si la vista contiene todas las órdenes creadas desde la fecha indicada
+     */
+    public boolean covers(LocalDateTime startDate) {
+        LocalDateTime from = loadedFrom;
+        return from != null && startDate != null && !startDate.isBefore(from);
+    }
+
+    /**
+     * Órdenes con el estado indicado, más recientes primero
+     */
+    public List<OrderRecord> findByStatus(OrderStatus status) {
+        List<OrderRecord> result = new ArrayList<>();
+        for (OrderKey key : byStatus.get(status)) {
+            OrderRecord order = orders.get(key.orderNumber());
+            if (order != null && order.status() == status) {
+                result.add(order);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Órdenes de un cliente, más recientes primero
+     */
+    public List<OrderRecord> findByCustomer(long customerId) {
+        NavigableSet<OrderKey> keys = byCustomer.get(customerId);
+        return keys != null ? resolve(keys) : List.of();
+    }
+
+    /**
+     * Órdenes creadas en el rango (ambos extremos incluidos), más recientes primero
+     */
+    public List<OrderRecord> findByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (endDate.isBefore(startDate)) {
+            return List.of();
+        }
+        return resolve(byCreatedAt.subSet(OrderKey.first(endDate), true, OrderKey.last(startDate), true));
+    }
+
+    /**
+     * Página de órdenes posteriores al cursor (exclusivo), con filtros opcionales de estado y cliente.
+     * Recorre solo el índice más selectivo desde la posición del cursor
+     */
+    public List<OrderRecord> page(OrderStatus status, Long customerId, OrderCursor after, int limit) {
+        NavigableSet<OrderKey> index;
+        if (customerId != null) {
+            index = byCustomer.get(customerId);
+            if (index == null) {
+                return List.of();
+            }
+        } else if (status != null) {
+            index = byStatus.get(status);
+        } else {
+            index = byCreatedAt;
+        }
+
+        if (after != null) {
+            index = index.tailSet(new OrderKey(after.createdAt(), after.orderNumber()), false);
+        }
+
+        List<OrderRecord> result = new ArrayList<>(Math.min(limit, 64));
+        for (OrderKey key : index) {
+            OrderRecord order = orders.get(key.orderNumber());
+            if (order == null || (status != null && order.status() != status)) {
+                continue;
+            }
+            result.add(order);
+            if (result.size() >= limit) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Todas las órdenes de la vista, sin orden definido
+     */
+    public Collection<OrderRecord> all() {
+        return orders.values();
+    }
+
+    public int size() {
+        return orders.size();
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static boolean isNewer(OrderRecord order, OrderRecord previous) {
+        if (order.equals(previous)) {
+            return false;
+        }
+        // Sin fecha de modificación no se puede ordenar: se publica la versión recibida
+        return order.updatedAt() == null || previous.updatedAt() == null
+            || !order.updatedAt().isBefore(previous.updatedAt());
+    }
+
+    private List<OrderRecord> resolve(Collection<OrderKey> keys) {
+        List<OrderRecord> result = new ArrayList<>();
+        for (OrderKey key : keys) {
+            OrderRecord order = orders.get(key.orderNumber());
+            if (order != null) {
+                result.add(order);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Recibe cada orden publicada: previous es null la primera vez que la vista ve la orden
+     */
+    public interface Listener {
+        void onPublished(OrderRecord previous, OrderRecord order);
+    }
+
+    /**
+     * Clave de los índices: fecha de creación descendente y número de orden para desempatar
+     */
+    private record OrderKey(LocalDateTime createdAt, String orderNumber) implements Comparable<OrderKey> {
+
+        private static final Comparator<OrderKey> ORDER = Comparator
+            .comparing(OrderKey::createdAt, Comparator.reverseOrder())
+            .thenComparing(OrderKey::orderNumber);
+
+        // Claves límite para recorrer todas las órdenes de un instante
+        static OrderKey first(LocalDateTime createdAt) {
+            return new OrderKey(createdAt, "");
+        }
+
+        static OrderKey last(LocalDateTime createdAt) {
+            return new OrderKey(createdAt, "\uffff");
+        }
+
+        @Override
+        public int compareTo(OrderKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.Customer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Despachador del outbox de notificaciones.
+ * Reclama lotes de eventos vencidos, los entrega en paralelo mediante los métodos @Async de
+ * NotificationService y confirma los enviados con una sola actualización por lote.
+ * Los fallos se reintentan con espera exponencial (app.outbox.backoff-base-ms, hasta
+ * app.outbox.backoff-max-ms) y, agotados app.outbox.max-attempts intentos, quedan en FAILED.
+ *
+ * Los envíos comparten el pool @Async (app.outbox.send-concurrency hilos, por defecto el tamaño
+ * del pool de tareas), así que un lote se entrega en ceil(lote / concurrencia) tandas de hasta
+ * app.outbox.send-timeout-ms: ese es el plazo del reclamo, y la espera del lote nunca lo supera.
+ *
+ * El cliente de la orden se resuelve al entregar, a partir del customerId del evento.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    public static final String ORDER_PAID = "ORDER_PAID";
+
+    private final NotificationOutbox outbox;
+    private final NotificationService notificationService;
+    private final CustomerService customerService;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffBaseMs;
+    private final long backoffMaxMs;
+    private final long leaseMs;
+    private final long retentionMs;
+
+    public OutboxDispatcher(NotificationOutbox outbox,
+                            NotificationService notificationService,
+                            CustomerService customerService,
+                            @Value("${app.outbox.batch-size:50}") int batchSize,
+                            @Value("${app.outbox.max-attempts:8}") int maxAttempts,
+                            @Value("${app.outbox.backoff-base-ms:2000}") long backoffBaseMs,
+                            @Value("${app.outbox.backoff-max-ms:600000}") long backoffMaxMs,
+                            @Value("${app.outbox.send-timeout-ms:30000}") long sendTimeoutMs,
+                            @Value("${app.outbox.send-concurrency:${spring.task.execution.pool.core-size:8}}") int sendConcurrency,
+                            @Value("${app.outbox.retention-days:7}") long retentionDays) {
+        this.outbox = outbox;
+        this.notificationService = notificationService;
+        this.customerService = customerService;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.backoffBaseMs = backoffBaseMs;
+        this.backoffMaxMs = backoffMaxMs;
+        int concurrency = Math.max(1, sendConcurrency);
+        this.leaseMs = ((batchSize + concurrency - 1) / concurrency) * sendTimeoutMs;
+        this.retentionMs = TimeUnit.DAYS.toMillis(retentionDays);
+    }
+
+    /**
+     * Entregar los eventos pendientes, lote a lote, hasta vaciar los vencidos
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        try {
+            List<NotificationOutbox.Event> events;
+            do {
+                // La espera del lote termina antes de que venza el plazo del reclamo
+                long deadline = System.currentTimeMillis() + leaseMs;
+                events = outbox.claim(batchSize, leaseMs);
+                deliver(events, deadline);
+            } while (events.size() == batchSize);
+
+        } catch (Exception e) {
+            logger.error("Error al despachar el outbox de notificaciones", e);
+        }
+    }
+
+    /**
+     * Eliminar los eventos ya enviados con más antigüedad que la retención
+     */
+    @Scheduled(fixedDelayString = "${app.outbox.purge-interval-ms:3600000}")
+    public void purgeSent() {
+        try {
+            int purged = outbox.purgeSent(System.currentTimeMillis() - retentionMs);
+            if (purged > 0) {
+                logger.info("Eventos de notificación enviados purgados: {}", purged);
+            }
+        } catch (Exception e) {
+            logger.error("Error al purgar el outbox de notificaciones", e);
+        }
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private void deliver(List<NotificationOutbox.Event> events, long deadline) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        // Iniciar todos los envíos del lote antes de esperar ninguno
+        List<CompletableFuture<Void>> sends = new ArrayList<>(events.size());
+        for (NotificationOutbox.Event event : events) {
+            sends.add(send(event));
+        }
+
+        List<NotificationOutbox.Event> sent = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            NotificationOutbox.Event event = events.get(i);
+            try {
+                long remaining = Math.max(0, deadline - System.currentTimeMillis());
+                sends.get(i).get(remaining, TimeUnit.MILLISECONDS);
+                sent.add(event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                retryLater(event, e);
+            }
+        }
+        int lost = outbox.markSent(sent);
+        if (lost > 0) {
+            logger.warn("{} notificaciones enviadas con el reclamo vencido: otro despachador puede reenviarlas", lost);
+        }
+    }
+
+    private CompletableFuture<Void> send(NotificationOutbox.Event event) {
+        try {
+            return switch (event.type()) {
+                case ORDER_PAID -> notificationService.sendSaleNotification(customerOf(event.payload()), event.payload());
+                default -> CompletableFuture.failedFuture(
+                    new IllegalArgumentException("Tipo de evento desconocido: " + event.type()));
+            };
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Customer customerOf(Map<String, Object> payload) {
+        // Los números del payload vuelven de JSON como Integer o Long
+        if (payload.get("customerId") instanceof Number customerId) {
+            return customerService.findId(customerId.intValue());
+        }
+        return null;
+    }
+
+    private void retryLater(NotificationOutbox.Event event, Exception error) {
+        int attempts = event.attempts() + 1;
+        boolean exhausted = attempts >= maxAttempts;
+        long delay = Math.min(backoffMaxMs, backoffBaseMs << Math.min(attempts - 1, 20));
+        String message = error.getCause() != null ? error.getCause().toString() : error.toString();
+
+        if (!outbox.markFailed(event, message, System.currentTimeMillis() + delay, exhausted)) {
+            logger.warn("Notificación {} de {} fallida con el reclamo vencido: se conserva el reclamo vigente",
+                event.type(), event.aggregateId());
+            return;
+        }
+        if (exhausted) {
+            logger.error("Notificación {} de {} descartada tras {} intentos: {}",
+                event.type(), event.aggregateId(), attempts, message);
+        } else {
+            logger.warn("Notificación {} de {} fallida (intento {}), reintento en {} ms",
+                event.type(), event.aggregateId(), attempts, delay);
+        }
+    }
+}
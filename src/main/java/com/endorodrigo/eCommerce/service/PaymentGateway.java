@@ -0,0 +1,22 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.Payment;
+
+/**
+ * Pasarela de pagos externa. Las implementaciones pueden bloquear mientras esperan
+ * la respuesta del proveedor: se invocan desde PaymentProcessor en hilos virtuales,
+ * nunca desde los hilos de petición.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Cobrar un pago con los datos de tarjeta indicados
+     */
+    Result charge(Payment payment, String cardNumber, String cardExpiry, String cardCvv);
+
+    /**
+     * Respuesta de la pasarela
+     */
+    record Result(boolean approved, String message) {
+    }
+}
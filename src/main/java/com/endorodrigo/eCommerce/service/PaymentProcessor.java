@@ -0,0 +1,146 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.Payment;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Procesamiento asíncrono de pagos del checkout.
+ * El pago se envía a la pasarela en un hilo virtual y la petición HTTP termina de inmediato;
+ * el cliente consulta el estado por número de orden. Un semáforo limita las llamadas
+ * simultáneas a la pasarela (app.payments.max-concurrent).
+ * El estado se guarda en el propio Payment (status, statusMessage, updatedAt), por lo que
+ * cualquier nodo puede responder la consulta y el estado sobrevive a un reinicio.
+ */
+@Service
+public class PaymentProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentProcessor.class);
+
+    public static final String PENDING = "PENDING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    private final PaymentGateway paymentGateway;
+    private final PaymentService paymentService;
+    private final Semaphore permits;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public PaymentProcessor(PaymentGateway paymentGateway,
+                            PaymentService paymentService,
+                            @Value("${app.payments.max-concurrent:200}") int maxConcurrent) {
+        this.paymentGateway = paymentGateway;
+        this.paymentService = paymentService;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Estado del pago de una orden
+     */
+    public record PaymentStatus(String orderNumber, String status, String message, LocalDateTime updatedAt) {
+
+        public boolean isFinal() {
+            return !PENDING.equals(status);
+        }
+
+        static PaymentStatus of(Payment payment) {
+            return new PaymentStatus(payment.getOrderNumber(), payment.getStatus(), payment.getStatusMessage(),
+                payment.getUpdatedAt() != null ? payment.getUpdatedAt() : payment.getCreatedAt());
+        }
+    }
+
+    /**
+     * Enviar un pago a la pasarela sin bloquear al llamador. El pago se guarda como pendiente
+     * antes de retornar; onApproved u onDeclined se ejecutan en el hilo del pago después de
+     * guardar su estado final
+     */
+    public PaymentStatus submit(String orderNumber, Payment payment,
+                                String cardNumber, String cardExpiry, String cardCvv,
+                                Runnable onApproved, Runnable onDeclined) {
+        payment.setOrderNumber(orderNumber);
+        Payment pending = save(payment, PENDING, "Pago en proceso");
+
+        executor.execute(() -> process(orderNumber, pending, cardNumber, cardExpiry, cardCvv, onApproved, onDeclined));
+        return PaymentStatus.of(pending);
+    }
+
+    /**
+     * Estado actual del pago, o null si la orden no tiene pagos
+     */
+    public PaymentStatus getStatus(String orderNumber) {
+        Payment payment = paymentService.findByOrderNumber(orderNumber);
+        return payment != null ? PaymentStatus.of(payment) : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(15, TimeUnit.SECONDS)) {
+                logger.warn("Pagos en curso sin terminar al cerrar la aplicación");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private void process(String orderNumber, Payment payment,
+                         String cardNumber, String cardExpiry, String cardCvv,
+                         Runnable onApproved, Runnable onDeclined) {
+        PaymentGateway.Result result;
+        try {
+            permits.acquire();
+            try {
+                result = paymentGateway.charge(payment, cardNumber, cardExpiry, cardCvv);
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = new PaymentGateway.Result(false, "Pago interrumpido");
+        } catch (Exception e) {
+            logger.error("Error al procesar pago de la orden: {}", orderNumber, e);
+            result = new PaymentGateway.Result(false, "Error al procesar el pago");
+        }
+
+        try {
+            save(payment, result.approved() ? COMPLETED : FAILED, result.message());
+        } catch (Exception e) {
+            // Sin el estado guardado la orden no se completa ni se cancela: queda pendiente para revisión
+            logger.error("Error al guardar el estado del pago de la orden: {}", orderNumber, e);
+            return;
+        }
+
+        try {
+            (result.approved() ? onApproved : onDeclined).run();
+        } catch (Exception e) {
+            // El estado del pago ya está guardado: se registra el error sin cambiarlo
+            logger.error("Error al completar la orden {} después del pago", orderNumber, e);
+        }
+        logger.info("Pago de la orden {}: {}", orderNumber, payment.getStatus());
+    }
+
+    private Payment save(Payment payment, String status, String message) {
+        LocalDateTime now = LocalDateTime.now();
+        if (payment.getCreatedAt() == null) {
+            payment.setCreatedAt(now);
+        }
+        payment.setStatus(status);
+        payment.setStatusMessage(message);
+        payment.setUpdatedAt(now);
+        return paymentService.insert(payment);
+    }
+}
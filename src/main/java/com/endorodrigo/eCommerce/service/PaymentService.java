@@ -68,6 +68,15 @@ public class PaymentService implements IGenericService<Payment, Integer> {
         return paymentRepository.save(entity);
     }
 
+    /**
+     * Busca el último pago registrado para una orden.
+     * @param orderNumber Número de la orden
+     * @return El pago si existe, null si la orden no tiene pagos
+     */
+    public Payment findByOrderNumber(String orderNumber) {
+        return paymentRepository.findFirstByOrderNumberOrderByIdDesc(orderNumber).orElse(null);
+    }
+
     /**
      * Elimina un pago de la base de datos.
      * Actualmente no implementado.
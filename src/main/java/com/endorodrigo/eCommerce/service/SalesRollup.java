@@ -0,0 +1,370 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.OrderLineRecord;
+import com.endorodrigo.eCommerce.model.OrderRecord;
+import com.endorodrigo.eCommerce.model.OrderStatus;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Acumulados diarios de ventas: ingresos, número de órdenes, órdenes por estado y
+ * productos más vendidos (top-K Space-Saving de memoria acotada por día).
+ * Se actualizan de forma incremental con cada orden que publica OrderStore (creaciones y
+ * cambios de estado confirmados en este nodo o leídos de la base de datos), y las estadísticas de un rango se obtienen
+ * combinando un bucket por día en lugar de recorrer las órdenes.
+ *
+ * Los días de la ventana de OrderStore se construyen desde sus órdenes; los días anteriores,
+ * hasta app.sales.rollup.retention-days (por defecto más de un año, para que las estadísticas
+ * anuales no recorran órdenes), se cargan con consultas agregadas GROUP BY día. Como OrderStore
+ * no publica los cambios de estado de órdenes anteriores a su ventana, esos días se vuelven a
+ * agregar periódicamente, y los buckets anteriores a la retención se descartan.
+ *
+ * La ventana de OrderStore empieza a medianoche y avanza de a días completos, así que cada día
+ * se agrega entero desde una sola fuente. Si la ventana no empezara a medianoche, su primer día
+ * también se agregaría entero desde la base de datos en cada reconstrucción.
+ */
+@Component
+public class SalesRollup implements OrderStore.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollup.class);
+
+    private static final int STATUS_COUNT = OrderStatus.values().length;
+
+    private static final String ORDERS_BY_DAY_SQL =
+        "SELECT DATE(created_at), status, COUNT(*), SUM(total) FROM sales_order " +
+        "WHERE created_at >= ? AND created_at < ? GROUP BY DATE(created_at), status";
+    private static final String PRODUCTS_BY_DAY_SQL =
+        "SELECT DATE(o.created_at), l.product_id, SUM(l.quantity) FROM order_line l " +
+        "JOIN sales_order o ON o.id = l.order_id " +
+        "WHERE o.created_at >= ? AND o.created_at < ? GROUP BY DATE(o.created_at), l.product_id";
+
+    private final OrderStore orderStore;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Contadores de productos por día (y por rango combinado)
+    private final int topProductsCapacity;
+    private final int retentionDays;
+
+    private final Map<LocalDate, DayBucket> buckets = new ConcurrentHashMap<>();
+
+    // Primer día conservado y primer día completo cubierto por los acumulados; null mientras no están disponibles
+    private volatile LocalDate retainedFrom;
+    private volatile LocalDate firstDay;
+
+    public SalesRollup(OrderStore orderStore,
+                       JdbcTemplate jdbcTemplate,
+                       @Value("${app.sales.top-products-capacity:64}") int topProductsCapacity,
+                       @Value("${app.sales.rollup.retention-days:400}") int retentionDays) {
+        this.orderStore = orderStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.topProductsCapacity = topProductsCapacity;
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Construir los acumulados: la ventana de OrderStore desde sus órdenes (suscribiéndose a sus
+     * cambios) y los días anteriores dentro de la retención desde consultas agregadas
+     */
+    @PostConstruct
+    public void warmUp() {
+        LocalDateTime loadedFrom = orderStore.getLoadedFrom();
+        if (loadedFrom == null) {
+            logger.warn("Vista de órdenes no disponible, las estadísticas se calcularán desde las órdenes");
+            return;
+        }
+
+        long start = System.nanoTime();
+        LocalDate retained = LocalDate.now().minusDays(retentionDays);
+        retainedFrom = retained;
+
+        for (OrderRecord order : orderStore.setListener(this)) {
+            onCreated(order);
+        }
+
+        try {
+            aggregateBeforeWindow(loadedFrom, retained);
+            firstDay = retained;
+        } catch (Exception e) {
+            // Solo los días completos de la ventana de OrderStore
+            LocalDate windowDay = loadedFrom.equals(LocalDateTime.MIN) ? retained : aggregatedUntil(loadedFrom).toLocalDate();
+            firstDay = windowDay.isAfter(retained) ? windowDay : retained;
+            logger.error("Error al agregar las ventas anteriores a la vista de órdenes", e);
+        }
+        evict(retained);
+
+        logger.info("Acumulados diarios de ventas construidos: {} días desde {} en {} ms",
+            buckets.size(), firstDay, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Volver a agregar los días anteriores a la ventana de OrderStore (recoge los cambios de
+     * estado de esas órdenes) y descartar los días fuera de la retención
+     */
+    @Scheduled(fixedDelayString = "${app.sales.rollup.rebuild-interval-ms:21600000}",
+               initialDelayString = "${app.sales.rollup.rebuild-interval-ms:21600000}")
+    public void rebuild() {
+        LocalDateTime loadedFrom = orderStore.getLoadedFrom();
+        if (loadedFrom == null || retainedFrom == null) {
+            return;
+        }
+
+        LocalDate retained = LocalDate.now().minusDays(retentionDays);
+        retainedFrom = retained;
+        try {
+            aggregateBeforeWindow(loadedFrom, retained);
+            firstDay = retained;
+        } catch (Exception e) {
+            // Los días descartados dejan de estar cubiertos aunque la agregación falle
+            LocalDate first = firstDay;
+            if (first != null && first.isBefore(retained)) {
+                firstDay = retained;
+            }
+            logger.error("Error al volver a agregar las ventas anteriores a la vista de órdenes", e);
+        }
+        evict(retained);
+    }
+
+    /**
+     * Orden publicada por OrderStore: nueva si no tenía versión anterior, o cambio de estado
+     */
+    @Override
+    public void onPublished(OrderRecord previous, OrderRecord order) {
+        if (previous == null) {
+            onCreated(order);
+        } else {
+            onStatusChanged(order, previous.status());
+        }
+    }
+
+    /**
+     * Registrar una orden nueva
+     */
+    private void onCreated(OrderRecord order) {
+        LocalDate retained = retainedFrom;
+        if (retained != null && order.createdAt().toLocalDate().isBefore(retained)) {
+            return;
+        }
+        DayBucket bucket = bucket(order);
+        bucket.revenueCents.add(order.totalCents());
+        bucket.orders.increment();
+        bucket.statusCounts[order.status().ordinal()].increment();
+        for (OrderLineRecord line : order.lines()) {
+            bucket.topProducts.offer(line.productId(), line.quantity());
+        }
+    }
+
+    /**
+     * Registrar un cambio de estado de una orden existente
+     */
+    private void onStatusChanged(OrderRecord order, OrderStatus previousStatus) {
+        if (previousStatus == null || previousStatus == order.status()) {
+            return;
+        }
+        // Las órdenes de días fuera de los acumulados no tienen bucket
+        DayBucket bucket = buckets.get(order.createdAt().toLocalDate());
+        if (bucket == null) {
+            return;
+        }
+        bucket.statusCounts[previousStatus.ordinal()].decrement();
+        bucket.statusCounts[order.status().ordinal()].increment();
+    }
+
+    /**
+     * Indica si el rango está formado por días completos cubiertos por los acumulados
+     */
+    public boolean covers(LocalDateTime startDate, LocalDateTime endDate) {
+        LocalDate first = firstDay;
+        return first != null
+            && startDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+            && endDate.toLocalTime().equals(LocalTime.MAX)
+            && !startDate.toLocalDate().isBefore(first);
+    }
+
+    /**
+     * Combinar los buckets de los días del rango (ambos incluidos)
+     */
+    public Summary summarize(LocalDate fromDay, LocalDate toDay, int topLimit) {
+        long revenueCents = 0;
+        long orders = 0;
+        long[] statusCounts = new long[STATUS_COUNT];
+        SpaceSavingTopK topProducts = new SpaceSavingTopK(topProductsCapacity);
+
+        for (LocalDate day = fromDay; !day.isAfter(toDay); day = day.plusDays(1)) {
+            DayBucket bucket = buckets.get(day);
+            if (bucket == null) {
+                continue;
+            }
+            revenueCents += bucket.revenueCents.sum();
+            orders += bucket.orders.sum();
+            for (int i = 0; i < STATUS_COUNT; i++) {
+                statusCounts[i] += bucket.statusCounts[i].sum();
+            }
+            topProducts.merge(bucket.topProducts);
+        }
+
+        return new Summary(revenueCents, orders, toStatusMap(statusCounts), topProducts.top(topLimit));
+    }
+
+    /**
+     * Calcular los totales recorriendo las órdenes (rangos fuera de los acumulados)
+     */
+    public Summary summarize(Collection<OrderRecord> orders, int topLimit) {
+        Accumulator accumulator = accumulator();
+        for (OrderRecord order : orders) {
+            accumulator.add(order);
+        }
+        return accumulator.summary(topLimit);
+    }
+
+    /**
+     * Acumulador de una pasada en memoria constante, para recorrer órdenes en streaming
+     */
+    public Accumulator accumulator() {
+        return new Accumulator(topProductsCapacity);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private DayBucket bucket(OrderRecord order) {
+        return bucket(buckets, order.createdAt().toLocalDate());
+    }
+
+    private DayBucket bucket(Map<LocalDate, DayBucket> target, LocalDate day) {
+        return target.computeIfAbsent(day, d -> new DayBucket(topProductsCapacity));
+    }
+
+    /**
+     * Agregar desde la base de datos los días retenidos anteriores a la ventana de OrderStore.
+     * Los días se reemplazan enteros (las lecturas ven el bucket anterior o el nuevo), incluido
+     * el primer día de la ventana si no empieza a medianoche
+     */
+    private synchronized void aggregateBeforeWindow(LocalDateTime loadedFrom, LocalDate retained) {
+        LocalDateTime retainedStart = retained.atStartOfDay();
+        LocalDateTime until = aggregatedUntil(loadedFrom);
+        if (!until.isAfter(retainedStart)) {
+            return;
+        }
+
+        Map<LocalDate, DayBucket> rebuilt = new HashMap<>();
+        aggregate(retainedStart, until, rebuilt);
+        buckets.putAll(rebuilt);
+    }
+
+    /**
+     * Fin (exclusivo) de los días que se agregan desde la base de datos: el inicio de la ventana
+     * si empieza a medianoche, o el final de su primer día
+     */
+    private static LocalDateTime aggregatedUntil(LocalDateTime loadedFrom) {
+        return loadedFrom.toLocalTime().equals(LocalTime.MIDNIGHT)
+            ? loadedFrom
+            : loadedFrom.toLocalDate().plusDays(1).atStartOfDay();
+    }
+
+    /**
+     * Sumar a los buckets de destino las órdenes creadas en [from, before), agrupadas por día en la base de datos
+     */
+    private void aggregate(LocalDateTime from, LocalDateTime before, Map<LocalDate, DayBucket> target) {
+        jdbcTemplate.query(ORDERS_BY_DAY_SQL, rs -> {
+            OrderStatus status = OrderStatus.parse(rs.getString(2));
+            DayBucket bucket = bucket(target, rs.getDate(1).toLocalDate());
+            long count = rs.getLong(3);
+            bucket.orders.add(count);
+            bucket.revenueCents.add(OrderLineRecord.toCents(rs.getBigDecimal(4)));
+            if (status != null) {
+                bucket.statusCounts[status.ordinal()].add(count);
+            }
+        }, from, before);
+
+        jdbcTemplate.query(PRODUCTS_BY_DAY_SQL, rs -> {
+            bucket(target, rs.getDate(1).toLocalDate()).topProducts.offer(rs.getLong(2), rs.getLong(3));
+        }, from, before);
+    }
+
+    private void evict(LocalDate retained) {
+        buckets.keySet().removeIf(day -> day.isBefore(retained));
+    }
+
+    private static Map<OrderStatus, Long> toStatusMap(long[] statusCounts) {
+        Map<OrderStatus, Long> counts = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            if (statusCounts[status.ordinal()] > 0) {
+                counts.put(status, statusCounts[status.ordinal()]);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Totales de ventas de un rango
+     */
+    public record Summary(long revenueCents, long orders, Map<OrderStatus, Long> ordersByStatus,
+                          List<SpaceSavingTopK.Entry> topProducts) {
+    }
+
+    /**
+     * Totales que se van calculando orden a orden; no es seguro entre hilos
+     */
+    public static final class Accumulator {
+        private long revenueCents;
+        private long orders;
+        private final long[] statusCounts = new long[STATUS_COUNT];
+        private final SpaceSavingTopK topProducts;
+
+        private Accumulator(int topProductsCapacity) {
+            this.topProducts = new SpaceSavingTopK(topProductsCapacity);
+        }
+
+        public void add(OrderRecord order) {
+            revenueCents += order.totalCents();
+            orders++;
+            statusCounts[order.status().ordinal()]++;
+            for (OrderLineRecord line : order.lines()) {
+                topProducts.offer(line.productId(), line.quantity());
+            }
+        }
+
+        public Summary summary(int topLimit) {
+            return new Summary(revenueCents, orders, toStatusMap(statusCounts), topProducts.top(topLimit));
+        }
+    }
+
+    private static final class DayBucket {
+        private final LongAdder revenueCents = new LongAdder();
+        private final LongAdder orders = new LongAdder();
+        private final LongAdder[] statusCounts = new LongAdder[STATUS_COUNT];
+        private final SpaceSavingTopK topProducts;
+
+        private DayBucket(int topProductsCapacity) {
+            for (int i = 0; i < STATUS_COUNT; i++) {
+                statusCounts[i] = new LongAdder();
+            }
+            this.topProducts = new SpaceSavingTopK(topProductsCapacity);
+        }
+
+        private void add(DayBucket other) {
+            revenueCents.add(other.revenueCents.sum());
+            orders.add(other.orders.sum());
+            for (int i = 0; i < STATUS_COUNT; i++) {
+                statusCounts[i].add(other.statusCounts[i].sum());
+            }
+            topProducts.merge(other.topProducts);
+        }
+    }
+}
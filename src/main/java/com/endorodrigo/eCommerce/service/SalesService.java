@@ -1,22 +1,43 @@
 package com.endorodrigo.eCommerce.service;
 
 
+import com.endorodrigo.eCommerce.exception.InsufficientStockException;
 import com.endorodrigo.eCommerce.model.CartSession;
 import com.endorodrigo.eCommerce.model.Customer;
+import com.endorodrigo.eCommerce.model.Order;
+import com.endorodrigo.eCommerce.model.OrderCursor;
+import com.endorodrigo.eCommerce.model.OrderEvent;
+import com.endorodrigo.eCommerce.model.OrderLine;
+import com.endorodrigo.eCommerce.model.OrderLineRecord;
+import com.endorodrigo.eCommerce.model.OrderRecord;
+import com.endorodrigo.eCommerce.model.OrderStatus;
 import com.endorodrigo.eCommerce.repository.ICustomerRepository;
+import com.endorodrigo.eCommerce.repository.IOrderRepository;
 import com.endorodrigo.eCommerce.repository.IPayment;
 import com.endorodrigo.eCommerce.repository.IProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 /**
  * Servicio para manejar ventas y órdenes del sistema eCommerce
@@ -26,6 +47,17 @@ import java.util.stream.Collectors;
 public class SalesService {
 
     private static final Logger logger = LoggerFactory.getLogger(SalesService.class);
+
+    // Número de productos más vendidos en las estadísticas
+    private static final int TOP_PRODUCTS = 5;
+
+    // Tamaño máximo de página del listado paginado de órdenes
+    public static final int MAX_PAGE_SIZE = 200;
+
+    // Órdenes leídas por bloque al escribir reportes en streaming
+    private static final int REPORT_CHUNK_SIZE = 500;
+    private static final String REPORT_CSV_HEADER =
+        "orderNumber,createdAt,customerId,customerName,status,items,subtotal,tax,shippingCost,total";
     
     @Autowired
     private IProductRepository productRepository;
@@ -36,63 +68,56 @@ public class SalesService {
     @Autowired
     private IPayment paymentRepository;
 
-    // Almacenamiento temporal de órdenes (en producción usar base de datos)
-    private final Map<String, Map<String, Object>> orders = new ConcurrentHashMap<>();
-    private final Map<String, List<Map<String, Object>>> orderItems = new ConcurrentHashMap<>();
+    @Autowired
+    private IOrderRepository orderRepository;
+
+    // Vista en memoria de las órdenes recientes como registros tipados
+    @Autowired
+    private OrderStore orderStore;
+
+    @Autowired
+    private OrderNumberAllocator orderNumberAllocator;
+
+    // Acumulados diarios para las estadísticas por rango
+    @Autowired
+    private SalesRollup salesRollup;
+
+    // Registro de auditoría de cambios de órdenes
+    @Autowired
+    private OrderEventLog orderEventLog;
+
+    @Autowired
+    private StockSnapshotCache stockSnapshotCache;
+
+    @Autowired
+    private InventoryContention inventoryContention;
+
+    @Autowired
+    private NotificationOutbox notificationOutbox;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     /**
-     * Crear nueva orden
+     * Crear nueva orden.
+     * El número se asigna antes de abrir la transacción de la orden: si hay que reservar un
+     * bloque de números, esa reserva no ocurre mientras la orden retiene una conexión del pool
      */
     public String createOrder(CartSession cartSession, Customer customer, String shippingMethod) {
+        String orderNumber;
         try {
             // Generar número de orden único
-            String orderNumber = generateOrderNumber();
-            
-            // Calcular totales
-            BigDecimal subtotal = calculateSubtotal(cartSession);
-            BigDecimal tax = subtotal.multiply(BigDecimal.valueOf(0.08)); // 8% IVA
-            BigDecimal shipping = getShippingCost(shippingMethod);
-            BigDecimal finalTotal = subtotal.add(tax).add(shipping);
-            
-            // Crear orden
-            Map<String, Object> order = new HashMap<>();
-            order.put("orderNumber", orderNumber);
-            order.put("customerId", customer.getId());
-            order.put("customerName", customer.getNames());
-            order.put("shippingAddress", customer.getAddress());
-            order.put("shippingMethod", shippingMethod);
-            order.put("shippingCost", shipping);
-            order.put("subtotal", subtotal);
-            order.put("tax", tax);
-            order.put("total", finalTotal);
-            order.put("status", "PENDING");
-            order.put("createdAt", LocalDateTime.now());
-            order.put("updatedAt", LocalDateTime.now());
-            
-            // Guardar orden
-            orders.put(orderNumber, order);
-            
-            // Guardar items de la orden
-            List<Map<String, Object>> items = new ArrayList<>();
-            for (var cartItem : cartSession.getItems()) {
-                Map<String, Object> orderItem = new HashMap<>();
-                orderItem.put("productId", cartItem.getProductId());
-                orderItem.put("productName", cartItem.getProductName());
-                orderItem.put("price", cartItem.getPrice());
-                orderItem.put("quantity", cartItem.getQuantity());
-                orderItem.put("subtotal", cartItem.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
-                orderItem.put("image", cartItem.getImage());
-                items.add(orderItem);
-            }
-            orderItems.put(orderNumber, items);
-            
-            logger.info("Orden creada exitosamente: {}", orderNumber);
-            return orderNumber;
-            
+            orderNumber = generateOrderNumber();
         } catch (Exception e) {
-            logger.error("Error al crear orden", e);
+            logger.error("Error al asignar número de orden", e);
             throw new RuntimeException("Error al crear la orden", e);
         }
+
+        return new TransactionTemplate(transactionManager)
+            .execute(status -> insertOrder(orderNumber, cartSession, customer, shippingMethod));
     }
 
     /**
@@ -100,16 +125,13 @@ public class SalesService {
      */
     public Map<String, Object> getOrderDetails(String orderNumber) {
         try {
-            Map<String, Object> order = orders.get(orderNumber);
+            OrderRecord order = orderStore.get(orderNumber);
             if (order == null) {
-                return null;
+                order = orderRepository.findByOrderNumber(orderNumber)
+                    .map(OrderRecord::from)
+                    .orElse(null);
             }
-            
-            // Crear copia de la orden con items
-            Map<String, Object> orderDetails = new HashMap<>(order);
-            orderDetails.put("items", orderItems.getOrDefault(orderNumber, List.of()));
-            
-            return orderDetails;
+            return order != null ? toOrderMap(order) : null;
             
         } catch (Exception e) {
             logger.error("Error al obtener detalles de orden: {}", orderNumber, e);
@@ -118,30 +140,13 @@ public class SalesService {
     }
 
     /**
-     * Obtener todas las órdenes
+     * Obtener todas las órdenes.
+     * Para listados de back-office usar getOrdersPage, que no carga el historial completo
      */
     public List<Map<String, Object>> getAllOrders() {
         try {
-            List<Map<String, Object>> allOrders = new ArrayList<>();
-            
-            for (Map.Entry<String, Map<String, Object>> entry : orders.entrySet()) {
-                String orderNumber = entry.getKey();
-                Map<String, Object> order = entry.getValue();
-                
-                // Agregar items a cada orden
-                Map<String, Object> orderWithItems = new HashMap<>(order);
-                orderWithItems.put("items", orderItems.getOrDefault(orderNumber, List.of()));
-                allOrders.add(orderWithItems);
-            }
-            
-            // Ordenar por fecha de creación (más reciente primero)
-            allOrders.sort((o1, o2) -> {
-                LocalDateTime date1 = (LocalDateTime) o1.get("createdAt");
-                LocalDateTime date2 = (LocalDateTime) o2.get("createdAt");
-                return date2.compareTo(date1);
-            });
-            
-            return allOrders;
+            // Ordenadas por fecha de creación (más reciente primero)
+            return toOrderMaps(records(orderRepository.findAllByOrderByCreatedAtDesc()));
             
         } catch (Exception e) {
             logger.error("Error al obtener todas las órdenes", e);
@@ -149,14 +154,85 @@ public class SalesService {
         }
     }
 
+    /**
+     * Obtener una página de órdenes (más recientes primero) a partir de un cursor opaco,
+     * con filtros opcionales de estado y cliente. nextCursor es null en la última página
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getOrdersPage(String status, Long customerId, String cursor, int limit) {
+        try {
+            OrderStatus orderStatus = null;
+            if (status != null && !status.isBlank()) {
+                orderStatus = OrderStatus.parse(status);
+                if (orderStatus == null) {
+                    return Map.of("error", "Estado de orden inválido: " + status);
+                }
+            }
+            int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+            // Se pide un elemento más para saber si hay página siguiente
+            List<OrderRecord> orders = findOrderPage(orderStatus, customerId, OrderCursor.decode(cursor), pageSize + 1);
+            boolean hasMore = orders.size() > pageSize;
+            if (hasMore) {
+                orders = orders.subList(0, pageSize);
+            }
+
+            Map<String, Object> page = new HashMap<>();
+            page.put("orders", toOrderMaps(orders));
+            page.put("size", orders.size());
+            page.put("nextCursor", hasMore ? OrderCursor.of(orders.get(orders.size() - 1)).encode() : null);
+            return page;
+
+        } catch (IllegalArgumentException e) {
+            return Map.of("error", e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error al obtener página de órdenes", e);
+            return Map.of("error", "Error al obtener órdenes");
+        }
+    }
+
+    /**
+     * Hasta {@code limit} órdenes posteriores al cursor (exclusivo), más recientes primero.
+     * La ventana precargada se sirve desde OrderStore y el resto continúa por keyset en base de datos
+     */
+    @Transactional(readOnly = true)
+    public List<OrderRecord> findOrderPage(OrderStatus status, Long customerId, OrderCursor after, int limit) {
+        LocalDateTime loadedFrom = orderStore.getLoadedFrom();
+        if (loadedFrom == null) {
+            return findOrderPageInDatabase(status, customerId, after, limit);
+        }
+
+        List<OrderRecord> orders = new ArrayList<>(orderStore.page(status, customerId, after, limit));
+        if (orders.size() < limit && loadedFrom.isAfter(LocalDateTime.MIN)) {
+            // Continuar con las órdenes anteriores a la ventana, sin repetir las del instante límite
+            OrderCursor dbCursor = after != null && after.createdAt().isBefore(loadedFrom)
+                ? after
+                : new OrderCursor(loadedFrom, "\uffff");
+            orders.addAll(findOrderPageInDatabase(status, customerId, dbCursor, limit - orders.size()));
+        }
+        return orders;
+    }
+
     /**
      * Obtener órdenes por estado
      */
     public List<Map<String, Object>> getOrdersByStatus(String status) {
         try {
-            return getAllOrders().stream()
-                .filter(order -> status.equals(order.get("status")))
-                .toList();
+            OrderStatus orderStatus = OrderStatus.parse(status);
+            if (orderStatus == null) {
+                return List.of();
+            }
+
+            // Índice en memoria para la ventana cargada; las órdenes anteriores, por índice en base de datos
+            LocalDateTime loadedFrom = orderStore.getLoadedFrom();
+            if (loadedFrom == null) {
+                return toOrderMaps(records(orderRepository.findByStatusOrderByCreatedAtDesc(orderStatus)));
+            }
+            List<OrderRecord> orders = new ArrayList<>(orderStore.findByStatus(orderStatus));
+            if (loadedFrom.isAfter(LocalDateTime.MIN)) {
+                orders.addAll(records(orderRepository.findByStatusAndCreatedAtBeforeOrderByCreatedAtDesc(orderStatus, loadedFrom)));
+            }
+            return toOrderMaps(orders);
                 
         } catch (Exception e) {
             logger.error("Error al obtener órdenes por estado: {}", status, e);
@@ -169,9 +245,15 @@ public class SalesService {
      */
     public List<Map<String, Object>> getOrdersByCustomer(Long customerId) {
         try {
-            return getAllOrders().stream()
-                .filter(order -> customerId.equals(order.get("customerId")))
-                .toList();
+            LocalDateTime loadedFrom = orderStore.getLoadedFrom();
+            if (loadedFrom == null) {
+                return toOrderMaps(records(orderRepository.findByCustomerIdOrderByCreatedAtDesc(customerId)));
+            }
+            List<OrderRecord> orders = new ArrayList<>(orderStore.findByCustomer(customerId));
+            if (loadedFrom.isAfter(LocalDateTime.MIN)) {
+                orders.addAll(records(orderRepository.findByCustomerIdAndCreatedAtBeforeOrderByCreatedAtDesc(customerId, loadedFrom)));
+            }
+            return toOrderMaps(orders);
                 
         } catch (Exception e) {
             logger.error("Error al obtener órdenes por cliente: {}", customerId, e);
@@ -184,12 +266,7 @@ public class SalesService {
      */
     public List<Map<String, Object>> getOrdersByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         try {
-            return getAllOrders().stream()
-                .filter(order -> {
-                    LocalDateTime orderDate = (LocalDateTime) order.get("createdAt");
-                    return !orderDate.isBefore(startDate) && !orderDate.isAfter(endDate);
-                })
-                .toList();
+            return toOrderMaps(findOrderRecords(startDate, endDate));
                 
         } catch (Exception e) {
             logger.error("Error al obtener órdenes por rango de fechas", e);
@@ -200,27 +277,37 @@ public class SalesService {
     /**
      * Actualizar estado de una orden
      */
+    @Transactional
     public boolean updateOrderStatus(String orderNumber, String newStatus) {
         try {
-            Map<String, Object> order = orders.get(orderNumber);
+            Order order = orderRepository.findByOrderNumber(orderNumber).orElse(null);
             if (order == null) {
                 logger.warn("Orden no encontrada: {}", orderNumber);
                 return false;
             }
             
             // Validar estado válido
-            if (!isValidOrderStatus(newStatus)) {
+            OrderStatus status = OrderStatus.parse(newStatus);
+            if (status == null) {
                 logger.warn("Estado de orden inválido: {}", newStatus);
                 return false;
             }
             
             // Actualizar estado
-            order.put("status", newStatus);
-            order.put("updatedAt", LocalDateTime.now());
+            OrderStatus previousStatus = order.getStatus();
+            order.setStatus(status);
+            order.setUpdatedAt(LocalDateTime.now());
+            orderRepository.save(order);
+            publish(order, previousStatus);
+            
+            // Notificaciones de la venta pagada: se registran en el outbox dentro de esta transacción
+            if (status == OrderStatus.PAID && previousStatus != OrderStatus.PAID) {
+                notificationOutbox.enqueue(OutboxDispatcher.ORDER_PAID, orderNumber, toSaleNotification(order));
+            }
             
-            // Si la orden se cancela, restaurar inventario
-            if ("CANCELLED".equals(newStatus)) {
-                restoreInventory(orderNumber);
+            // Si la orden se cancela, restaurar inventario (una sola vez)
+            if (status == OrderStatus.CANCELLED && previousStatus != OrderStatus.CANCELLED) {
+                restoreInventory(order);
             }
             
             logger.info("Estado de orden {} actualizado a: {}", orderNumber, newStatus);
@@ -228,6 +315,8 @@ public class SalesService {
             
         } catch (Exception e) {
             logger.error("Error al actualizar estado de orden: {}", orderNumber, e);
+            // El cambio de estado y la restauración de inventario se confirman juntos o no se confirman
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return false;
         }
     }
@@ -235,22 +324,23 @@ public class SalesService {
     /**
      * Cancelar orden
      */
+    @Transactional
     public boolean cancelOrder(String orderNumber) {
         try {
-            Map<String, Object> order = orders.get(orderNumber);
+            Order order = orderRepository.findByOrderNumber(orderNumber).orElse(null);
             if (order == null) {
                 logger.warn("Orden no encontrada: {}", orderNumber);
                 return false;
             }
             
-            String currentStatus = (String) order.get("status");
-            if ("CANCELLED".equals(currentStatus) || "SHIPPED".equals(currentStatus)) {
+            OrderStatus currentStatus = order.getStatus();
+            if (currentStatus == OrderStatus.CANCELLED || currentStatus == OrderStatus.SHIPPED) {
                 logger.warn("No se puede cancelar la orden {} con estado: {}", orderNumber, currentStatus);
                 return false;
             }
             
             // Actualizar estado a cancelado
-            return updateOrderStatus(orderNumber, "CANCELLED");
+            return updateOrderStatus(orderNumber, OrderStatus.CANCELLED.name());
             
         } catch (Exception e) {
             logger.error("Error al cancelar orden: {}", orderNumber, e);
@@ -261,26 +351,27 @@ public class SalesService {
     /**
      * Marcar orden como enviada
      */
+    @Transactional
     public boolean shipOrder(String orderNumber, String trackingNumber) {
         try {
-            Map<String, Object> order = orders.get(orderNumber);
+            Order order = orderRepository.findByOrderNumber(orderNumber).orElse(null);
             if (order == null) {
                 logger.warn("Orden no encontrada: {}", orderNumber);
                 return false;
             }
             
-            String currentStatus = (String) order.get("status");
-            if (!"PAID".equals(currentStatus)) {
+            OrderStatus currentStatus = order.getStatus();
+            if (currentStatus != OrderStatus.PAID) {
                 logger.warn("No se puede enviar la orden {} con estado: {}", orderNumber, currentStatus);
                 return false;
             }
             
             // Agregar número de seguimiento
-            order.put("trackingNumber", trackingNumber);
-            order.put("shippedAt", LocalDateTime.now());
+            order.setTrackingNumber(trackingNumber);
+            order.setShippedAt(LocalDateTime.now());
             
             // Actualizar estado a enviado
-            return updateOrderStatus(orderNumber, "SHIPPED");
+            return updateOrderStatus(orderNumber, OrderStatus.SHIPPED.name());
             
         } catch (Exception e) {
             logger.error("Error al enviar orden: {}", orderNumber, e);
@@ -291,25 +382,26 @@ public class SalesService {
     /**
      * Marcar orden como entregada
      */
+    @Transactional
     public boolean deliverOrder(String orderNumber) {
         try {
-            Map<String, Object> order = orders.get(orderNumber);
+            Order order = orderRepository.findByOrderNumber(orderNumber).orElse(null);
             if (order == null) {
                 logger.warn("Orden no encontrada: {}", orderNumber);
                 return false;
             }
             
-            String currentStatus = (String) order.get("status");
-            if (!"SHIPPED".equals(currentStatus)) {
+            OrderStatus currentStatus = order.getStatus();
+            if (currentStatus != OrderStatus.SHIPPED) {
                 logger.warn("No se puede marcar como entregada la orden {} con estado: {}", orderNumber, currentStatus);
                 return false;
             }
             
             // Agregar fecha de entrega
-            order.put("deliveredAt", LocalDateTime.now());
+            order.setDeliveredAt(LocalDateTime.now());
             
             // Actualizar estado a entregado
-            return updateOrderStatus(orderNumber, "DELIVERED");
+            return updateOrderStatus(orderNumber, OrderStatus.DELIVERED.name());
             
         } catch (Exception e) {
             logger.error("Error al marcar orden como entregada: {}", orderNumber, e);
@@ -322,59 +414,12 @@ public class SalesService {
      */
     public Map<String, Object> getSalesStatistics(LocalDateTime startDate, LocalDateTime endDate) {
         try {
-            List<Map<String, Object>> ordersInRange = getOrdersByDateRange(startDate, endDate);
-            
-            // Calcular estadísticas
-            BigDecimal totalRevenue = ordersInRange.stream()
-                .map(order -> (BigDecimal) order.get("total"))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-            
-            int totalOrders = ordersInRange.size();
-            
-            BigDecimal averageOrderValue = totalOrders > 0 ? 
-                totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, BigDecimal.ROUND_HALF_UP) : 
-                BigDecimal.ZERO;
-            
-            // Contar órdenes por estado
-            Map<String, Long> ordersByStatus = ordersInRange.stream()
-                .collect(Collectors.groupingBy(
-                    order -> (String) order.get("status"),
-                    Collectors.counting()
-                ));
+            // Combinar acumulados diarios (O(días)) o, fuera de ellos, recorrer las órdenes del rango
+            SalesRollup.Summary summary = salesRollup.covers(startDate, endDate)
+                ? salesRollup.summarize(startDate.toLocalDate(), endDate.toLocalDate(), TOP_PRODUCTS)
+                : salesRollup.summarize(findOrderRecords(startDate, endDate), TOP_PRODUCTS);
             
-            // Productos más vendidos
-            Map<Long, Integer> productSales = new HashMap<>();
-            for (Map<String, Object> order : ordersInRange) {
-                List<Map<String, Object>> items = (List<Map<String, Object>>) order.get("items");
-                for (Map<String, Object> item : items) {
-                    Long productId = (Long) item.get("productId");
-                    Integer quantity = (Integer) item.get("quantity");
-                    productSales.merge(productId, quantity, Integer::sum);
-                }
-            }
-            
-            // Top 5 productos más vendidos
-            List<Map<String, Object>> topProducts = productSales.entrySet().stream()
-                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
-                .limit(5)
-                .map(entry -> {
-                    Map<String, Object> product = new HashMap<>();
-                    product.put("productId", entry.getKey());
-                    product.put("quantity", entry.getValue());
-                    return product;
-                })
-                .toList();
-            
-            Map<String, Object> statistics = new HashMap<>();
-            statistics.put("totalRevenue", totalRevenue);
-            statistics.put("totalOrders", totalOrders);
-            statistics.put("averageOrderValue", averageOrderValue);
-            statistics.put("ordersByStatus", ordersByStatus);
-            statistics.put("topProducts", topProducts);
-            statistics.put("startDate", startDate);
-            statistics.put("endDate", endDate);
-            
-            return statistics;
+            return toStatisticsMap(summary, startDate, endDate);
             
         } catch (Exception e) {
             logger.error("Error al obtener estadísticas de ventas", e);
@@ -417,7 +462,45 @@ public class SalesService {
     }
 
     /**
-     * Generar reporte de ventas
+     * Historial de eventos de una orden desde el registro de auditoría, completado con el
+     * estado vigente en base de datos cuando el registro de este nodo no lo refleja
+     */
+    public List<Map<String, Object>> getOrderEvents(String orderNumber) {
+        try {
+            List<OrderEvent> history = orderEventLog.history(orderNumber);
+
+            // El registro es local al nodo y puede perder los últimos eventos en una caída: se completa con la base de datos
+            OrderRecord order = orderStore.get(orderNumber);
+            if (order == null) {
+                order = orderRepository.findByOrderNumber(orderNumber).map(OrderRecord::from).orElse(null);
+            }
+            if (order != null) {
+                history = OrderEventLog.reconcile(history, orderNumber, order.status(),
+                    order.trackingNumber(), order.updatedAt());
+            }
+
+            List<Map<String, Object>> events = new ArrayList<>();
+            for (OrderEvent event : history) {
+                Map<String, Object> map = new HashMap<>();
+                map.put("sequence", event.sequence());
+                map.put("source", event.sequence() > 0 ? "log" : "database");
+                map.put("occurredAt", event.occurredAt());
+                map.put("previousStatus", event.previousStatus() != null ? event.previousStatus().name() : null);
+                map.put("status", event.status().name());
+                map.put("trackingNumber", event.trackingNumber());
+                events.add(map);
+            }
+            return events;
+
+        } catch (Exception e) {
+            logger.error("Error al leer eventos de la orden: {}", orderNumber, e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Generar reporte de ventas.
+     * Para rangos grandes usar writeSalesReport, que escribe las órdenes en streaming
      */
     public Map<String, Object> generateSalesReport(LocalDateTime startDate, LocalDateTime endDate, String format) {
         try {
@@ -440,14 +523,123 @@ public class SalesService {
         }
     }
 
+    /**
+     * Escribir el reporte de ventas del rango en streaming (formato "ndjson" o "csv").
+     * Las órdenes se leen por bloques con cursor, por lo que la memoria no depende del tamaño
+     * del rango. En ndjson las estadísticas se calculan en la misma pasada y se escriben en la
+     * última línea; el csv solo lleva filas de órdenes con las columnas de la cabecera
+     */
+    public void writeSalesReport(LocalDateTime startDate, LocalDateTime endDate, String format,
+                                 OutputStream out) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        SalesRollup.Accumulator accumulator = csv ? null : salesRollup.accumulator();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        if (csv) {
+            writer.write(REPORT_CSV_HEADER);
+            writer.write('\n');
+        }
+
+        // Cursor inicial: todas las órdenes hasta endDate inclusive
+        OrderCursor cursor = new OrderCursor(endDate, "");
+        boolean done = false;
+        while (!done) {
+            OrderCursor after = cursor;
+            List<OrderRecord> chunk = readOnly.execute(status ->
+                findOrderPage(null, null, after, REPORT_CHUNK_SIZE));
+
+            for (OrderRecord order : chunk) {
+                if (order.createdAt().isBefore(startDate)) {
+                    done = true;
+                    break;
+                }
+                if (csv) {
+                    writeCsvRow(writer, order);
+                } else {
+                    accumulator.add(order);
+                    writer.write(objectMapper.writeValueAsString(toOrderMap(order)));
+                    writer.write('\n');
+                }
+            }
+            writer.flush();
+
+            if (chunk.size() < REPORT_CHUNK_SIZE) {
+                done = true;
+            } else {
+                cursor = OrderCursor.of(chunk.get(chunk.size() - 1));
+            }
+        }
+
+        if (!csv) {
+            Map<String, Object> statistics = toStatisticsMap(accumulator.summary(TOP_PRODUCTS), startDate, endDate);
+            writer.write(objectMapper.writeValueAsString(Map.of("statistics", statistics)));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
     /**
      * Métodos auxiliares privados
      */
     private String generateOrderNumber() {
-        // Formato: ORD-YYYYMMDD-XXXX (ej: ORD-20241201-0001)
-        String datePrefix = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        String randomSuffix = String.format("%04d", new Random().nextInt(10000));
-        return "ORD-" + datePrefix + "-" + randomSuffix;
+        // Formato: ORD-YYYYMMDD-NNNNNN (ej: ORD-20241201-000001), secuencia diaria sin colisiones
+        return orderNumberAllocator.next();
+    }
+
+    private String insertOrder(String orderNumber, CartSession cartSession, Customer customer, String shippingMethod) {
+        try {
+            // Calcular totales
+            BigDecimal subtotal = calculateSubtotal(cartSession);
+            BigDecimal tax = subtotal.multiply(BigDecimal.valueOf(0.08)); // 8% IVA
+            BigDecimal shipping = getShippingCost(shippingMethod);
+            BigDecimal finalTotal = subtotal.add(tax).add(shipping);
+            
+            // Crear orden
+            LocalDateTime now = LocalDateTime.now();
+            Order order = new Order();
+            order.setOrderNumber(orderNumber);
+            order.setCustomerId((long) customer.getId());
+            order.setCustomerName(customer.getNames());
+            order.setShippingAddress(customer.getAddress());
+            order.setShippingMethod(shippingMethod);
+            order.setShippingCost(shipping);
+            order.setSubtotal(subtotal);
+            order.setTax(tax);
+            order.setTotal(finalTotal);
+            order.setStatus(OrderStatus.PENDING);
+            order.setCreatedAt(now);
+            order.setUpdatedAt(now);
+            
+            // Agregar items de la orden
+            for (var cartItem : cartSession.getItems()) {
+                OrderLine line = new OrderLine();
+                line.setProductId(cartItem.getProductId());
+                line.setProductName(cartItem.getProductName());
+                line.setPrice(cartItem.getPrice());
+                line.setQuantity(cartItem.getQuantity());
+                line.setSubtotal(cartItem.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
+                line.setImage(cartItem.getImage());
+                order.addLine(line);
+            }
+            
+            // Descontar el stock de todo el carrito en un lote condicional dentro de la misma transacción
+            reserveInventory(order);
+            
+            // Guardar orden con sus líneas
+            orderRepository.save(order);
+            publish(order, null);
+            
+            logger.info("Orden creada exitosamente: {}", orderNumber);
+            return orderNumber;
+            
+        } catch (InsufficientStockException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error al crear orden", e);
+            throw new RuntimeException("Error al crear la orden", e);
+        }
     }
 
     private BigDecimal calculateSubtotal(CartSession cartSession) {
@@ -465,25 +657,228 @@ public class SalesService {
         };
     }
 
-    private boolean isValidOrderStatus(String status) {
-        return Arrays.asList("PENDING", "PAID", "PROCESSING", "SHIPPED", "DELIVERED", "CANCELLED").contains(status);
+    /**
+     * Publicar la orden en la vista en memoria y registrar el evento de auditoría cuando la
+     * transacción se confirma: el registro no retiene los locks de la transacción ni guarda
+     * eventos de cambios revertidos
+     */
+    private void publish(Order order, OrderStatus previousStatus) {
+        OrderRecord record = OrderRecord.from(order);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    // OrderStore notifica a los acumulados; si la orden ya llegó por la consulta de cambios no se aplica dos veces
+                    orderStore.put(record);
+                    logEvent(record, previousStatus);
+                }
+            });
+        } else {
+            orderStore.put(record);
+            logEvent(record, previousStatus);
+        }
     }
 
-    private void restoreInventory(String orderNumber) {
-        try {
-            List<Map<String, Object>> items = orderItems.get(orderNumber);
-            if (items != null) {
-                for (Map<String, Object> item : items) {
-                    Long productId = (Long) item.get("productId");
-                    Integer quantity = (Integer) item.get("quantity");
-                    
-                    // Restaurar stock del producto
-                    // En implementación real, usar repository para actualizar base de datos
-                    logger.info("Restaurando {} unidades del producto {} al inventario", quantity, productId);
+    private void logEvent(OrderRecord record, OrderStatus previousStatus) {
+        orderEventLog.append(record.orderNumber(), previousStatus, record.status(), record.trackingNumber())
+            .whenComplete((ignored, error) -> {
+                if (error != null) {
+                    logger.error("Error al registrar el evento de la orden {}", record.orderNumber(), error);
                 }
-            }
-        } catch (Exception e) {
-            logger.error("Error al restaurar inventario para orden: {}", orderNumber, e);
+            });
+    }
+
+    /**
+     * Órdenes del rango desde la vista en memoria, o desde base de datos si el rango
+     * empieza antes de la ventana precargada
+     */
+    private List<OrderRecord> findOrderRecords(LocalDateTime startDate, LocalDateTime endDate) {
+        if (orderStore.covers(startDate)) {
+            return orderStore.findByDateRange(startDate, endDate);
+        }
+        return records(orderRepository.findByCreatedAtBetweenOrderByCreatedAtDesc(startDate, endDate));
+    }
+
+    private List<OrderRecord> findOrderPageInDatabase(OrderStatus status, Long customerId, OrderCursor after, int limit) {
+        // Sin cursor se empieza después del instante actual
+        OrderCursor cursor = after != null ? after : new OrderCursor(LocalDateTime.now().plusDays(1), "");
+        return records(orderRepository.findPageAfter(cursor.createdAt(), cursor.orderNumber(),
+            status, customerId, PageRequest.of(0, limit)));
+    }
+
+    private Map<String, Object> toStatisticsMap(SalesRollup.Summary summary,
+                                                LocalDateTime startDate, LocalDateTime endDate) {
+        BigDecimal totalRevenue = OrderLineRecord.fromCents(summary.revenueCents());
+        long totalOrders = summary.orders();
+
+        BigDecimal averageOrderValue = totalOrders > 0 ?
+            totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP) :
+            BigDecimal.ZERO;
+
+        // Contar órdenes por estado
+        Map<String, Long> ordersByStatus = new HashMap<>();
+        summary.ordersByStatus().forEach((status, count) -> ordersByStatus.put(status.name(), count));
+
+        // Top 5 productos más vendidos (estimación Space-Saving)
+        List<Map<String, Object>> topProducts = new ArrayList<>(summary.topProducts().size());
+        for (SpaceSavingTopK.Entry entry : summary.topProducts()) {
+            Map<String, Object> product = new HashMap<>();
+            product.put("productId", entry.item());
+            product.put("quantity", entry.count());
+            product.put("maxError", entry.error());
+            topProducts.add(product);
+        }
+
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("totalRevenue", totalRevenue);
+        statistics.put("totalOrders", totalOrders);
+        statistics.put("averageOrderValue", averageOrderValue);
+        statistics.put("ordersByStatus", ordersByStatus);
+        statistics.put("topProducts", topProducts);
+        statistics.put("startDate", startDate);
+        statistics.put("endDate", endDate);
+        return statistics;
+    }
+
+    private static void writeCsvRow(Writer writer, OrderRecord order) throws IOException {
+        int items = 0;
+        for (OrderLineRecord line : order.lines()) {
+            items += line.quantity();
+        }
+        writer.write(order.orderNumber());
+        writer.write(',');
+        writer.write(order.createdAt().toString());
+        writer.write(',');
+        writer.write(String.valueOf(order.customerId()));
+        writer.write(',');
+        writer.write(csvField(order.customerName()));
+        writer.write(',');
+        writer.write(order.status().name());
+        writer.write(',');
+        writer.write(String.valueOf(items));
+        writer.write(',');
+        writer.write(OrderLineRecord.fromCents(order.subtotalCents()).toPlainString());
+        writer.write(',');
+        writer.write(OrderLineRecord.fromCents(order.taxCents()).toPlainString());
+        writer.write(',');
+        writer.write(OrderLineRecord.fromCents(order.shippingCents()).toPlainString());
+        writer.write(',');
+        writer.write(OrderLineRecord.fromCents(order.totalCents()).toPlainString());
+        writer.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private List<OrderRecord> records(List<Order> orders) {
+        List<OrderRecord> result = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            result.add(OrderRecord.from(order));
+        }
+        return result;
+    }
+
+    private List<Map<String, Object>> toOrderMaps(List<OrderRecord> orders) {
+        List<Map<String, Object>> result = new ArrayList<>(orders.size());
+        for (OrderRecord order : orders) {
+            result.add(toOrderMap(order));
+        }
+        return result;
+    }
+
+    /**
+     * Representación de una orden para vistas y APIs
+     */
+    public Map<String, Object> toOrderMap(OrderRecord order) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("orderNumber", order.orderNumber());
+        map.put("customerId", order.customerId());
+        map.put("customerName", order.customerName());
+        map.put("shippingAddress", order.shippingAddress());
+        map.put("shippingMethod", order.shippingMethod());
+        map.put("shippingCost", OrderLineRecord.fromCents(order.shippingCents()));
+        map.put("subtotal", OrderLineRecord.fromCents(order.subtotalCents()));
+        map.put("tax", OrderLineRecord.fromCents(order.taxCents()));
+        map.put("total", OrderLineRecord.fromCents(order.totalCents()));
+        map.put("status", order.status().name());
+        map.put("createdAt", order.createdAt());
+        map.put("updatedAt", order.updatedAt());
+        if (order.trackingNumber() != null) {
+            map.put("trackingNumber", order.trackingNumber());
+        }
+        if (order.shippedAt() != null) {
+            map.put("shippedAt", order.shippedAt());
+        }
+        if (order.deliveredAt() != null) {
+            map.put("deliveredAt", order.deliveredAt());
+        }
+
+        List<Map<String, Object>> items = new ArrayList<>(order.lines().size());
+        for (OrderLineRecord line : order.lines()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("productId", line.productId());
+            item.put("productName", line.productName());
+            item.put("price", OrderLineRecord.fromCents(line.priceCents()));
+            item.put("quantity", line.quantity());
+            item.put("subtotal", OrderLineRecord.fromCents(line.subtotalCents()));
+            item.put("image", line.image());
+            items.add(item);
+        }
+        map.put("items", items);
+        return map;
+    }
+
+    private Map<String, Object> toSaleNotification(Order order) {
+        List<Map<String, Object>> items = new ArrayList<>(order.getLines().size());
+        for (OrderLine line : order.getLines()) {
+            items.add(Map.of(
+                "productId", line.getProductId(),
+                "productName", String.valueOf(line.getProductName()),
+                "quantity", line.getQuantity(),
+                "price", line.getPrice()
+            ));
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("orderNumber", order.getOrderNumber());
+        data.put("customerId", order.getCustomerId());
+        data.put("customerName", order.getCustomerName());
+        data.put("total", order.getTotal());
+        data.put("items", items);
+        return data;
+    }
+
+    private void reserveInventory(Order order) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderLine line : order.getLines()) {
+            quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum);
         }
+
+        List<Long> insufficient = productRepository.decrementStockIfAvailable(quantities);
+        quantities.keySet().forEach(stockSnapshotCache::invalidate);
+        if (!insufficient.isEmpty()) {
+            // La excepción revierte los descuentos ya aplicados y la orden
+            insufficient.forEach(inventoryContention::recordRejected);
+            throw new InsufficientStockException(insufficient);
+        }
+    }
+
+    private void restoreInventory(Order order) {
+        // Agrupar por producto: un único UPDATE por producto, enviados en un solo lote
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderLine line : order.getLines()) {
+            quantities.merge(line.getProductId(), line.getQuantity(), Integer::sum);
+        }
+
+        int updated = productRepository.incrementStock(quantities);
+        quantities.keySet().forEach(stockSnapshotCache::invalidate);
+        logger.info("Inventario restaurado para orden {}: {} productos", order.getOrderNumber(), updated);
     }
 }
@@ -0,0 +1,145 @@
+package com.endorodrigo.eCommerce.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Top-K aproximado en memoria acotada (algoritmo Space-Saving).
+ * Mantiene como máximo {@code capacity} contadores; cuando llega un elemento nuevo con la
+ * estructura llena, reemplaza al de menor conteo y hereda ese conteo como error máximo.
+ * Cualquier elemento con frecuencia real mayor que total/capacity está garantizado en el resultado.
+ * Las estructuras de distintos periodos se combinan con {@link #merge(SpaceSavingTopK)}.
+ */
+public final class SpaceSavingTopK {
+
+    private static final Comparator<Entry> BY_COUNT_DESC =
+        Comparator.comparingLong(Entry::count).reversed().thenComparingLong(Entry::item);
+
+    private final int capacity;
+    private final Map<Long, long[]> counters;
+
+    // Cota superior de la frecuencia de cualquier elemento sin contador (0 salvo tras combinar)
+    private long floor;
+
+    public SpaceSavingTopK(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser mayor que cero");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Contador estimado de un elemento; count - error es una cota inferior de la frecuencia real
+     */
+    public record Entry(long item, long count, long error) {
+    }
+
+    /**
+     * Registrar {@code weight} ocurrencias de un elemento
+     */
+    public void offer(long item, long weight) {
+        add(item, weight, 0);
+    }
+
+    /**
+     * Combinar otra estructura (por ejemplo, de otro día) con el merge estándar de Space-Saving:
+     * el conteo de cada elemento es la suma de sus conteos, y en la estructura donde no tiene
+     * contador se usa la cota de los elementos sin contador (su mínimo si está llena). Se conservan
+     * los {@code capacity} mayores, y el conteo (capacity+1)-ésimo pasa a acotar a los descartados
+     */
+    public void merge(SpaceSavingTopK other) {
+        List<Entry> otherEntries = other.entries();
+        long otherFloor = other.unmonitoredBound();
+
+        synchronized (this) {
+            long thisFloor = unmonitoredBound();
+            Map<Long, long[]> merged = new HashMap<>((counters.size() + otherEntries.size()) * 2);
+            counters.forEach((item, counter) ->
+                merged.put(item, new long[] {counter[0] + otherFloor, counter[1] + otherFloor}));
+            for (Entry entry : otherEntries) {
+                long[] counter = merged.get(entry.item());
+                if (counter != null) {
+                    // Ya tenía contador aquí: se reemplaza la cota por el conteo real de la otra estructura
+                    counter[0] += entry.count() - otherFloor;
+                    counter[1] += entry.error() - otherFloor;
+                } else {
+                    merged.put(entry.item(), new long[] {entry.count() + thisFloor, entry.error() + thisFloor});
+                }
+            }
+
+            List<Map.Entry<Long, long[]>> ranked = new ArrayList<>(merged.entrySet());
+            ranked.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+
+            counters.clear();
+            for (int i = 0; i < Math.min(capacity, ranked.size()); i++) {
+                counters.put(ranked.get(i).getKey(), ranked.get(i).getValue());
+            }
+            floor = thisFloor + otherFloor;
+            if (ranked.size() > capacity) {
+                floor = Math.max(floor, ranked.get(capacity).getValue()[0]);
+            }
+        }
+    }
+
+    /**
+     * Los {@code limit} elementos con mayor conteo, de mayor a menor
+     */
+    public synchronized List<Entry> top(int limit) {
+        List<Entry> entries = new ArrayList<>(counters.size());
+        counters.forEach((item, counter) -> entries.add(new Entry(item, counter[0], counter[1])));
+        entries.sort(BY_COUNT_DESC);
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, limit)) : entries;
+    }
+
+    /**
+     * Todos los contadores, de mayor a menor
+     */
+    public List<Entry> entries() {
+        return top(capacity);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private synchronized void add(long item, long count, long error) {
+        long[] counter = counters.get(item);
+        if (counter != null) {
+            counter[0] += count;
+            counter[1] += error;
+            return;
+        }
+
+        // Un elemento sin contador puede haber aparecido hasta floor veces en las estructuras combinadas
+        if (counters.size() < capacity) {
+            counters.put(item, new long[] {floor + count, floor + error});
+            return;
+        }
+
+        // Reemplazar el contador mínimo: el nuevo elemento hereda su conteo como error
+        long minItem = 0;
+        long[] min = null;
+        for (Map.Entry<Long, long[]> candidate : counters.entrySet()) {
+            if (min == null || candidate.getValue()[0] < min[0]) {
+                minItem = candidate.getKey();
+                min = candidate.getValue();
+            }
+        }
+        counters.remove(minItem);
+        counters.put(item, new long[] {min[0] + count, min[0] + error});
+    }
+
+    private synchronized long unmonitoredBound() {
+        if (counters.size() < capacity) {
+            return floor;
+        }
+        long min = Long.MAX_VALUE;
+        for (long[] counter : counters.values()) {
+            min = Math.min(min, counter[0]);
+        }
+        return min;
+    }
+}
@@ -0,0 +1,220 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartSession;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Libro de reservas temporales de stock para los carritos activos.
+ * Cada carrito retiene la cantidad que tiene de cada producto durante
+ * app.stock.reservation-ttl-minutes; el stock disponible para otros carritos es
+ * Item.quantity menos lo reservado. Al crear la orden las reservas se convierten
+ * (el stock ya se descontó en base de datos) y un barrido periódico libera las vencidas.
+ *
+ * Sin locks globales: el total reservado de cada producto es un contador con CAS y las
+ * reservas de un producto se guardan en su propio mapa por sesión, por lo que los
+ * productos muy demandados no serializan al resto de carritos.
+ *
+ * Las reservas de una sesión se liberan cuando el almacén de carritos la elimina, la expira o la
+ * desaloja (no cuando la sustituye por una versión más reciente). Con los almacenes persistentes
+ * (jdbc, file) el desalojo solo saca la sesión de la caché local: el carrito sigue en la
+ * persistencia sin reservas hasta su siguiente modificación, que las vuelve a fijar. Las reservas
+ * son locales a cada nodo; el descuento atómico de stock al crear la orden es la garantía final.
+ */
+@Component
+public class StockReservationLedger implements CartStore.Listener {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationLedger.class);
+
+    private final CartStore cartStore;
+    private final long ttlNanos;
+
+    private final Map<Long, ProductHolds> products = new ConcurrentHashMap<>();
+
+    // Productos reservados por cada sesión, para liberar o convertir todo el carrito
+    private final Map<String, Set<Long>> bySession = new ConcurrentHashMap<>();
+
+    public StockReservationLedger(CartStore cartStore,
+                                  @Value("${app.stock.reservation-ttl-minutes:15}") long ttlMinutes) {
+        this.cartStore = cartStore;
+        this.ttlNanos = TimeUnit.MINUTES.toNanos(ttlMinutes);
+    }
+
+    /**
+     * Registrar el libro como listener del almacén de carritos
+     */
+    @PostConstruct
+    public void register() {
+        cartStore.addListener(this);
+    }
+
+    @Override
+    public void onAdded(CartSession cartSession) {
+    }
+
+    /**
+     * Una sesión que sale del almacén deja de retener stock; si solo se sustituyó por una
+     * versión más reciente el carrito sigue vivo y conserva sus reservas
+     */
+    @Override
+    public void onRemoved(CartSession cartSession, CartStore.RemovalCause cause) {
+        if (cause != CartStore.RemovalCause.REPLACED) {
+            releaseAll(cartSession.getSessionId());
+        }
+    }
+
+    /**
+     * Fijar la reserva de una sesión sobre un producto en {@code quantity} unidades
+     * (reemplaza la anterior y renueva su vencimiento). {@code stock} es el Item.quantity actual.
+     * Retorna false, sin cambiar la reserva, si el stock no reservado por otros no alcanza
+     */
+    public boolean hold(String sessionId, Long productId, int quantity, int stock) {
+        if (quantity <= 0) {
+            release(sessionId, productId);
+            return true;
+        }
+
+        ProductHolds holds = products.computeIfAbsent(productId, id -> new ProductHolds());
+        long expiresAt = System.nanoTime() + ttlNanos;
+        boolean[] granted = {false};
+
+        // compute es atómico por sesión y producto: el contador y la reserva cambian juntos
+        holds.sessions.compute(sessionId, (id, current) -> {
+            int delta = quantity - (current != null ? current.quantity : 0);
+            if (delta > 0 && !holds.tryReserve(delta, stock)) {
+                return current;
+            }
+            if (delta < 0) {
+                holds.reserved.addAndGet(delta);
+            }
+            granted[0] = true;
+            return new Hold(quantity, expiresAt);
+        });
+
+        if (granted[0]) {
+            bySession.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet()).add(productId);
+        }
+        return granted[0];
+    }
+
+    /**
+     * Unidades de un producto que una sesión puede reservar en total: {@code stock} menos lo
+     * reservado por las demás sesiones (la reserva propia cuenta como disponible)
+     */
+    public int available(String sessionId, Long productId, int stock) {
+        ProductHolds holds = products.get(productId);
+        if (holds == null) {
+            return Math.max(0, stock);
+        }
+        Hold own = holds.sessions.get(sessionId);
+        return Math.max(0, stock - holds.reserved.get() + (own != null ? own.quantity : 0));
+    }
+
+    /**
+     * Liberar la reserva de una sesión sobre un producto
+     */
+    public void release(String sessionId, Long productId) {
+        ProductHolds holds = products.get(productId);
+        if (holds != null) {
+            Hold removed = holds.sessions.remove(sessionId);
+            if (removed != null) {
+                holds.reserved.addAndGet(-removed.quantity);
+            }
+        }
+        Set<Long> productIds = bySession.get(sessionId);
+        if (productIds != null) {
+            productIds.remove(productId);
+        }
+    }
+
+    /**
+     * Liberar todas las reservas de una sesión (carrito vaciado)
+     */
+    public void releaseAll(String sessionId) {
+        Set<Long> productIds = bySession.remove(sessionId);
+        if (productIds == null) {
+            return;
+        }
+        for (Long productId : productIds) {
+            ProductHolds holds = products.get(productId);
+            if (holds != null) {
+                Hold removed = holds.sessions.remove(sessionId);
+                if (removed != null) {
+                    holds.reserved.addAndGet(-removed.quantity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Convertir las reservas de una sesión en la orden creada: el stock ya está descontado
+     * en base de datos, por lo que las reservas dejan de contar
+     */
+    public void convert(String sessionId) {
+        releaseAll(sessionId);
+    }
+
+    /**
+     * Liberar las reservas vencidas
+     */
+    @Scheduled(fixedDelayString = "${app.stock.reservation-sweep-interval-ms:30000}")
+    public int expireHolds() {
+        long now = System.nanoTime();
+        int expired = 0;
+
+        for (Map.Entry<Long, ProductHolds> product : products.entrySet()) {
+            ProductHolds holds = product.getValue();
+            for (Map.Entry<String, Hold> entry : holds.sessions.entrySet()) {
+                Hold hold = entry.getValue();
+                // remove(key, value) no libera una reserva renovada mientras se recorría
+                if (now - hold.expiresAt > 0 && holds.sessions.remove(entry.getKey(), hold)) {
+                    holds.reserved.addAndGet(-hold.quantity);
+                    Set<Long> productIds = bySession.get(entry.getKey());
+                    if (productIds != null) {
+                        productIds.remove(product.getKey());
+                    }
+                    expired++;
+                }
+            }
+        }
+
+        bySession.values().removeIf(Set::isEmpty);
+        if (expired > 0) {
+            logger.info("Reservas de stock vencidas liberadas: {}", expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static final class ProductHolds {
+        private final AtomicInteger reserved = new AtomicInteger();
+        private final Map<String, Hold> sessions = new ConcurrentHashMap<>();
+
+        private boolean tryReserve(int delta, int stock) {
+            while (true) {
+                int current = reserved.get();
+                if (current + delta > stock) {
+                    return false;
+                }
+                if (reserved.compareAndSet(current, current + delta)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private record Hold(int quantity, long expiresAt) {
+    }
+}
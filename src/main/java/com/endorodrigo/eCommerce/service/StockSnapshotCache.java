@@ -0,0 +1,131 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.repository.IProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché de corta duración con el stock de los productos.
+ * Resuelve el stock de todo un carrito con una sola consulta por lote a IProductRepository
+ * para los productos que no están en caché o cuya instantánea ya venció.
+ * Por encima de app.stock.cache-max-entries se descartan primero las vencidas y luego las más antiguas.
+ */
+@Component
+public class StockSnapshotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockSnapshotCache.class);
+
+    private final IProductRepository productRepository;
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public StockSnapshotCache(IProductRepository productRepository,
+                              @Value("${app.stock.cache-ttl-ms:2000}") long ttlMillis,
+                              @Value("${app.stock.cache-max-entries:10000}") int maxEntries) {
+        this.productRepository = productRepository;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Obtener el stock disponible de los productos indicados.
+     * Los productos inexistentes no aparecen en el resultado
+     */
+    public Map<Long, Integer> getStock(Collection<Long> productIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        long now = System.nanoTime();
+
+        for (Long productId : new LinkedHashSet<>(productIds)) {
+            if (productId == null) {
+                continue;
+            }
+            Snapshot snapshot = snapshots.get(productId);
+            if (snapshot != null && now - snapshot.loadedAtNanos < ttlNanos) {
+                stock.put(productId, snapshot.quantity);
+            } else {
+                missing.add(productId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            load(missing, stock, now);
+        }
+
+        return stock;
+    }
+
+    /**
+     * Obtener el stock actual de los productos indicados sin usar instantáneas.
+     * Para decisiones que retienen stock (reservas de carrito), que no pueden basarse en un valor
+     * de hasta app.stock.cache-ttl-ms de antigüedad; la lectura renueva también la caché
+     */
+    public Map<Long, Integer> getCurrentStock(Collection<Long> productIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        ids.remove(null);
+        if (!ids.isEmpty()) {
+            load(ids, stock, System.nanoTime());
+        }
+        return stock;
+    }
+
+    /**
+     * Descartar las instantáneas de productos cuyo stock cambió
+     */
+    public void invalidate(Long productId) {
+        if (productId != null) {
+            snapshots.remove(productId);
+        }
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private void load(List<Long> productIds, Map<Long, Integer> stock, long now) {
+        for (IProductRepository.StockLevel level : productRepository.findByIdIn(productIds)) {
+            int quantity = level.getQuantity() != null ? level.getQuantity() : 0;
+            snapshots.put(level.getId(), new Snapshot(quantity, now));
+            stock.put(level.getId(), quantity);
+        }
+        logger.debug("Stock consultado en lote para {} productos", productIds.size());
+        trim(now);
+    }
+
+    private void trim(long now) {
+        if (snapshots.size() <= maxEntries) {
+            return;
+        }
+        snapshots.values().removeIf(snapshot -> now - snapshot.loadedAtNanos >= ttlNanos);
+        int excess = snapshots.size() - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+
+        // Desalojar las más antiguas, con margen para no reordenar en cada carga siguiente
+        List<Map.Entry<Long, Snapshot>> oldest = new ArrayList<>(snapshots.entrySet());
+        oldest.sort(Comparator.comparingLong(entry -> entry.getValue().loadedAtNanos));
+        int toEvict = Math.min(oldest.size(), excess + maxEntries / 10);
+        for (int i = 0; i < toEvict; i++) {
+            Map.Entry<Long, Snapshot> entry = oldest.get(i);
+            snapshots.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private record Snapshot(int quantity, long loadedAtNanos) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.Payment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Pasarela simulada para desarrollo y pruebas de latencia: espera la latencia configurada
+ * y aprueba el pago con la probabilidad indicada.
+ * Se usa mientras no se configure otra pasarela (app.payments.gateway).
+ */
+@Component
+@ConditionalOnProperty(name = "app.payments.gateway", havingValue = "stub", matchIfMissing = true)
+public class StubPaymentGateway implements PaymentGateway {
+
+    private final long latencyMs;
+    private final double successRate;
+
+    public StubPaymentGateway(@Value("${app.payments.stub.latency-ms:2000}") long latencyMs,
+                              @Value("${app.payments.stub.success-rate:0.9}") double successRate) {
+        this.latencyMs = latencyMs;
+        this.successRate = successRate;
+    }
+
+    @Override
+    public Result charge(Payment payment, String cardNumber, String cardExpiry, String cardCvv) {
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Result(false, "Pago interrumpido");
+        }
+
+        return ThreadLocalRandom.current().nextDouble() < successRate
+            ? new Result(true, "Pago aprobado")
+            : new Result(false, "Pago rechazado por la pasarela");
+    }
+}
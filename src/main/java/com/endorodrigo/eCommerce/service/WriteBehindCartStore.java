@@ -0,0 +1,382 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartItem;
+import com.endorodrigo.eCommerce.model.CartSession;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base de los almacenes persistentes de carritos.
+ * Las lecturas y escrituras se resuelven en una caché local en memoria y los cambios
+ * se persisten en lotes en segundo plano (escritura diferida).
+ * Con varios nodos, cada lectura de una sesión sin cambios locales pendientes se revalida
+ * contra la persistencia (loadIfChanged) y la escritura es condicional a la versión leída:
+ * si otro nodo escribió antes, persist reporta el conflicto, se relee la versión persistida y
+ * los cambios locales pendientes se vuelven a aplicar sobre ella antes de reintentar.
+ *
+ * Para cada sesión se guarda la base de sus cambios locales: los items y el descuento de la
+ * última versión leída o escrita por este nodo. Al resolver un conflicto, cada producto cuya
+ * cantidad local difiere de la base aplica esa diferencia sobre la versión persistida (una
+ * cantidad local en cero lo elimina) y el descuento local gana si cambió respecto de la base;
+ * el resto de los items queda como lo dejó el otro nodo. Así no se pierde ningún cambio de
+ * carrito ya confirmado al usuario, sin depender de afinidad de sesión.
+ */
+public abstract class WriteBehindCartStore implements CartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+    protected final InMemoryCartStore cache;
+
+    // Sesiones modificadas pendientes de persistir y sesiones pendientes de eliminar
+    private final Map<String, CartSession> dirty = new ConcurrentHashMap<>();
+    private final Set<String> deleted = ConcurrentHashMap.newKeySet();
+
+    // Última versión leída o escrita por este nodo para cada sesión, sobre la que se reaplican sus cambios
+    private final Map<String, Base> bases = new ConcurrentHashMap<>();
+
+    private final LongAdder flushedSessions = new LongAdder();
+    private final LongAdder flushFailures = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    protected WriteBehindCartStore(InMemoryCartStore cache) {
+        this.cache = cache;
+        this.cache.addListener(new Listener() {
+            @Override
+            public void onAdded(CartSession cartSession) {
+                for (Listener listener : listeners) {
+                    listener.onAdded(cartSession);
+                }
+            }
+
+            @Override
+            public void onRemoved(CartSession cartSession, RemovalCause cause) {
+                onCacheRemoval(cartSession, cause);
+            }
+        });
+    }
+
+    /**
+     * Leer una sesión de la persistencia. Retorna null si no existe
+     */
+    protected abstract CartSession load(String sessionId);
+
+    /**
+     * Leer una sesión de la persistencia solo si otro nodo la modificó después de la copia en caché.
+     * Retorna null si la copia en caché sigue vigente
+     */
+    protected CartSession loadIfChanged(String sessionId) {
+        return null;
+    }
+
+    /**
+     * Persistir en un lote las sesiones modificadas (ya serializadas, por id de sesión) y las eliminadas.
+     * Retorna los ids de las sesiones que no se escribieron porque otro nodo las modificó antes
+     */
+    protected abstract Collection<String> persist(Map<String, byte[]> payloads, Collection<String> deletedSessionIds) throws Exception;
+
+    /**
+     * Eliminar de la persistencia las sesiones expiradas que ya no están en caché
+     */
+    protected void purgeExpired() {
+    }
+
+    /**
+     * Notificar que una sesión salió de la caché local sin dejar de existir en la persistencia
+     */
+    protected void onEvicted(String sessionId) {
+    }
+
+    /**
+     * Liberar recursos al cerrar la aplicación, después del último flush
+     */
+    protected void onShutdown() {
+    }
+
+    protected abstract String getType();
+
+    @Override
+    public CartSession get(String sessionId) {
+        CartSession cartSession = cache.get(sessionId);
+        if (cartSession != null) {
+            // Con cambios locales pendientes un conflicto se resuelve al persistir
+            if (!dirty.containsKey(sessionId)) {
+                CartSession newer = loadIfChanged(sessionId);
+                if (newer != null) {
+                    refreshes.increment();
+                    bases.put(sessionId, Base.of(newer));
+                    return cache.replace(newer);
+                }
+            }
+            return cartSession;
+        }
+        if (deleted.contains(sessionId)) {
+            return null;
+        }
+
+        CartSession loaded = load(sessionId);
+        if (loaded == null) {
+            return null;
+        }
+        loads.increment();
+        bases.put(sessionId, Base.of(loaded));
+        return cache.put(loaded);
+    }
+
+    @Override
+    public CartSession getOrCreate(String sessionId) {
+        CartSession existing = get(sessionId);
+        if (existing != null) {
+            return existing;
+        }
+
+        CartSession created = cache.getOrCreate(sessionId);
+        deleted.remove(sessionId);
+        dirty.put(sessionId, created);
+        return created;
+    }
+
+    @Override
+    public void markModified(String sessionId) {
+        cache.markModified(sessionId);
+        CartSession cartSession = cache.peek(sessionId);
+        if (cartSession != null) {
+            deleted.remove(sessionId);
+            dirty.put(sessionId, cartSession);
+        }
+    }
+
+    @Override
+    public void remove(String sessionId) {
+        cache.remove(sessionId);
+        dirty.remove(sessionId);
+        deleted.add(sessionId);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.cart.sweep-interval-ms:60000}")
+    public int evictExpired() {
+        int removed = cache.evictExpired();
+        try {
+            purgeExpired();
+        } catch (Exception e) {
+            logger.error("Error al purgar sesiones de carrito expiradas en {}", getType(), e);
+        }
+        return removed;
+    }
+
+    /**
+     * Persistir en lote los cambios pendientes
+     */
+    @Scheduled(fixedDelayString = "${app.cart.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (dirty.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+
+        List<CartSession> sessions = new ArrayList<>(dirty.size());
+        Map<String, byte[]> payloads = new LinkedHashMap<>();
+        Map<String, Base> written = new HashMap<>();
+        for (Map.Entry<String, CartSession> entry : dirty.entrySet()) {
+            CartSession cartSession = entry.getValue();
+            if (dirty.remove(entry.getKey(), cartSession)) {
+                sessions.add(cartSession);
+                // La base y el contenido escrito deben corresponder al mismo estado de la sesión
+                synchronized (cartSession) {
+                    payloads.put(entry.getKey(), CartSessionCodec.encode(cartSession));
+                    written.put(entry.getKey(), Base.of(cartSession));
+                }
+            }
+        }
+
+        List<String> deletedIds = new ArrayList<>(deleted);
+        deleted.removeAll(deletedIds);
+
+        Collection<String> conflicted;
+        try {
+            conflicted = persist(payloads, deletedIds);
+            flushedSessions.add(sessions.size() - conflicted.size());
+
+        } catch (Exception e) {
+            flushFailures.increment();
+            logger.error("Error al persistir {} sesiones de carrito en {}", sessions.size(), getType(), e);
+
+            // Reencolar para el próximo intento sin pisar cambios más recientes
+            for (CartSession cartSession : sessions) {
+                dirty.putIfAbsent(cartSession.getSessionId(), cartSession);
+            }
+            deleted.addAll(deletedIds);
+            return;
+        }
+
+        Set<String> conflictedIds = new HashSet<>(conflicted);
+        for (CartSession cartSession : sessions) {
+            String sessionId = cartSession.getSessionId();
+            if (conflictedIds.contains(sessionId)) {
+                mergeAfterConflict(cartSession);
+            } else {
+                bases.put(sessionId, written.get(sessionId));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        onShutdown();
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public Collection<CartSession> sessions() {
+        return cache.sessions();
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = cache.getMetrics();
+        metrics.put("type", getType());
+        metrics.put("pendingWrites", dirty.size());
+        metrics.put("pendingDeletes", deleted.size());
+        metrics.put("flushedSessions", flushedSessions.sum());
+        metrics.put("flushFailures", flushFailures.sum());
+        metrics.put("loads", loads.sum());
+        metrics.put("refreshes", refreshes.sum());
+        metrics.put("conflicts", conflicts.sum());
+        return metrics;
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private void onCacheRemoval(CartSession cartSession, RemovalCause cause) {
+        // Las sesiones desalojadas por capacidad o sustituidas siguen vivas en la persistencia
+        if (cause == RemovalCause.EXPLICIT || cause == RemovalCause.EXPIRED) {
+            dirty.remove(cartSession.getSessionId());
+            deleted.add(cartSession.getSessionId());
+            bases.remove(cartSession.getSessionId());
+        } else if (cause == RemovalCause.EVICTED) {
+            bases.remove(cartSession.getSessionId());
+            onEvicted(cartSession.getSessionId());
+        }
+        for (Listener listener : listeners) {
+            listener.onRemoved(cartSession, cause);
+        }
+    }
+
+    private void mergeAfterConflict(CartSession local) {
+        String sessionId = local.getSessionId();
+        conflicts.increment();
+        try {
+            CartSession current = load(sessionId);
+            if (current == null) {
+                // Otro nodo eliminó el carrito (por ejemplo, al convertirlo en venta)
+                dirty.remove(sessionId, local);
+                cache.remove(sessionId);
+                logger.warn("Sesión de carrito {} eliminada por otro nodo: se descartan los cambios locales", sessionId);
+                return;
+            }
+
+            Base persisted = Base.of(current);
+            synchronized (local) {
+                rebase(local, bases.getOrDefault(sessionId, Base.EMPTY), current);
+            }
+            bases.put(sessionId, persisted);
+
+            // Volver a notificar la sesión con su nuevo contenido y reintentar en el próximo flush
+            if (cache.peek(sessionId) == local) {
+                cache.replace(local);
+                dirty.putIfAbsent(sessionId, local);
+            }
+            logger.info("Sesión de carrito {} modificada por otro nodo: cambios locales reaplicados", sessionId);
+
+        } catch (Exception e) {
+            // Sin la versión vigente no se puede reaplicar: se reintenta en el próximo flush
+            dirty.putIfAbsent(sessionId, local);
+            logger.error("Error al recargar la sesión de carrito {} tras un conflicto", sessionId, e);
+        }
+    }
+
+    /**
+     * Reaplicar sobre la versión persistida los cambios de la copia local respecto de su base.
+     * Se llama bajo el monitor de la sesión local
+     */
+    private static void rebase(CartSession local, Base base, CartSession current) {
+        Map<Long, CartItem> merged = new LinkedHashMap<>();
+        for (CartItem item : current.getItems()) {
+            merged.put(item.getProductId(), item);
+        }
+
+        for (CartItem item : local.getItems()) {
+            int baseQuantity = base.quantities.getOrDefault(item.getProductId(), 0);
+            if (item.getQuantity() == baseQuantity) {
+                continue;
+            }
+            CartItem persisted = merged.get(item.getProductId());
+            if (persisted == null) {
+                merged.put(item.getProductId(), item);
+            } else {
+                persisted.setQuantity(Math.max(1, persisted.getQuantity() + item.getQuantity() - baseQuantity));
+            }
+        }
+        for (Long productId : base.quantities.keySet()) {
+            if (!local.containsProduct(productId)) {
+                merged.remove(productId);
+            }
+        }
+        local.setItems(new ArrayList<>(merged.values()));
+
+        if (Objects.equals(local.getDiscountCode(), base.discountCode)) {
+            if (current.getDiscountCode() != null) {
+                local.applyDiscount(current.getDiscountCode(), current.getDiscountAmount());
+            } else {
+                local.removeDiscount();
+            }
+        }
+    }
+
+    /**
+     * Items y descuento de una versión de la sesión, tomados bajo su monitor
+     */
+    private record Base(Map<Long, Integer> quantities, String discountCode) {
+
+        static final Base EMPTY = new Base(Map.of(), null);
+
+        static Base of(CartSession cartSession) {
+            synchronized (cartSession) {
+                Map<Long, Integer> quantities = new HashMap<>();
+                for (CartItem item : cartSession.getItems()) {
+                    quantities.put(item.getProductId(), item.getQuantity());
+                }
+                return new Base(quantities, cartSession.getDiscountCode());
+            }
+        }
+    }
+}
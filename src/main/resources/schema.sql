@@ -47,6 +47,7 @@ CREATE TABLE IF NOT EXISTS item (
                                     code_reference VARCHAR(100) NOT NULL UNIQUE,
     name VARCHAR(255) NOT NULL,
     quantity INT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     discount_rate DECIMAL(5,2) NOT NULL DEFAULT 0.00,
     price DECIMAL(12,2) NOT NULL,
     tax_rate DECIMAL(5,2) NOT NULL DEFAULT 0.00,
@@ -58,6 +59,12 @@ CREATE TABLE IF NOT EXISTS item (
     FOREIGN KEY (cart_id) REFERENCES cart(id) ON DELETE CASCADE ON UPDATE CASCADE
     ) ENGINE=InnoDB;
 
+-- Actualización de bases existentes: versión para el bloqueo optimista de productos.
+-- Las filas anteriores a la columna (o con la columna nula) quedan en la versión inicial 0
+ALTER TABLE item ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+UPDATE item SET version = 0 WHERE version IS NULL;
+ALTER TABLE item MODIFY COLUMN version BIGINT NOT NULL DEFAULT 0;
+
 -- Tabla de pagos
 CREATE TABLE IF NOT EXISTS payment (
                                        id INT AUTO_INCREMENT PRIMARY KEY,
@@ -65,9 +72,21 @@ CREATE TABLE IF NOT EXISTS payment (
                                        description VARCHAR(255),
     price DECIMAL(12,2) NOT NULL,
     method VARCHAR(50),
-    status VARCHAR(50)
+    status VARCHAR(50),
+    order_number VARCHAR(32),
+    status_message VARCHAR(255),
+    created_at DATETIME(6),
+    updated_at DATETIME(6),
+    INDEX idx_payment_order_number (order_number)
     ) ENGINE=InnoDB;
 
+-- Actualización de bases existentes: el estado del pago de cada orden se consulta desde esta tabla
+ALTER TABLE payment ADD COLUMN IF NOT EXISTS order_number VARCHAR(32);
+ALTER TABLE payment ADD COLUMN IF NOT EXISTS status_message VARCHAR(255);
+ALTER TABLE payment ADD COLUMN IF NOT EXISTS created_at DATETIME(6);
+ALTER TABLE payment ADD COLUMN IF NOT EXISTS updated_at DATETIME(6);
+CREATE INDEX IF NOT EXISTS idx_payment_order_number ON payment (order_number);
+
 -- ========================================
 -- Tablas para Spring Session (MariaDB/MySQL)
 -- ========================================
@@ -94,3 +113,85 @@ CREATE TABLE IF NOT EXISTS SPRING_SESSION_ATTRIBUTES (
     CONSTRAINT SPRING_SESSION_ATTRIBUTES_FK FOREIGN KEY (SESSION_PRIMARY_ID)
     REFERENCES SPRING_SESSION (PRIMARY_ID) ON DELETE CASCADE
     ) ENGINE=InnoDB ROW_FORMAT=DYNAMIC;
+
+-- ========================================
+-- Sesiones de carrito (almacén JDBC, app.cart.store=jdbc)
+-- ========================================
+CREATE TABLE IF NOT EXISTS cart_session (
+                                            session_id VARCHAR(128) NOT NULL PRIMARY KEY,
+    payload MEDIUMBLOB NOT NULL,
+    updated_at BIGINT NOT NULL,
+    version BIGINT NOT NULL DEFAULT 1,
+    INDEX idx_cart_session_updated_at (updated_at)
+    ) ENGINE=InnoDB;
+
+-- ========================================
+-- Órdenes de venta
+-- ========================================
+CREATE TABLE IF NOT EXISTS sales_order (
+                                           id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                           order_number VARCHAR(32) NOT NULL UNIQUE,
+    customer_id BIGINT,
+    customer_name VARCHAR(255),
+    shipping_address VARCHAR(500),
+    shipping_method VARCHAR(50),
+    shipping_cost DECIMAL(12,2),
+    subtotal DECIMAL(12,2),
+    tax DECIMAL(12,2),
+    total DECIMAL(12,2),
+    status VARCHAR(20) NOT NULL,
+    tracking_number VARCHAR(100),
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6),
+    shipped_at DATETIME(6),
+    delivered_at DATETIME(6),
+    INDEX idx_sales_order_status (status, created_at),
+    INDEX idx_sales_order_customer (customer_id, created_at),
+    INDEX idx_sales_order_created_at (created_at),
+    INDEX idx_sales_order_updated_at (updated_at)
+    ) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS order_line (
+                                          id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                          order_id BIGINT NOT NULL,
+                                          product_id BIGINT NOT NULL,
+                                          product_name VARCHAR(255),
+    price DECIMAL(12,2),
+    quantity INT NOT NULL,
+    subtotal DECIMAL(12,2),
+    image VARCHAR(500),
+    INDEX idx_order_line_order (order_id),
+    INDEX idx_order_line_product (product_id),
+    FOREIGN KEY (order_id) REFERENCES sales_order(id) ON DELETE CASCADE ON UPDATE CASCADE
+    ) ENGINE=InnoDB;
+
+-- Marca de agua de la secuencia diaria de números de orden (reserva por bloques)
+CREATE TABLE IF NOT EXISTS order_number_block (
+                                                  day CHAR(8) NOT NULL PRIMARY KEY,
+    high_water BIGINT NOT NULL
+    ) ENGINE=InnoDB;
+
+-- Claves de idempotencia de peticiones (checkout) para almacenes multinodo
+CREATE TABLE IF NOT EXISTS idempotency_key (
+                                               id_key VARCHAR(200) NOT NULL PRIMARY KEY,
+    outcome VARCHAR(255) NULL,
+    created_at BIGINT NOT NULL,
+    INDEX idx_idempotency_key_created_at (created_at)
+    ) ENGINE=InnoDB;
+
+-- Outbox transaccional de notificaciones: se escribe en la misma transacción que la orden
+CREATE TABLE IF NOT EXISTS notification_outbox (
+                                                   id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                                                   event_type VARCHAR(64) NOT NULL,
+    aggregate_id VARCHAR(64) NOT NULL,
+    payload TEXT NOT NULL,
+    status VARCHAR(16) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at BIGINT NOT NULL,
+    claim_token VARCHAR(36) NULL,
+    claimed_until BIGINT NOT NULL DEFAULT 0,
+    last_error VARCHAR(500) NULL,
+    created_at BIGINT NOT NULL,
+    INDEX idx_notification_outbox_due (status, next_attempt_at),
+    INDEX idx_notification_outbox_claim (claim_token)
+    ) ENGINE=InnoDB;
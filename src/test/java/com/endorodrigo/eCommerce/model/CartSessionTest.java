@@ -0,0 +1,107 @@
+package com.endorodrigo.eCommerce.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CartSessionTest {
+
+    @Test
+    void totalsFollowItemChanges() {
+        CartSession cartSession = new CartSession();
+        cartSession.addItem(new CartItem(1L, "A", new BigDecimal("10.00"), 2));
+        cartSession.addItem(new CartItem(2L, "B", new BigDecimal("5.50"), 1));
+
+        assertThat(cartSession.getSubtotal()).isEqualByComparingTo("25.50");
+        assertThat(cartSession.getTotalQuantity()).isEqualTo(3);
+
+        cartSession.updateItemQuantity(1L, 5);
+        assertThat(cartSession.getSubtotal()).isEqualByComparingTo("55.50");
+        assertThat(cartSession.getTotalQuantity()).isEqualTo(6);
+
+        cartSession.applyDiscount("PROMO", new BigDecimal("5.50"));
+        assertThat(cartSession.getTotal()).isEqualByComparingTo("50.00");
+
+        cartSession.removeItemById(2L);
+        assertThat(cartSession.getSubtotal()).isEqualByComparingTo("50.00");
+        assertThat(cartSession.getTotal()).isEqualByComparingTo("44.50");
+
+        cartSession.removeDiscount();
+        assertThat(cartSession.getTotal()).isEqualByComparingTo("50.00");
+
+        cartSession.clearItems();
+        assertThat(cartSession.getSubtotal()).isEqualByComparingTo("0");
+        assertThat(cartSession.getTotalQuantity()).isZero();
+        assertThat(cartSession.isEmpty()).isTrue();
+    }
+
+    @Test
+    void concurrentMutatorsKeepTotalsConsistent() throws Exception {
+        CartSession cartSession = new CartSession();
+        int products = 8;
+        for (long id = 1; id <= products; id++) {
+            cartSession.addItem(new CartItem(id, "P" + id, new BigDecimal("1.25"), 1));
+        }
+
+        int threads = 8;
+        int rounds = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                long productId = t + 1;
+                boolean discounts = t % 2 == 0;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 1; i <= rounds; i++) {
+                        cartSession.updateItemQuantity(productId, i % 7 + 1);
+                        if (discounts) {
+                            cartSession.applyDiscount("D", BigDecimal.ONE);
+                            cartSession.removeDiscount();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        BigDecimal expectedSubtotal = BigDecimal.ZERO;
+        int expectedQuantity = 0;
+        for (CartItem item : cartSession.getItems()) {
+            expectedSubtotal = expectedSubtotal.add(item.getSubtotal());
+            expectedQuantity += item.getQuantity();
+        }
+        assertThat(cartSession.getSubtotal()).isEqualByComparingTo(expectedSubtotal);
+        assertThat(cartSession.getTotalQuantity()).isEqualTo(expectedQuantity);
+        assertThat(cartSession.getTotal()).isEqualByComparingTo(expectedSubtotal);
+    }
+
+    @Test
+    void emptyViewRejectsMutations() {
+        CartSession view = CartSession.emptyView();
+
+        assertThat(view.isReadOnly()).isTrue();
+        assertThat(view.getItems()).isEmpty();
+        assertThatThrownBy(() -> view.updateItemQuantity(1L, 2))
+            .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> view.applyDiscount("X", BigDecimal.ONE))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
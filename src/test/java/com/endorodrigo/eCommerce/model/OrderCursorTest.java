@@ -0,0 +1,35 @@
+package com.endorodrigo.eCommerce.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderCursorTest {
+
+    @Test
+    void encodedCursorRoundTrips() {
+        OrderCursor cursor = new OrderCursor(LocalDateTime.of(2024, 12, 1, 10, 30, 15, 123_456_000), "ORD-20241201-000042");
+
+        String encoded = cursor.encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+        assertThat(OrderCursor.decode(encoded)).isEqualTo(cursor);
+    }
+
+    @Test
+    void blankCursorMeansFirstPage() {
+        assertThat(OrderCursor.decode(null)).isNull();
+        assertThat(OrderCursor.decode("  ")).isNull();
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> OrderCursor.decode("not a cursor!"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OrderCursor.decode(new OrderCursor(null, "X").encode()))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
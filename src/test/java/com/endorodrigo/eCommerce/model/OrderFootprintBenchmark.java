@@ -0,0 +1,105 @@
+package com.endorodrigo.eCommerce.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark de memoria: órdenes como OrderRecord frente al HashMap por orden (y por línea)
+ * que usaba SalesService antes de los registros tipados. Mide el heap retenido después de GC.
+ * No forma parte de la suite normal; se ejecuta explícitamente:
+ *
+ *   mvn test -Dtest=OrderFootprintBenchmark -DargLine=-Xmx2g [-Dbenchmark.orders=200000]
+ */
+class OrderFootprintBenchmark {
+
+    private static final int LINES_PER_ORDER = 3;
+
+    @Test
+    void compareRecordAndMapFootprint() {
+        int orders = Integer.getInteger("benchmark.orders", 200_000);
+        LocalDateTime now = LocalDateTime.now();
+
+        long mapBytes = retainedBytes(orders, i -> legacyOrder(i, now));
+        long recordBytes = retainedBytes(orders, i -> record(i, now));
+
+        System.out.printf("%,d órdenes de %d líneas: HashMap %,d bytes/orden, OrderRecord %,d bytes/orden (%.1fx)%n",
+            orders, LINES_PER_ORDER, mapBytes / orders, recordBytes / orders, (double) mapBytes / recordBytes);
+        assertThat(recordBytes).isLessThan(mapBytes);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static long retainedBytes(int count, IntFunction<Object> factory) {
+        long before = usedAfterGc();
+        List<Object> retained = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            retained.add(factory.apply(i));
+        }
+        long after = usedAfterGc();
+        // Mantener la lista viva hasta después de medir
+        assertThat(retained.size()).isEqualTo(count);
+        return after - before;
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Representación original: un HashMap por orden y otro por línea, montos BigDecimal y estado String
+    private static Object legacyOrder(int i, LocalDateTime now) {
+        Map<String, Object> order = new HashMap<>();
+        order.put("orderNumber", orderNumber(i));
+        order.put("customerId", (long) (i % 10_000));
+        order.put("customerName", "Cliente " + (i % 10_000));
+        order.put("shippingAddress", "Calle " + (i % 10_000));
+        order.put("shippingMethod", "standard");
+        order.put("shippingCost", new BigDecimal("5.00"));
+        order.put("subtotal", BigDecimal.valueOf(3_000 + i % 1_000, 2));
+        order.put("tax", BigDecimal.valueOf(570 + i % 100, 2));
+        order.put("total", BigDecimal.valueOf(4_070 + i % 1_000, 2));
+        order.put("status", "PENDING");
+        order.put("createdAt", now.plusSeconds(i));
+        order.put("updatedAt", now.plusSeconds(i));
+
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int l = 0; l < LINES_PER_ORDER; l++) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("productId", (long) (l + i % 500));
+            item.put("productName", "Producto " + l);
+            item.put("price", BigDecimal.valueOf(1_000 + l, 2));
+            item.put("quantity", 1 + l);
+            item.put("subtotal", BigDecimal.valueOf((1_000 + l) * (1 + l), 2));
+            item.put("image", null);
+            items.add(item);
+        }
+        return new Object[]{order, items};
+    }
+
+    private static Object record(int i, LocalDateTime now) {
+        List<OrderLineRecord> lines = new ArrayList<>(LINES_PER_ORDER);
+        for (int l = 0; l < LINES_PER_ORDER; l++) {
+            lines.add(new OrderLineRecord(l + i % 500, "Producto " + l, 1_000 + l, 1 + l, null));
+        }
+        return new OrderRecord(orderNumber(i), i % 10_000, "Cliente " + (i % 10_000), "Calle " + (i % 10_000),
+            "standard", 500, 3_000 + i % 1_000, 570 + i % 100, 4_070 + i % 1_000, OrderStatus.PENDING, null,
+            now.plusSeconds(i), now.plusSeconds(i), null, null, List.copyOf(lines));
+    }
+
+    private static String orderNumber(int i) {
+        return String.format("ORD-20250101-%06d", i);
+    }
+}
@@ -0,0 +1,55 @@
+package com.endorodrigo.eCommerce.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.IncorrectUpdateSemanticsDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductStockRepositoryImplTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ProductStockRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        repository = new ProductStockRepositoryImpl(jdbcTemplate);
+    }
+
+    @Test
+    void productsWithoutStockAreReportedInIdOrder() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] {1, 0, 1});
+
+        List<Long> insufficient = repository.decrementStockIfAvailable(Map.of(30L, 1, 10L, 2, 20L, 5));
+
+        assertThat(insufficient).containsExactly(20L);
+
+        // El lote bloquea las filas en orden de id
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batch.capture());
+        assertThat(batch.getValue()).extracting(args -> args[1]).containsExactly(10L, 20L, 30L);
+    }
+
+    @Test
+    void unknownRowCountsFailClosed() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+            .thenReturn(new int[] {1, Statement.SUCCESS_NO_INFO});
+
+        assertThatThrownBy(() -> repository.decrementStockIfAvailable(Map.of(1L, 1, 2L, 1)))
+            .isInstanceOf(IncorrectUpdateSemanticsDataAccessException.class);
+    }
+}
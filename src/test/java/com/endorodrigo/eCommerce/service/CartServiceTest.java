@@ -0,0 +1,192 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartItem;
+import com.endorodrigo.eCommerce.model.CartOperation;
+import com.endorodrigo.eCommerce.model.CartSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CartServiceTest {
+
+    private InMemoryCartStore cartStore;
+    private CartStatistics cartStatistics;
+    private CartService cartService;
+
+    @BeforeEach
+    void setUp() {
+        cartStore = new InMemoryCartStore(10_000, Long.MAX_VALUE, 60);
+        cartStatistics = new CartStatistics(cartStore);
+        cartStatistics.register();
+
+        StockSnapshotCache stockSnapshotCache = mock(StockSnapshotCache.class);
+        Answer<Map<Long, Integer>> plentyOfStock = invocation -> {
+            Map<Long, Integer> stock = new HashMap<>();
+            for (Object productId : invocation.getArgument(0, Collection.class)) {
+                stock.put((Long) productId, 1_000_000);
+            }
+            return stock;
+        };
+        when(stockSnapshotCache.getStock(anyCollection())).thenAnswer(plentyOfStock);
+        when(stockSnapshotCache.getCurrentStock(anyCollection())).thenAnswer(plentyOfStock);
+
+        StockReservationLedger reservations = new StockReservationLedger(cartStore, 15);
+        reservations.register();
+        cartService = new CartService(cartStore, cartStatistics, stockSnapshotCache, reservations, 4);
+    }
+
+    @Test
+    void concurrentAddsToSameCartAreSerialized() throws Exception {
+        int threads = 8;
+        int addsPerThread = 500;
+
+        runConcurrently(threads, thread -> {
+            for (int i = 0; i < addsPerThread; i++) {
+                assertThat(cartService.addToCart("s1", new CartItem(1L, "A", new BigDecimal("2.00"), 1))).isTrue();
+            }
+        });
+
+        CartSession cartSession = cartService.findCartSession("s1");
+        int expected = threads * addsPerThread;
+        assertThat(cartSession.findItemById(1L).getQuantity()).isEqualTo(expected);
+        assertThat(cartSession.getTotalQuantity()).isEqualTo(expected);
+        assertThat(cartSession.getSubtotal()).isEqualByComparingTo(new BigDecimal("2.00").multiply(BigDecimal.valueOf(expected)));
+    }
+
+    @Test
+    void sessionsSharingStripesDoNotLoseUpdates() throws Exception {
+        // 4 franjas y 32 sesiones: varias sesiones comparten lock
+        int sessions = 32;
+
+        runConcurrently(8, thread -> {
+            for (int i = 0; i < 200; i++) {
+                String sessionId = "s" + ((thread * 200 + i) % sessions);
+                cartService.addToCart(sessionId, new CartItem((long) (i % 3 + 1), "P", BigDecimal.ONE, 1));
+            }
+        });
+
+        int totalQuantity = 0;
+        for (int s = 0; s < sessions; s++) {
+            totalQuantity += cartService.getCartItemCount("s" + s);
+        }
+        assertThat(totalQuantity).isEqualTo(8 * 200);
+
+        Map<String, Object> statistics = cartStatistics.snapshot();
+        assertThat(statistics.get("totalSessions")).isEqualTo((long) sessions);
+        assertThat(statistics.get("totalValue")).isEqualTo(new BigDecimal("1600.00"));
+    }
+
+    @Test
+    void batchReportsSubtotalAndRejectedOperations() {
+        cartService.addToCart("s1", new CartItem(1L, "A", new BigDecimal("3.00"), 1));
+        cartService.applyDiscount("s1", "PROMO", BigDecimal.ONE);
+
+        Map<String, Object> result = cartService.applyBatch("s1", List.of(
+            new CartOperation(CartOperation.UPDATE, 1L, 4),
+            new CartOperation(CartOperation.REMOVE, 99L, 0),
+            new CartOperation("unknown", 1L, 1)
+        ));
+
+        assertThat(result.get("applied")).isEqualTo(1);
+        assertThat((List<?>) result.get("failed")).hasSize(2);
+        // El subtotal no incluye el descuento
+        assertThat((BigDecimal) result.get("subtotal")).isEqualByComparingTo("12.00");
+        assertThat(result).doesNotContainKey("total");
+        assertThat(result.get("itemCount")).isEqualTo(4);
+    }
+
+    @Test
+    void rejectedChangesReportStockNetOfOtherCartsHolds() {
+        CartService limited = limitedStockService(5);
+
+        assertThat(limited.addToCart("s1", new CartItem(1L, "A", BigDecimal.ONE, 3))).isTrue();
+        assertThat(limited.addToCart("s2", new CartItem(1L, "A", BigDecimal.ONE, 3))).isFalse();
+        assertThat(limited.addToCart("s2", new CartItem(1L, "A", BigDecimal.ONE, 2))).isTrue();
+        assertThat(limited.updateCartItemQuantity("s2", 1L, 3)).isFalse();
+
+        // La reserva propia cuenta como disponible para la sesión que la tiene
+        assertThat(limited.getAvailableQuantity("s1", 1L)).isEqualTo(3);
+        assertThat(limited.getAvailableQuantity("s2", 1L)).isEqualTo(2);
+        assertThat(limited.getAvailableQuantity("s3", 1L)).isZero();
+        assertThat(limited.findCartSession("s2").findItemById(1L).getQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    void refusedHoldDoesNotCreateTheCart() {
+        CartService limited = limitedStockService(5);
+
+        assertThat(limited.addToCart("s1", new CartItem(1L, "A", BigDecimal.ONE, 6))).isFalse();
+
+        assertThat(cartStore.get("s1")).isNull();
+        assertThat(cartStatistics.snapshot().get("totalSessions")).isEqualTo(0L);
+    }
+
+    @Test
+    void holdsAreCheckedAgainstCurrentStockNotTheSnapshot() {
+        StockSnapshotCache stock = mock(StockSnapshotCache.class);
+        // La instantánea aún muestra stock que ya se vendió
+        when(stock.getStock(anyCollection())).thenReturn(Map.of(1L, 5));
+        when(stock.getCurrentStock(anyCollection())).thenReturn(Map.of(1L, 1));
+        StockReservationLedger reservations = new StockReservationLedger(cartStore, 15);
+        reservations.register();
+        CartService service = new CartService(cartStore, cartStatistics, stock, reservations, 4);
+
+        assertThat(service.addToCart("s1", new CartItem(1L, "A", BigDecimal.ONE, 2))).isFalse();
+        assertThat(service.addToCart("s1", new CartItem(1L, "A", BigDecimal.ONE, 1))).isTrue();
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private CartService limitedStockService(int stock) {
+        StockSnapshotCache limitedStock = mock(StockSnapshotCache.class);
+        when(limitedStock.getStock(anyCollection())).thenReturn(Map.of(1L, stock));
+        when(limitedStock.getCurrentStock(anyCollection())).thenReturn(Map.of(1L, stock));
+        StockReservationLedger reservations = new StockReservationLedger(cartStore, 15);
+        reservations.register();
+        return new CartService(cartStore, cartStatistics, limitedStock, reservations, 4);
+    }
+
+    private static void runConcurrently(int threads, ThreadBody body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    body.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadBody {
+        void run(int thread) throws Exception;
+    }
+}
@@ -0,0 +1,54 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartItem;
+import com.endorodrigo.eCommerce.model.CartSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Benchmark de guardado y restauración del snapshot de carritos (por defecto 1M carritos de 2 líneas).
+ * No forma parte de la suite normal; se ejecuta explícitamente:
+ *
+ *   mvn test -Dtest=CartSnapshotRestoreBenchmark -DargLine=-Xmx3g [-Dbenchmark.carts=1000000]
+ */
+class CartSnapshotRestoreBenchmark {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoreOneMillionCarts() throws Exception {
+        int carts = Integer.getInteger("benchmark.carts", 1_000_000);
+        Path file = directory.resolve("cart-snapshot.bin");
+
+        InMemoryCartStore store = new InMemoryCartStore(carts + 1, Long.MAX_VALUE, 1440);
+        for (int i = 0; i < carts; i++) {
+            CartSession cartSession = store.getOrCreate("session-" + i);
+            cartSession.addItem(new CartItem((long) (i % 5_000), "Producto " + (i % 5_000), new BigDecimal("19.99"), 1 + i % 3));
+            cartSession.addItem(new CartItem((long) (5_000 + i % 700), "Accesorio " + (i % 700), new BigDecimal("4.50"), 1));
+        }
+
+        long start = System.nanoTime();
+        new CartSnapshotService(store, true, file.toString(), 1440).snapshotOnShutdown();
+        long writeMillis = (System.nanoTime() - start) / 1_000_000;
+        long bytes = Files.size(file);
+
+        store = null;
+        System.gc();
+
+        InMemoryCartStore restored = new InMemoryCartStore(carts + 1, Long.MAX_VALUE, 1440);
+        start = System.nanoTime();
+        new CartSnapshotService(restored, true, file.toString(), 1440).restoreOnStartup();
+        long restoreMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("Snapshot de %,d carritos: %,d bytes, guardado en %,d ms, restaurado en %,d ms%n",
+            carts, bytes, writeMillis, restoreMillis);
+        assertThat(restored.size()).isEqualTo(carts);
+    }
+}
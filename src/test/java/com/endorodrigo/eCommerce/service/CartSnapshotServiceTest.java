@@ -0,0 +1,58 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartItem;
+import com.endorodrigo.eCommerce.model.CartSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartSnapshotServiceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shutdownSnapshotIsRestoredAndConsumed() {
+        Path file = directory.resolve("carts.bin");
+        InMemoryCartStore store = new InMemoryCartStore(1_000, Long.MAX_VALUE, 60);
+        for (int i = 0; i < 100; i++) {
+            CartSession cartSession = store.getOrCreate("s" + i);
+            cartSession.addItem(new CartItem((long) i, "P" + i, new BigDecimal("1.10"), i + 1));
+            cartSession.applyDiscount("D", new BigDecimal("0.10"));
+        }
+        new CartSnapshotService(store, true, file.toString(), 60).snapshotOnShutdown();
+
+        InMemoryCartStore restored = new InMemoryCartStore(1_000, Long.MAX_VALUE, 60);
+        new CartSnapshotService(restored, true, file.toString(), 60).restoreOnStartup();
+
+        assertThat(restored.size()).isEqualTo(100);
+        CartSession cartSession = restored.get("s41");
+        assertThat(cartSession.findItemById(41L).getQuantity()).isEqualTo(42);
+        assertThat(cartSession.getSubtotal()).isEqualByComparingTo("46.20");
+        assertThat(cartSession.getTotal()).isEqualByComparingTo("46.10");
+        assertThat(Files.exists(file)).isFalse();
+    }
+
+    @Test
+    void truncatedSnapshotRestoresTheCompleteRecords() throws Exception {
+        Path file = directory.resolve("carts.bin");
+        InMemoryCartStore store = new InMemoryCartStore(1_000, Long.MAX_VALUE, 60);
+        for (int i = 0; i < 10; i++) {
+            store.getOrCreate("s" + i).addItem(new CartItem(1L, "P", BigDecimal.ONE, 1));
+        }
+        new CartSnapshotService(store, true, file.toString(), 60).snapshotOnShutdown();
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 5));
+
+        InMemoryCartStore restored = new InMemoryCartStore(1_000, Long.MAX_VALUE, 60);
+        new CartSnapshotService(restored, true, file.toString(), 60).restoreOnStartup();
+
+        assertThat(restored.size()).isEqualTo(9);
+    }
+}
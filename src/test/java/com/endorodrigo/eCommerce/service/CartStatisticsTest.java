@@ -0,0 +1,108 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartItem;
+import com.endorodrigo.eCommerce.model.CartSession;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartStatisticsTest {
+
+    @Test
+    void registerCountsSessionsAlreadyInTheStore() {
+        InMemoryCartStore store = new InMemoryCartStore(1_000, Long.MAX_VALUE, 60);
+        CartSession restored = store.getOrCreate("restored");
+        restored.addItem(new CartItem(1L, "A", new BigDecimal("4.50"), 2));
+
+        CartStatistics statistics = new CartStatistics(store);
+        statistics.register();
+
+        Map<String, Object> snapshot = statistics.snapshot();
+        assertThat(snapshot.get("totalSessions")).isEqualTo(1L);
+        assertThat(snapshot.get("activeSessions")).isEqualTo(1L);
+        assertThat(snapshot.get("totalValue")).isEqualTo(new BigDecimal("9.00"));
+    }
+
+    @Test
+    void changesRacingWithRemovalsKeepExactCounts() throws Exception {
+        InMemoryCartStore store = new InMemoryCartStore(100_000, Long.MAX_VALUE, 60);
+        CartStatistics statistics = new CartStatistics(store);
+        statistics.register();
+
+        int threads = 6;
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                writers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 3_000; i++) {
+                        String sessionId = "t" + thread + "-" + (i % 50);
+                        CartSession cartSession = store.getOrCreate(sessionId);
+                        // Cada hilo es dueño de sus sesiones, como el lock por sesión de CartService
+                        try {
+                            if (i % 3 == 2) {
+                                cartSession.clearItems();
+                            } else {
+                                cartSession.addItem(new CartItem((long) (i % 4), "P", BigDecimal.ONE, i % 5 + 1));
+                            }
+                        } finally {
+                            statistics.onModified(cartSession);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            // Expiraciones y desalojos: bajas que no toman el lock de la sesión que se modifica
+            Future<?> remover = executor.submit(() -> {
+                start.await();
+                int i = 0;
+                while (running.get()) {
+                    store.remove("t" + (i % threads) + "-" + (i % 50));
+                    i += 7;
+                }
+                return null;
+            });
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            running.set(false);
+            remover.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long active = 0;
+        long items = 0;
+        BigDecimal value = BigDecimal.ZERO;
+        for (CartSession cartSession : store.sessions()) {
+            if (!cartSession.isEmpty()) {
+                active++;
+                items += cartSession.getItemCount();
+                value = value.add(cartSession.getSubtotal());
+            }
+        }
+
+        Map<String, Object> snapshot = statistics.snapshot();
+        assertThat(snapshot.get("totalSessions")).isEqualTo((long) store.size());
+        assertThat(snapshot.get("activeSessions")).isEqualTo(active);
+        assertThat(snapshot.get("totalItems")).isEqualTo(items);
+        assertThat((BigDecimal) snapshot.get("totalValue")).isEqualByComparingTo(value);
+    }
+}
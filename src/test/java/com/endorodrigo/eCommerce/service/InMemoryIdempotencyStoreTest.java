@@ -0,0 +1,85 @@
+package com.endorodrigo.eCommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryIdempotencyStoreTest {
+
+    @Test
+    void retriesSeeTheReservationAndThenTheOutcome() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(60);
+
+        assertThat(store.begin("k1")).isNull();
+        IdempotencyStore.Entry inProgress = store.begin("k1");
+        assertThat(inProgress).isNotNull();
+        assertThat(inProgress.isCompleted()).isFalse();
+
+        store.complete("k1", "redirect:/sales/confirmation/ORD-1");
+        assertThat(store.begin("k1").outcome()).isEqualTo("redirect:/sales/confirmation/ORD-1");
+
+        // Una clave completada no se libera
+        store.release("k1");
+        assertThat(store.begin("k1").isCompleted()).isTrue();
+    }
+
+    @Test
+    void releasedKeyCanBeReservedAgain() {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(60);
+
+        assertThat(store.begin("k1")).isNull();
+        store.release("k1");
+
+        assertThat(store.begin("k1")).isNull();
+    }
+
+    @Test
+    void expiredKeysAreReplacedAndPurged() throws Exception {
+        // TTL cero: la clave expira en cuanto avanza el reloj
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(0);
+        assertThat(store.begin("k1")).isNull();
+        store.complete("k1", "done");
+        assertThat(store.begin("k2")).isNull();
+        Thread.sleep(5);
+
+        assertThat(store.begin("k1")).isNull();
+        Thread.sleep(5);
+        assertThat(store.purgeExpired()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrentRequestsReserveTheKeyOnce() throws Exception {
+        InMemoryIdempotencyStore store = new InMemoryIdempotencyStore(60);
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<IdempotencyStore.Entry>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return store.begin("checkout");
+                }));
+            }
+            start.countDown();
+
+            int reserved = 0;
+            for (Future<IdempotencyStore.Entry> future : futures) {
+                if (future.get(10, TimeUnit.SECONDS) == null) {
+                    reserved++;
+                }
+            }
+            assertThat(reserved).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.Item;
+import com.endorodrigo.eCommerce.repository.IProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Actualizaciones desde formularios: la versión viaja con el formulario y nunca se relee antes de guardar
+ */
+class ItemServiceTest {
+
+    private IProductRepository productRepository;
+    private ItemService itemService;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(IProductRepository.class);
+        itemService = new ItemService(productRepository, mock(StockSnapshotCache.class), mock(InventoryContention.class));
+    }
+
+    @Test
+    void updateSavesWithTheVersionTheFormRead() {
+        Item submitted = item(1L, 3L);
+        when(productRepository.save(submitted)).thenReturn(submitted);
+
+        assertThat(itemService.update(submitted)).isSameAs(submitted);
+        assertThat(submitted.getVersion()).isEqualTo(3L);
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void staleVersionSurfacesInsteadOfOverwriting() {
+        Item submitted = item(1L, 3L);
+        when(productRepository.save(submitted)).thenThrow(new ObjectOptimisticLockingFailureException(Item.class, 1L));
+
+        assertThatThrownBy(() -> itemService.update(submitted)).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThatThrownBy(() -> itemService.save(submitted)).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        verify(productRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void updateWithoutVersionIsRejectedAsAConflict() {
+        Item submitted = item(1L, null);
+
+        assertThatThrownBy(() -> itemService.update(submitted)).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThatThrownBy(() -> itemService.save(submitted)).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        verify(productRepository, never()).save(any());
+    }
+
+    @Test
+    void legacyRowWithoutVersionGetsTheInitialVersion() {
+        Item submitted = item(1L, null);
+        when(productRepository.initializeVersion(1L)).thenReturn(1);
+        when(productRepository.save(submitted)).thenReturn(submitted);
+
+        assertThat(itemService.update(submitted)).isSameAs(submitted);
+        assertThat(submitted.getVersion()).isZero();
+    }
+
+    @Test
+    void newProductsNeedNoVersion() {
+        Item submitted = item(null, null);
+        when(productRepository.save(submitted)).thenReturn(submitted);
+
+        assertThat(itemService.save(submitted)).isSameAs(submitted);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static Item item(Long id, Long version) {
+        Item item = new Item();
+        item.setId(id);
+        item.setVersion(version);
+        item.setName("P" + id);
+        item.setQuantity(5);
+        return item;
+    }
+}
@@ -0,0 +1,79 @@
+package com.endorodrigo.eCommerce.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Protocolo de reserva sobre la tabla idempotency_key: INSERT que gana un solo nodo,
+ * reintento tras borrar una clave expirada y lectura de la entrada existente
+ */
+class JdbcIdempotencyStoreTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private JdbcIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        store = new JdbcIdempotencyStore(jdbcTemplate, 60);
+    }
+
+    @Test
+    void firstInsertReservesTheKey() {
+        when(jdbcTemplate.update(startsWith("INSERT"), eq("k1"), anyLong())).thenReturn(1);
+
+        assertThat(store.begin("k1")).isNull();
+        verify(jdbcTemplate, never()).query(startsWith("SELECT"), ArgumentMatchers.<RowMapper<IdempotencyStore.Entry>>any(), eq("k1"));
+    }
+
+    @Test
+    void duplicateKeyReturnsTheExistingEntry() {
+        when(jdbcTemplate.update(startsWith("INSERT"), eq("k1"), anyLong()))
+            .thenThrow(new DuplicateKeyException("k1"));
+        when(jdbcTemplate.update(startsWith("DELETE"), eq("k1"), anyLong())).thenReturn(0);
+        when(jdbcTemplate.query(startsWith("SELECT"), ArgumentMatchers.<RowMapper<IdempotencyStore.Entry>>any(), eq("k1")))
+            .thenReturn(List.of(new IdempotencyStore.Entry("done", 1L)));
+
+        IdempotencyStore.Entry entry = store.begin("k1");
+
+        assertThat(entry.isCompleted()).isTrue();
+        assertThat(entry.outcome()).isEqualTo("done");
+    }
+
+    @Test
+    void expiredKeyIsDeletedAndReservedAgain() {
+        when(jdbcTemplate.update(startsWith("INSERT"), eq("k1"), anyLong()))
+            .thenThrow(new DuplicateKeyException("k1"))
+            .thenReturn(1);
+        when(jdbcTemplate.update(startsWith("DELETE"), eq("k1"), anyLong())).thenReturn(1);
+
+        assertThat(store.begin("k1")).isNull();
+    }
+
+    @Test
+    void rowDeletedBetweenInsertAndReadCountsAsInProgress() {
+        when(jdbcTemplate.update(startsWith("INSERT"), eq("k1"), anyLong()))
+            .thenThrow(new DuplicateKeyException("k1"));
+        when(jdbcTemplate.query(startsWith("SELECT"), ArgumentMatchers.<RowMapper<IdempotencyStore.Entry>>any(), eq("k1"))).thenReturn(List.of());
+
+        IdempotencyStore.Entry entry = store.begin("k1");
+
+        assertThat(entry).isNotNull();
+        assertThat(entry.isCompleted()).isFalse();
+    }
+}
@@ -0,0 +1,81 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartItem;
+import com.endorodrigo.eCommerce.model.CartSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedFileCartStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sessionsSurviveRestart() {
+        Path file = directory.resolve("carts.dat");
+
+        MappedFileCartStore store = open(file, 1 << 20);
+        addItem(store, "s1", 1L, 2);
+        addItem(store, "s2", 2L, 1);
+        store.remove("s2");
+        store.shutdown();
+
+        MappedFileCartStore reopened = open(file, 1 << 20);
+        try {
+            assertThat(reopened.size()).isEqualTo(1);
+            CartSession cartSession = reopened.get("s1");
+            assertThat(cartSession.findItemById(1L).getQuantity()).isEqualTo(2);
+            assertThat(cartSession.getSubtotal()).isEqualByComparingTo("20");
+            assertThat(reopened.get("s2")).isNull();
+        } finally {
+            reopened.shutdown();
+        }
+    }
+
+    @Test
+    void fullFileIsCompactedKeepingOnlyLiveSessions() {
+        Path file = directory.resolve("carts.dat");
+
+        // Capacidad para pocas decenas de registros: las reescrituras fuerzan la compactación
+        MappedFileCartStore store = open(file, 16 * 1024);
+        for (int round = 1; round <= 200; round++) {
+            for (int s = 0; s < 3; s++) {
+                String sessionId = "s" + s;
+                CartSession cartSession = store.getOrCreate(sessionId);
+                cartSession.addItem(new CartItem(1L, "P", BigDecimal.ONE, round));
+                store.markModified(sessionId);
+            }
+            store.flush();
+        }
+        assertThat((Integer) store.getMetrics().get("fileBytesUsed")).isLessThan(16 * 1024);
+        store.shutdown();
+
+        MappedFileCartStore reopened = open(file, 16 * 1024);
+        try {
+            assertThat(reopened.size()).isEqualTo(3);
+            for (int s = 0; s < 3; s++) {
+                assertThat(reopened.get("s" + s).findItemById(1L).getQuantity()).isEqualTo(200);
+            }
+        } finally {
+            reopened.shutdown();
+        }
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static MappedFileCartStore open(Path file, int capacityBytes) {
+        return new MappedFileCartStore(new InMemoryCartStore(1_000, Long.MAX_VALUE, 60), file, capacityBytes, 60);
+    }
+
+    private static void addItem(MappedFileCartStore store, String sessionId, Long productId, int quantity) {
+        CartSession cartSession = store.getOrCreate(sessionId);
+        cartSession.addItem(new CartItem(productId, "P" + productId, BigDecimal.TEN, quantity));
+        store.markModified(sessionId);
+    }
+}
@@ -0,0 +1,85 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Confirmaciones y reintentos condicionados al token del reclamo: un despachador cuyo plazo venció
+ * no pisa el reclamo de otro
+ */
+class NotificationOutboxTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private NotificationOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        outbox = new NotificationOutbox(jdbcTemplate, new ObjectMapper());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void markSentOnlyConfirmsRowsStillClaimedWithTheToken() throws Exception {
+        NotificationOutbox.Event first = event(1L, "t1");
+        NotificationOutbox.Event second = event(2L, "t1");
+        // La segunda fila la reclamó otro nodo: su UPDATE no encuentra el token
+        when(jdbcTemplate.batchUpdate(contains("claim_token = ?"), anyList(), anyInt(),
+            any(ParameterizedPreparedStatementSetter.class))).thenReturn(new int[][]{{1, 0}});
+
+        assertThat(outbox.markSent(List.of(first, second))).isEqualTo(1);
+
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<NotificationOutbox.Event>> setter =
+            ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), eq(List.of(first, second)), eq(2), setter.capture());
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, second);
+        verify(ps).setLong(1, 2L);
+        verify(ps).setString(2, "t1");
+    }
+
+    @Test
+    void markFailedReportsALostClaim() {
+        NotificationOutbox.Event event = event(1L, "t1");
+        when(jdbcTemplate.update(contains("claim_token = ?"), eq(NotificationOutbox.PENDING), eq(1), anyLong(),
+            anyString(), eq(1L), eq("t1"))).thenReturn(0);
+
+        assertThat(outbox.markFailed(event, "timeout", 0, false)).isFalse();
+    }
+
+    @Test
+    void markFailedReschedulesAClaimStillHeld() {
+        NotificationOutbox.Event event = event(1L, "t1");
+        when(jdbcTemplate.update(contains("claim_token = ?"), eq(NotificationOutbox.FAILED), eq(1), anyLong(),
+            anyString(), eq(1L), eq("t1"))).thenReturn(1);
+
+        assertThat(outbox.markFailed(event, "timeout", 0, true)).isTrue();
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static NotificationOutbox.Event event(long id, String claimToken) {
+        return new NotificationOutbox.Event(id, OutboxDispatcher.ORDER_PAID, "ORD-" + id, Map.of(), 0, claimToken);
+    }
+}
@@ -0,0 +1,100 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.OrderEvent;
+import com.endorodrigo.eCommerce.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderEventLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void historyReadsOnlyTheEventsOfTheOrderAcrossSegments() throws Exception {
+        // Segmentos pequeños: los eventos de una orden quedan repartidos en varios archivos
+        OrderEventLog log = open(512);
+        try {
+            for (int i = 0; i < 40; i++) {
+                log.append("ORD-" + (i % 4), null, OrderStatus.PENDING, null).get(5, TimeUnit.SECONDS);
+            }
+            log.append("ORD-1", OrderStatus.PENDING, OrderStatus.SHIPPED, "TRACK-1").get(5, TimeUnit.SECONDS);
+
+            List<OrderEvent> history = awaitHistory(log, "ORD-1", 11);
+            assertThat(history).extracting(OrderEvent::orderNumber).containsOnly("ORD-1");
+            assertThat(history).extracting(OrderEvent::sequence).isSorted();
+            assertThat(history.get(history.size() - 1).trackingNumber()).isEqualTo("TRACK-1");
+            assertThat(log.history("ORD-9")).isEmpty();
+        } finally {
+            log.stop();
+        }
+    }
+
+    @Test
+    void eventsWrittenBeforeARestartAreIndexedAgain() throws Exception {
+        OrderEventLog log = open(512);
+        for (int i = 0; i < 30; i++) {
+            log.append("ORD-" + (i % 3), null, OrderStatus.PAID, null).get(5, TimeUnit.SECONDS);
+        }
+        log.stop();
+
+        OrderEventLog reopened = open(512);
+        try {
+            reopened.append("ORD-2", OrderStatus.PAID, OrderStatus.DELIVERED, null).get(5, TimeUnit.SECONDS);
+
+            List<OrderEvent> history = awaitHistory(reopened, "ORD-2", 11);
+            assertThat(history).extracting(OrderEvent::sequence).isSorted().doesNotHaveDuplicates();
+            assertThat(history.get(history.size() - 1).status()).isEqualTo(OrderStatus.DELIVERED);
+            assertThat(history.get(history.size() - 1).sequence()).isEqualTo(31);
+        } finally {
+            reopened.stop();
+        }
+    }
+
+    @Test
+    void reconcileAddsTheDatabaseStateMissingFromTheLog() {
+        LocalDateTime now = LocalDateTime.now();
+        OrderEvent created = new OrderEvent(1, now.minusMinutes(5), "ORD-1", null, OrderStatus.PENDING, null);
+
+        // El cambio a SHIPPED se confirmó en otro nodo, o su evento se perdió en una caída
+        List<OrderEvent> history = OrderEventLog.reconcile(List.of(created), "ORD-1", OrderStatus.SHIPPED, "TRACK-1", now);
+        assertThat(history).hasSize(2);
+        assertThat(history.get(1).sequence()).isZero();
+        assertThat(history.get(1).previousStatus()).isEqualTo(OrderStatus.PENDING);
+        assertThat(history.get(1).status()).isEqualTo(OrderStatus.SHIPPED);
+        assertThat(history.get(1).occurredAt()).isEqualTo(now);
+
+        assertThat(OrderEventLog.reconcile(List.of(created), "ORD-1", OrderStatus.PENDING, null, now))
+            .containsExactly(created);
+        assertThat(OrderEventLog.reconcile(List.of(), "ORD-2", OrderStatus.PAID, null, now))
+            .extracting(OrderEvent::status).containsExactly(OrderStatus.PAID);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private OrderEventLog open(long segmentBytes) {
+        OrderEventLog log = new OrderEventLog(true, directory.toString(), segmentBytes);
+        log.start();
+        return log;
+    }
+
+    private static List<OrderEvent> awaitHistory(OrderEventLog log, String orderNumber, int expected) throws Exception {
+        // El índice de los segmentos previos se construye en segundo plano; el resultado no debe cambiar
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<OrderEvent> history = log.history(orderNumber);
+        while (history.size() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            history = log.history(orderNumber);
+        }
+        assertThat(history).hasSize(expected);
+        return history;
+    }
+}
@@ -0,0 +1,137 @@
+package com.endorodrigo.eCommerce.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reserva de bloques contra una marca de agua simulada: cada reserva avanza high_water en el tamaño del bloque
+ */
+class OrderNumberAllocatorTest {
+
+    private static final int BLOCK_SIZE = 10;
+
+    private final AtomicLong highWater = new AtomicLong();
+    // Lo que ve cada transacción tras su UPDATE (la fila queda bloqueada hasta leerla)
+    private final ThreadLocal<Long> reserved = new ThreadLocal<>();
+    private final List<String> reservingThreads = new CopyOnWriteArrayList<>();
+    private OrderNumberAllocator allocator;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.update(anyString(), eq(BLOCK_SIZE), anyString())).thenAnswer(invocation -> {
+            reservingThreads.add(Thread.currentThread().getName());
+            reserved.set(highWater.addAndGet(BLOCK_SIZE));
+            return 1;
+        });
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class), anyString()))
+            .thenAnswer(invocation -> reserved.get());
+
+        allocator = new OrderNumberAllocator(jdbcTemplate, mock(PlatformTransactionManager.class), BLOCK_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        allocator.shutdown();
+    }
+
+    @Test
+    void nextBlockIsReservedOffTheCallerThread() throws Exception {
+        // El primer bloque se reserva en la llamada; al consumir la mitad se pide el siguiente en segundo plano
+        for (int i = 0; i < BLOCK_SIZE / 2 + 1; i++) {
+            allocator.next();
+        }
+        awaitReservations(2);
+        awaitPrefetcherIdle();
+
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            numbers.add(allocator.next());
+        }
+
+        assertThat(reservingThreads.get(0)).isEqualTo(Thread.currentThread().getName());
+        assertThat(reservingThreads.get(1)).isEqualTo("order-number-prefetch");
+        assertThat(numbers).isSorted().doesNotHaveDuplicates();
+        assertThat(numbers.get(numbers.size() - 1)).endsWith(String.format("-%06d", BLOCK_SIZE + BLOCK_SIZE / 2 + 1));
+    }
+
+    @Test
+    void concurrentCallersNeverShareANumber() throws Exception {
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<String> numbers = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        numbers.add(allocator.next());
+                    }
+                    return numbers;
+                }));
+            }
+            start.countDown();
+
+            Set<String> all = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                List<String> numbers = future.get(30, TimeUnit.SECONDS);
+                assertThat(numbers).isSorted();
+                all.addAll(numbers);
+            }
+            assertThat(all).hasSize(threads * perThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private void awaitReservations(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (reservingThreads.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(reservingThreads).hasSize(count);
+    }
+
+    /**
+     * La reserva anticipada se publica después de la consulta: se espera a que el hilo vuelva a la cola
+     */
+    private static void awaitPrefetcherIdle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            boolean busy = Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("order-number-prefetch")
+                    && thread.getState() == Thread.State.RUNNABLE);
+            if (!busy) {
+                return;
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.Order;
+import com.endorodrigo.eCommerce.model.OrderCursor;
+import com.endorodrigo.eCommerce.model.OrderLine;
+import com.endorodrigo.eCommerce.model.OrderRecord;
+import com.endorodrigo.eCommerce.model.OrderStatus;
+import com.endorodrigo.eCommerce.repository.IOrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OrderStoreTest {
+
+    private IOrderRepository orderRepository;
+    private OrderStore orderStore;
+    private SalesRollup salesRollup;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = mock(IOrderRepository.class);
+        when(orderRepository.findByCreatedAtBetweenOrderByCreatedAtDesc(any(), any())).thenReturn(List.of());
+
+        orderStore = new OrderStore(orderRepository, 30, 30_000);
+        orderStore.warmUp();
+        salesRollup = new SalesRollup(orderStore, mock(JdbcTemplate.class), 16, 400);
+        salesRollup.warmUp();
+    }
+
+    @Test
+    void refreshPublishesOrdersChangedOnOtherNodes() {
+        LocalDateTime createdAt = LocalDateTime.now().minusHours(1);
+        Order created = order("ORD-1", OrderStatus.PENDING, createdAt, createdAt);
+        Order paid = order("ORD-1", OrderStatus.PAID, createdAt, createdAt.plusMinutes(5));
+
+        when(orderRepository.findByUpdatedAtGreaterThanEqualOrderByUpdatedAtAsc(any())).thenReturn(List.of(created));
+        orderStore.refresh();
+        when(orderRepository.findByUpdatedAtGreaterThanEqualOrderByUpdatedAtAsc(any())).thenReturn(List.of(paid));
+        orderStore.refresh();
+
+        assertThat(orderStore.get("ORD-1").status()).isEqualTo(OrderStatus.PAID);
+        assertThat(orderStore.findByStatus(OrderStatus.PENDING)).isEmpty();
+
+        SalesRollup.Summary summary = summarizeToday(createdAt);
+        assertThat(summary.orders()).isEqualTo(1);
+        assertThat(summary.ordersByStatus()).containsOnly(Map.entry(OrderStatus.PAID, 1L));
+    }
+
+    @Test
+    void republishingTheSameOrStaleVersionHasNoEffect() {
+        LocalDateTime createdAt = LocalDateTime.now().minusHours(1);
+        OrderRecord created = OrderRecord.from(order("ORD-1", OrderStatus.PENDING, createdAt, createdAt));
+        OrderRecord shipped = OrderRecord.from(order("ORD-1", OrderStatus.SHIPPED, createdAt, createdAt.plusMinutes(9)));
+
+        assertThat(orderStore.put(created)).isTrue();
+        assertThat(orderStore.put(shipped)).isTrue();
+
+        // La consulta de cambios vuelve a leer versiones ya publicadas localmente
+        assertThat(orderStore.put(shipped)).isFalse();
+        assertThat(orderStore.put(created)).isFalse();
+
+        assertThat(orderStore.get("ORD-1").status()).isEqualTo(OrderStatus.SHIPPED);
+        SalesRollup.Summary summary = summarizeToday(createdAt);
+        assertThat(summary.orders()).isEqualTo(1);
+        assertThat(summary.revenueCents()).isEqualTo(2_000);
+        assertThat(summary.ordersByStatus()).containsOnly(Map.entry(OrderStatus.SHIPPED, 1L));
+    }
+
+    @Test
+    void cursorPagesVisitEveryOrderOnceInListingOrder() {
+        // Varias órdenes comparten fecha de creación: el número de orden desempata
+        LocalDateTime base = LocalDateTime.now().minusDays(1).withNano(0);
+        List<OrderRecord> expected = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            LocalDateTime createdAt = base.minusMinutes(i / 4);
+            OrderStatus status = i % 3 == 0 ? OrderStatus.PAID : OrderStatus.PENDING;
+            OrderRecord order = OrderRecord.from(order(String.format("ORD-%03d", i), status, createdAt, createdAt));
+            orderStore.put(order);
+            expected.add(order);
+        }
+
+        assertThat(walk(null)).extracting(OrderRecord::orderNumber)
+            .containsExactlyElementsOf(expected.stream().map(OrderRecord::orderNumber).toList());
+        assertThat(walk(OrderStatus.PAID)).extracting(OrderRecord::orderNumber)
+            .containsExactlyElementsOf(expected.stream()
+                .filter(order -> order.status() == OrderStatus.PAID)
+                .map(OrderRecord::orderNumber)
+                .toList());
+    }
+
+    @Test
+    void trimDropsOrdersThatLeaveTheWindowFromEveryIndex() {
+        LocalDateTime newStart = LocalDate.now().minusDays(10).atStartOfDay();
+        OrderRecord old = OrderRecord.from(order("ORD-OLD", OrderStatus.PAID, newStart.minusMinutes(1), newStart.minusMinutes(1)));
+        OrderRecord recent = OrderRecord.from(order("ORD-NEW", OrderStatus.PAID, newStart, newStart));
+        orderStore.put(old);
+        orderStore.put(recent);
+
+        assertThat(orderStore.trim(newStart)).isEqualTo(1);
+
+        assertThat(orderStore.get("ORD-OLD")).isNull();
+        assertThat(orderStore.findByStatus(OrderStatus.PAID)).containsExactly(recent);
+        assertThat(orderStore.findByCustomer(7L)).containsExactly(recent);
+        assertThat(orderStore.page(null, null, null, 10)).containsExactly(recent);
+        assertThat(orderStore.getLoadedFrom()).isEqualTo(newStart);
+
+        // Las órdenes anteriores a la ventana ya no se publican, y la ventana no retrocede
+        assertThat(orderStore.put(old)).isFalse();
+        assertThat(orderStore.trim(newStart.minusDays(1))).isZero();
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private List<OrderRecord> walk(OrderStatus status) {
+        List<OrderRecord> visited = new ArrayList<>();
+        OrderCursor cursor = null;
+        while (true) {
+            // El cursor viaja codificado como lo recibe el cliente
+            List<OrderRecord> page = orderStore.page(status, null, cursor, 4);
+            visited.addAll(page);
+            if (page.size() < 4) {
+                return visited;
+            }
+            cursor = OrderCursor.decode(OrderCursor.of(page.get(page.size() - 1)).encode());
+        }
+    }
+
+    private SalesRollup.Summary summarizeToday(LocalDateTime createdAt) {
+        LocalDate day = createdAt.toLocalDate();
+        return salesRollup.summarize(day, day, 5);
+    }
+
+    private static Order order(String orderNumber, OrderStatus status, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        Order order = new Order();
+        order.setOrderNumber(orderNumber);
+        order.setCustomerId(7L);
+        order.setShippingCost(BigDecimal.ZERO);
+        order.setSubtotal(new BigDecimal("20.00"));
+        order.setTax(BigDecimal.ZERO);
+        order.setTotal(new BigDecimal("20.00"));
+        order.setStatus(status);
+        order.setCreatedAt(createdAt);
+        order.setUpdatedAt(updatedAt);
+
+        OrderLine line = new OrderLine();
+        line.setProductId(1L);
+        line.setProductName("P1");
+        line.setPrice(new BigDecimal("10.00"));
+        line.setQuantity(2);
+        line.setSubtotal(new BigDecimal("20.00"));
+        order.addLine(line);
+        return order;
+    }
+}
@@ -0,0 +1,80 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.Customer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Plazo del reclamo dimensionado por tandas de envío y espera del lote acotada por ese plazo
+ */
+class OutboxDispatcherTest {
+
+    private NotificationOutbox outbox;
+    private NotificationService notificationService;
+    private CustomerService customerService;
+
+    @BeforeEach
+    void setUp() {
+        outbox = mock(NotificationOutbox.class);
+        notificationService = mock(NotificationService.class);
+        customerService = mock(CustomerService.class);
+    }
+
+    @Test
+    void leaseCoversEveryWaveOfSendsInTheBatch() {
+        when(outbox.claim(anyInt(), anyLong())).thenReturn(List.of());
+
+        // 50 eventos con 8 hilos: 7 tandas de hasta 1000 ms
+        dispatcher(50, 1_000, 8).dispatch();
+
+        verify(outbox).claim(50, 7_000L);
+    }
+
+    @Test
+    void sendsStillRunningWhenTheLeaseEndsAreRetriedInsteadOfConfirmed() {
+        Customer customer = new Customer();
+        when(customerService.findId(7)).thenReturn(customer);
+        Map<String, Object> fast = Map.of("orderNumber", "ORD-1", "customerId", 7);
+        Map<String, Object> hung = Map.of("orderNumber", "ORD-2", "customerId", 7);
+        NotificationOutbox.Event sent = new NotificationOutbox.Event(1L, OutboxDispatcher.ORDER_PAID, "ORD-1", fast, 0, "t1");
+        NotificationOutbox.Event pending = new NotificationOutbox.Event(2L, OutboxDispatcher.ORDER_PAID, "ORD-2", hung, 0, "t1");
+
+        List<NotificationOutbox.Event> batch = List.of(sent, pending);
+        when(outbox.claim(anyInt(), anyLong())).thenReturn(batch).thenReturn(List.of());
+        when(notificationService.sendSaleNotification(same(customer), same(fast))).thenReturn(CompletableFuture.completedFuture(null));
+        when(notificationService.sendSaleNotification(same(customer), same(hung))).thenReturn(new CompletableFuture<>());
+        when(outbox.markFailed(same(pending), anyString(), anyLong(), anyBoolean())).thenReturn(false);
+
+        dispatcher(2, 50, 2).dispatch();
+
+        // El lote llegó completo: se reclama otro, que ya viene vacío
+        verify(outbox, times(2)).claim(2, 50L);
+        verify(outbox).markSent(List.of(sent));
+        verify(outbox).markFailed(same(pending), anyString(), anyLong(), eq(false));
+        verify(outbox, never()).markFailed(same(sent), anyString(), anyLong(), anyBoolean());
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private OutboxDispatcher dispatcher(int batchSize, long sendTimeoutMs, int sendConcurrency) {
+        return new OutboxDispatcher(outbox, notificationService, customerService, batchSize, 8, 2_000, 600_000,
+            sendTimeoutMs, sendConcurrency, 7);
+    }
+}
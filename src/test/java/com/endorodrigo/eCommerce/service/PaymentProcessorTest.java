@@ -0,0 +1,124 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.Payment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pagos asíncronos: el estado se guarda en Payment antes de ejecutar la continuación de la orden
+ */
+class PaymentProcessorTest {
+
+    private PaymentGateway gateway;
+    private PaymentService paymentService;
+    private PaymentProcessor processor;
+
+    // Pagos guardados por número de orden y estados en el orden en que se guardaron
+    private final Map<String, Payment> saved = new ConcurrentHashMap<>();
+    private final List<String> savedStatuses = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        gateway = mock(PaymentGateway.class);
+        paymentService = mock(PaymentService.class);
+        when(paymentService.insert(any(Payment.class))).thenAnswer(invocation -> {
+            Payment payment = invocation.getArgument(0);
+            synchronized (savedStatuses) {
+                savedStatuses.add(payment.getStatus());
+            }
+            saved.put(payment.getOrderNumber(), payment);
+            return payment;
+        });
+        when(paymentService.findByOrderNumber(anyString())).thenAnswer(invocation -> saved.get(invocation.<String>getArgument(0)));
+        processor = new PaymentProcessor(gateway, paymentService, 4);
+    }
+
+    @Test
+    void approvedPaymentIsSavedBeforeCompletingTheOrder() {
+        when(gateway.charge(any(), any(), any(), any())).thenReturn(new PaymentGateway.Result(true, "Pago aprobado"));
+        AtomicInteger approved = new AtomicInteger();
+        AtomicInteger declined = new AtomicInteger();
+        List<String> statusSeenByCallback = new ArrayList<>();
+
+        PaymentProcessor.PaymentStatus pending = processor.submit("ORD-1", new Payment(), "4111", "12/30", "123",
+            () -> {
+                statusSeenByCallback.add(processor.getStatus("ORD-1").status());
+                approved.incrementAndGet();
+            },
+            declined::incrementAndGet);
+        processor.shutdown();
+
+        assertThat(pending.status()).isEqualTo(PaymentProcessor.PENDING);
+        assertThat(approved).hasValue(1);
+        assertThat(declined).hasValue(0);
+        assertThat(statusSeenByCallback).containsExactly(PaymentProcessor.COMPLETED);
+        assertThat(savedStatuses).containsExactly(PaymentProcessor.PENDING, PaymentProcessor.COMPLETED);
+
+        PaymentProcessor.PaymentStatus status = processor.getStatus("ORD-1");
+        assertThat(status.isFinal()).isTrue();
+        assertThat(status.message()).isEqualTo("Pago aprobado");
+        assertThat(status.updatedAt()).isNotNull();
+    }
+
+    @Test
+    void declinedPaymentRunsTheDeclineCallback() {
+        when(gateway.charge(any(), any(), any(), any())).thenReturn(new PaymentGateway.Result(false, "Pago rechazado"));
+        AtomicInteger approved = new AtomicInteger();
+        AtomicInteger declined = new AtomicInteger();
+
+        processor.submit("ORD-2", new Payment(), "4111", "12/30", "123", approved::incrementAndGet, declined::incrementAndGet);
+        processor.shutdown();
+
+        assertThat(approved).hasValue(0);
+        assertThat(declined).hasValue(1);
+        assertThat(processor.getStatus("ORD-2").status()).isEqualTo(PaymentProcessor.FAILED);
+        assertThat(processor.getStatus("ORD-2").message()).isEqualTo("Pago rechazado");
+    }
+
+    @Test
+    void failingCallbackKeepsTheSavedStatus() {
+        when(gateway.charge(any(), any(), any(), any())).thenReturn(new PaymentGateway.Result(true, "Pago aprobado"));
+
+        processor.submit("ORD-3", new Payment(), "4111", "12/30", "123",
+            () -> {
+                throw new IllegalStateException("orden no encontrada");
+            },
+            () -> {
+            });
+        processor.shutdown();
+
+        assertThat(processor.getStatus("ORD-3").status()).isEqualTo(PaymentProcessor.COMPLETED);
+        assertThat(savedStatuses).containsExactly(PaymentProcessor.PENDING, PaymentProcessor.COMPLETED);
+    }
+
+    @Test
+    void gatewayErrorIsSavedAsAFailedPayment() {
+        when(gateway.charge(any(), any(), any(), any())).thenThrow(new IllegalStateException("pasarela caída"));
+        AtomicInteger declined = new AtomicInteger();
+
+        processor.submit("ORD-4", new Payment(), "4111", "12/30", "123", () -> {
+        }, declined::incrementAndGet);
+        processor.shutdown();
+
+        assertThat(declined).hasValue(1);
+        assertThat(processor.getStatus("ORD-4").status()).isEqualTo(PaymentProcessor.FAILED);
+        assertThat(processor.getStatus("ORD-4").message()).isEqualTo("Error al procesar el pago");
+    }
+
+    @Test
+    void unknownOrdersHaveNoStatus() {
+        assertThat(processor.getStatus("ORD-404")).isNull();
+    }
+}
@@ -0,0 +1,165 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.OrderStatus;
+import com.endorodrigo.eCommerce.repository.IOrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Acumulados con la ventana de OrderStore vacía: los días anteriores llegan de las consultas agregadas
+ */
+class SalesRollupTest {
+
+    private static final int RETENTION_DAYS = 400;
+
+    private final List<ResultSet> orderRows = new ArrayList<>();
+    private final List<ResultSet> productRows = new ArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+    private OrderStore orderStore;
+
+    @BeforeEach
+    void setUp() {
+        IOrderRepository orderRepository = mock(IOrderRepository.class);
+        when(orderRepository.findByCreatedAtBetweenOrderByCreatedAtDesc(any(), any())).thenReturn(List.of());
+        orderStore = new OrderStore(orderRepository, 30, 30_000);
+        orderStore.warmUp();
+
+        jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> replay(orderRows, invocation.getArguments()))
+            .when(jdbcTemplate).query(argThat((String sql) -> sql.contains("FROM sales_order")),
+                any(RowCallbackHandler.class), any(), any());
+        doAnswer(invocation -> replay(productRows, invocation.getArguments()))
+            .when(jdbcTemplate).query(argThat((String sql) -> sql.contains("FROM order_line")),
+                any(RowCallbackHandler.class), any(), any());
+    }
+
+    @Test
+    void daysBeforeTheOrderWindowComeFromTheAggregates() throws Exception {
+        LocalDate day = LocalDate.now().minusDays(200);
+        orderRows.add(orderRow(day, "PAID", 3, "90.00"));
+        orderRows.add(orderRow(day, "CANCELLED", 1, "10.00"));
+        productRows.add(productRow(day, 5L, 7));
+        productRows.add(productRow(day, 6L, 2));
+
+        SalesRollup salesRollup = new SalesRollup(orderStore, jdbcTemplate, 16, RETENTION_DAYS);
+        salesRollup.warmUp();
+
+        SalesRollup.Summary summary = salesRollup.summarize(day, day, 5);
+        assertThat(summary.orders()).isEqualTo(4);
+        assertThat(summary.revenueCents()).isEqualTo(10_000);
+        assertThat(summary.ordersByStatus()).containsOnly(
+            Map.entry(OrderStatus.PAID, 3L), Map.entry(OrderStatus.CANCELLED, 1L));
+        assertThat(summary.topProducts()).extracting(SpaceSavingTopK.Entry::item).containsExactly(5L, 6L);
+    }
+
+    @Test
+    void wholeYearIsCoveredByTheBuckets() {
+        SalesRollup salesRollup = new SalesRollup(orderStore, jdbcTemplate, 16, RETENTION_DAYS);
+        salesRollup.warmUp();
+
+        LocalDate today = LocalDate.now();
+        LocalDateTime startOfYear = today.withDayOfYear(1).atStartOfDay();
+        LocalDateTime endOfYear = today.withDayOfYear(today.lengthOfYear()).atTime(LocalTime.MAX);
+        assertThat(salesRollup.covers(startOfYear, endOfYear)).isTrue();
+
+        // Antes de la retención no hay buckets
+        LocalDateTime beforeRetention = today.minusDays(RETENTION_DAYS + 1).atStartOfDay();
+        assertThat(salesRollup.covers(beforeRetention, endOfYear)).isFalse();
+    }
+
+    @Test
+    void rebuildReplacesAggregatedDaysAndEvictsExpiredOnes() throws Exception {
+        LocalDate day = LocalDate.now().minusDays(100);
+        orderRows.add(orderRow(day, "PENDING", 2, "20.00"));
+        orderRows.add(orderRow(LocalDate.now().minusDays(RETENTION_DAYS + 5), "PAID", 1, "1.00"));
+
+        SalesRollup salesRollup = new SalesRollup(orderStore, jdbcTemplate, 16, RETENTION_DAYS);
+        salesRollup.warmUp();
+
+        // Las órdenes cambiaron de estado fuera de la ventana de OrderStore
+        orderRows.clear();
+        orderRows.add(orderRow(day, "DELIVERED", 2, "20.00"));
+        salesRollup.rebuild();
+
+        SalesRollup.Summary summary = salesRollup.summarize(day, day, 5);
+        assertThat(summary.orders()).isEqualTo(2);
+        assertThat(summary.ordersByStatus()).containsOnly(Map.entry(OrderStatus.DELIVERED, 2L));
+
+        LocalDate expired = LocalDate.now().minusDays(RETENTION_DAYS + 5);
+        assertThat(salesRollup.summarize(expired, expired, 5).orders()).isZero();
+    }
+
+    @Test
+    void daysThatLeaveTheOrderWindowAreAggregatedOnRebuild() throws Exception {
+        // La ventana empieza a medianoche: el día límite se agrega entero desde una sola fuente
+        assertThat(orderStore.getLoadedFrom().toLocalTime()).isEqualTo(LocalTime.MIDNIGHT);
+
+        SalesRollup salesRollup = new SalesRollup(orderStore, jdbcTemplate, 16, RETENTION_DAYS);
+        salesRollup.warmUp();
+
+        LocalDate boundary = orderStore.getLoadedFrom().toLocalDate();
+        orderRows.add(orderRow(boundary, "PAID", 3, "30.00"));
+        orderStore.trim(boundary.plusDays(1).atStartOfDay());
+        salesRollup.rebuild();
+        salesRollup.rebuild();
+
+        // Reagregado en cada reconstrucción sin duplicarse
+        SalesRollup.Summary summary = salesRollup.summarize(boundary, boundary, 5);
+        assertThat(summary.orders()).isEqualTo(3);
+        assertThat(summary.revenueCents()).isEqualTo(3_000);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static Object replay(List<ResultSet> rows, Object[] arguments) throws Exception {
+        // Solo las filas de los días del rango [from, before) consultado
+        RowCallbackHandler handler = (RowCallbackHandler) arguments[1];
+        LocalDateTime from = (LocalDateTime) arguments[2];
+        LocalDateTime before = (LocalDateTime) arguments[3];
+        for (ResultSet row : rows) {
+            LocalDateTime day = row.getDate(1).toLocalDate().atStartOfDay();
+            if (!day.isBefore(from) && day.isBefore(before)) {
+                handler.processRow(row);
+            }
+        }
+        return null;
+    }
+
+    private static ResultSet orderRow(LocalDate day, String status, long count, String total) throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getDate(1)).thenReturn(Date.valueOf(day));
+        when(row.getString(2)).thenReturn(status);
+        when(row.getLong(3)).thenReturn(count);
+        when(row.getBigDecimal(4)).thenReturn(new BigDecimal(total));
+        return row;
+    }
+
+    private static ResultSet productRow(LocalDate day, long productId, long quantity) throws Exception {
+        ResultSet row = mock(ResultSet.class);
+        when(row.getDate(1)).thenReturn(Date.valueOf(day));
+        when(row.getLong(2)).thenReturn(productId);
+        when(row.getLong(3)).thenReturn(quantity);
+        return row;
+    }
+}
@@ -0,0 +1,104 @@
+package com.endorodrigo.eCommerce.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpaceSavingTopKTest {
+
+    private static final int CAPACITY = 32;
+
+    @Test
+    void mergeOfSketchesThatFitIsExact() {
+        SpaceSavingTopK monday = new SpaceSavingTopK(CAPACITY);
+        monday.offer(1L, 5);
+        monday.offer(2L, 3);
+        SpaceSavingTopK tuesday = new SpaceSavingTopK(CAPACITY);
+        tuesday.offer(2L, 4);
+        tuesday.offer(3L, 1);
+
+        SpaceSavingTopK week = new SpaceSavingTopK(CAPACITY);
+        week.merge(monday);
+        week.merge(tuesday);
+
+        assertThat(week.top(3)).containsExactly(
+            new SpaceSavingTopK.Entry(2L, 7, 0),
+            new SpaceSavingTopK.Entry(1L, 5, 0),
+            new SpaceSavingTopK.Entry(3L, 1, 0));
+    }
+
+    @Test
+    void mergedDailySketchesKeepTheSpaceSavingBounds() {
+        Random random = new Random(42);
+        Map<Long, Long> exact = new HashMap<>();
+        long total = 0;
+        List<SpaceSavingTopK> days = new ArrayList<>();
+
+        // 60 días con productos de popularidad sesgada (Zipf aproximado) y un catálogo que rota
+        for (int day = 0; day < 60; day++) {
+            SpaceSavingTopK sketch = new SpaceSavingTopK(CAPACITY);
+            for (int i = 0; i < 2_000; i++) {
+                long product = zipf(random, 1_000) + (day % 3 == 0 ? 0 : day * 7L);
+                long quantity = 1 + random.nextInt(3);
+                sketch.offer(product, quantity);
+                exact.merge(product, quantity, Long::sum);
+                total += quantity;
+            }
+            days.add(sketch);
+        }
+
+        SpaceSavingTopK merged = new SpaceSavingTopK(CAPACITY);
+        for (SpaceSavingTopK sketch : days) {
+            merged.merge(sketch);
+        }
+        List<SpaceSavingTopK.Entry> entries = merged.entries();
+
+        // Cada contador acota la frecuencia real: count - error <= real <= count
+        for (SpaceSavingTopK.Entry entry : entries) {
+            long real = exact.getOrDefault(entry.item(), 0L);
+            assertThat(real).isLessThanOrEqualTo(entry.count());
+            assertThat(real).isGreaterThanOrEqualTo(entry.count() - entry.error());
+        }
+
+        // Todo elemento con frecuencia mayor que total/capacity está en el resultado
+        List<Long> retained = entries.stream().map(SpaceSavingTopK.Entry::item).toList();
+        long threshold = total / CAPACITY;
+        exact.forEach((item, count) -> {
+            if (count > threshold) {
+                assertThat(retained).contains(item);
+            }
+        });
+
+        // Con una distribución sesgada los más vendidos coinciden con los exactos
+        List<Long> exactTop = exact.entrySet().stream()
+            .sorted(Map.Entry.<Long, Long>comparingByValue(Comparator.reverseOrder()))
+            .limit(3)
+            .map(Map.Entry::getKey)
+            .toList();
+        assertThat(merged.top(3)).extracting(SpaceSavingTopK.Entry::item).containsExactlyElementsOf(exactTop);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static long zipf(Random random, int items) {
+        // Muestreo por inversión de una distribución 1/rank
+        double harmonic = Math.log(items) + 0.5772;
+        double target = random.nextDouble() * harmonic;
+        double sum = 0;
+        for (int rank = 1; rank <= items; rank++) {
+            sum += 1.0 / rank;
+            if (sum >= target) {
+                return rank;
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,95 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartSession;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reservas de stock frente a las bajas del almacén de carritos: solo la sustitución conserva las reservas
+ */
+class StockReservationLedgerTest {
+
+    private static final Long PRODUCT = 1L;
+    private static final int STOCK = 10;
+
+    @Test
+    void holdsAreCappedByWhatOtherSessionsReserve() {
+        StockReservationLedger ledger = ledger(new InMemoryCartStore(100, Long.MAX_VALUE, 60));
+
+        assertThat(ledger.hold("s1", PRODUCT, 6, STOCK)).isTrue();
+        assertThat(ledger.hold("s2", PRODUCT, 5, STOCK)).isFalse();
+        assertThat(ledger.hold("s2", PRODUCT, 4, STOCK)).isTrue();
+
+        assertThat(ledger.available("s1", PRODUCT, STOCK)).isEqualTo(6);
+        assertThat(ledger.available("s2", PRODUCT, STOCK)).isEqualTo(4);
+        assertThat(ledger.available("s3", PRODUCT, STOCK)).isZero();
+    }
+
+    @Test
+    void explicitRemovalReleasesTheSessionHolds() {
+        InMemoryCartStore store = new InMemoryCartStore(100, Long.MAX_VALUE, 60);
+        StockReservationLedger ledger = ledger(store);
+        holdInStore(store, ledger, "s1", 7);
+
+        store.remove("s1");
+
+        assertThat(ledger.available("s2", PRODUCT, STOCK)).isEqualTo(STOCK);
+    }
+
+    @Test
+    void expiredSessionsReleaseTheirHolds() throws InterruptedException {
+        // Tiempo de inactividad 0: toda sesión queda vencida en el siguiente barrido
+        InMemoryCartStore store = new InMemoryCartStore(100, Long.MAX_VALUE, 0);
+        StockReservationLedger ledger = ledger(store);
+        holdInStore(store, ledger, "s1", 7);
+        Thread.sleep(1);
+
+        assertThat(store.evictExpired()).isEqualTo(1);
+        assertThat(ledger.available("s2", PRODUCT, STOCK)).isEqualTo(STOCK);
+    }
+
+    @Test
+    void evictedSessionsReleaseTheirHolds() {
+        InMemoryCartStore store = new InMemoryCartStore(2, Long.MAX_VALUE, 60);
+        StockReservationLedger ledger = ledger(store);
+        holdInStore(store, ledger, "s1", 3);
+        holdInStore(store, ledger, "s2", 4);
+
+        // La tercera sesión supera la capacidad y desaloja a una de las anteriores
+        store.getOrCreate("s3");
+
+        int stillHeld = (store.get("s1") != null ? 3 : 0) + (store.get("s2") != null ? 4 : 0);
+        assertThat(stillHeld).isLessThan(7);
+        assertThat(ledger.available("s3", PRODUCT, STOCK)).isEqualTo(STOCK - stillHeld);
+    }
+
+    @Test
+    void replacedSessionsKeepTheirHolds() {
+        InMemoryCartStore store = new InMemoryCartStore(100, Long.MAX_VALUE, 60);
+        StockReservationLedger ledger = ledger(store);
+        holdInStore(store, ledger, "s1", 7);
+
+        // Otro nodo escribió una versión más reciente del mismo carrito
+        CartSession newer = new CartSession();
+        newer.setSessionId("s1");
+        store.replace(newer);
+
+        assertThat(store.get("s1")).isNotNull();
+        assertThat(ledger.available("s2", PRODUCT, STOCK)).isEqualTo(STOCK - 7);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static StockReservationLedger ledger(CartStore store) {
+        StockReservationLedger ledger = new StockReservationLedger(store, 15);
+        ledger.register();
+        return ledger;
+    }
+
+    private static void holdInStore(InMemoryCartStore store, StockReservationLedger ledger, String sessionId, int quantity) {
+        store.getOrCreate(sessionId);
+        assertThat(ledger.hold(sessionId, PRODUCT, quantity, STOCK)).isTrue();
+    }
+}
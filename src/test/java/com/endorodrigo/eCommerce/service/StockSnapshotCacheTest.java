@@ -0,0 +1,100 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.repository.IProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stock de un carrito en una sola consulta, instantáneas que vencen y desalojo de las más antiguas
+ */
+class StockSnapshotCacheTest {
+
+    private IProductRepository productRepository;
+    private final Map<Long, Integer> stored = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(IProductRepository.class);
+        when(productRepository.findByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream()
+                .filter(stored::containsKey)
+                .map(id -> level(id, stored.get(id)))
+                .toList();
+        });
+        stored.put(1L, 5);
+        stored.put(2L, 3);
+        stored.put(3L, 8);
+    }
+
+    @Test
+    void wholeCartIsResolvedWithOneQuery() {
+        StockSnapshotCache cache = new StockSnapshotCache(productRepository, 60_000, 100);
+
+        assertThat(cache.getStock(List.of(1L, 2L, 3L, 2L, 99L))).containsOnly(
+            Map.entry(1L, 5), Map.entry(2L, 3), Map.entry(3L, 8));
+        // Dentro del TTL las instantáneas responden sin consultar
+        assertThat(cache.getStock(List.of(1L, 3L))).containsOnly(Map.entry(1L, 5), Map.entry(3L, 8));
+
+        verify(productRepository, times(1)).findByIdIn(anyCollection());
+        verify(productRepository).findByIdIn(List.of(1L, 2L, 3L, 99L));
+    }
+
+    @Test
+    void expiredSnapshotsAreReloaded() {
+        // TTL 0: toda instantánea está vencida en la siguiente lectura
+        StockSnapshotCache cache = new StockSnapshotCache(productRepository, 0, 100);
+        assertThat(cache.getStock(List.of(1L))).containsEntry(1L, 5);
+
+        stored.put(1L, 2);
+
+        assertThat(cache.getStock(List.of(1L))).containsEntry(1L, 2);
+        verify(productRepository, times(2)).findByIdIn(List.of(1L));
+    }
+
+    @Test
+    void overCapacityEvictsTheOldestSnapshotsOnly() throws InterruptedException {
+        StockSnapshotCache cache = new StockSnapshotCache(productRepository, 60_000, 2);
+        cache.getStock(List.of(1L));
+        Thread.sleep(1);
+        cache.getStock(List.of(2L));
+        Thread.sleep(1);
+        cache.getStock(List.of(3L));
+
+        // Las dos más recientes siguen en caché
+        cache.getStock(List.of(2L, 3L));
+        verify(productRepository, times(3)).findByIdIn(anyCollection());
+
+        cache.getStock(List.of(1L));
+        verify(productRepository, times(2)).findByIdIn(List.of(1L));
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static IProductRepository.StockLevel level(Long id, Integer quantity) {
+        return new IProductRepository.StockLevel() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getQuantity() {
+                return quantity;
+            }
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.Payment;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pasarela simulada: aprobación según la tasa configurada y rechazo si el hilo se interrumpe
+ */
+class StubPaymentGatewayTest {
+
+    @Test
+    void approvesWhenTheSuccessRateIsOne() {
+        PaymentGateway.Result result = new StubPaymentGateway(0, 1.0).charge(new Payment(), "4111", "12/30", "123");
+
+        assertThat(result.approved()).isTrue();
+        assertThat(result.message()).isEqualTo("Pago aprobado");
+    }
+
+    @Test
+    void declinesWhenTheSuccessRateIsZero() {
+        PaymentGateway.Result result = new StubPaymentGateway(0, 0.0).charge(new Payment(), "4111", "12/30", "123");
+
+        assertThat(result.approved()).isFalse();
+        assertThat(result.message()).isEqualTo("Pago rechazado por la pasarela");
+    }
+
+    @Test
+    void interruptedChargeIsDeclinedAndKeepsTheInterruptFlag() {
+        Thread.currentThread().interrupt();
+        try {
+            PaymentGateway.Result result = new StubPaymentGateway(60_000, 1.0).charge(new Payment(), "4111", "12/30", "123");
+
+            assertThat(result.approved()).isFalse();
+            assertThat(result.message()).isEqualTo("Pago interrumpido");
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
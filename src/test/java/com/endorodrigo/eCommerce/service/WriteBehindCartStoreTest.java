@@ -0,0 +1,214 @@
+package com.endorodrigo.eCommerce.service;
+
+import com.endorodrigo.eCommerce.model.CartItem;
+import com.endorodrigo.eCommerce.model.CartSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Protocolo de escritura diferida entre dos nodos que comparten la persistencia:
+ * revalidación en lectura y escritura condicional a la versión (el mismo contrato que JdbcCartStore)
+ */
+class WriteBehindCartStoreTest {
+
+    private Map<String, Row> table;
+    private VersionedStore nodeA;
+    private VersionedStore nodeB;
+
+    @BeforeEach
+    void setUp() {
+        table = new ConcurrentHashMap<>();
+        nodeA = new VersionedStore(table);
+        nodeB = new VersionedStore(table);
+    }
+
+    @Test
+    void changesFlushedByOneNodeAreSeenByTheOther() {
+        addItem(nodeA, "s1", 1L, 2);
+        nodeA.flush();
+
+        CartSession onB = nodeB.get("s1");
+        assertThat(onB.findItemById(1L).getQuantity()).isEqualTo(2);
+
+        onB.updateItemQuantity(1L, 5);
+        nodeB.markModified("s1");
+        nodeB.flush();
+
+        // A tenía la sesión en caché: la lectura detecta la versión más reciente
+        assertThat(nodeA.get("s1").findItemById(1L).getQuantity()).isEqualTo(5);
+        assertThat(nodeA.getMetrics().get("refreshes")).isEqualTo(1L);
+    }
+
+    @Test
+    void staleWriteReappliesLocalChangesOnThePersistedVersion() {
+        addItem(nodeA, "s1", 1L, 1);
+        nodeA.flush();
+        nodeB.get("s1");
+
+        // Ambos nodos modifican la misma versión antes de persistir
+        nodeA.get("s1").updateItemQuantity(1L, 3);
+        nodeA.markModified("s1");
+        nodeB.get("s1").updateItemQuantity(1L, 7);
+        nodeB.markModified("s1");
+
+        nodeB.flush();
+        nodeA.flush();
+
+        // El conflicto no descarta el cambio de A: su diferencia (+2) se aplica sobre lo que escribió B
+        assertThat(nodeA.getMetrics().get("conflicts")).isEqualTo(1L);
+        assertThat(nodeA.get("s1").findItemById(1L).getQuantity()).isEqualTo(9);
+
+        nodeA.flush();
+        assertThat(persisted("s1").findItemById(1L).getQuantity()).isEqualTo(9);
+        assertThat(table.get("s1").version).isEqualTo(3);
+    }
+
+    @Test
+    void conflictingChangesToDifferentProductsAreBothKept() {
+        addItem(nodeA, "s1", 1L, 1);
+        addItem(nodeA, "s1", 2L, 1);
+        nodeA.flush();
+        nodeB.get("s1");
+
+        nodeA.get("s1").removeItemById(1L);
+        nodeA.markModified("s1");
+        addItem(nodeB, "s1", 3L, 2);
+
+        nodeB.flush();
+        nodeA.flush();
+        nodeA.flush();
+
+        CartSession stored = persisted("s1");
+        assertThat(stored.containsProduct(1L)).isFalse();
+        assertThat(stored.findItemById(2L).getQuantity()).isEqualTo(1);
+        assertThat(stored.findItemById(3L).getQuantity()).isEqualTo(2);
+    }
+
+    @Test
+    void sessionsCreatedConcurrentlyOnTwoNodesKeepBothNodesItems() {
+        addItem(nodeA, "s1", 1L, 1);
+        addItem(nodeB, "s1", 2L, 1);
+
+        nodeA.flush();
+        nodeB.flush();
+        nodeB.flush();
+
+        CartSession onA = nodeA.get("s1");
+        assertThat(onA.containsProduct(1L)).isTrue();
+        assertThat(onA.containsProduct(2L)).isTrue();
+    }
+
+    @Test
+    void removalOnlyDeletesTheVersionThisNodeKnows() {
+        addItem(nodeA, "s1", 1L, 1);
+        nodeA.flush();
+        nodeB.get("s1").updateItemQuantity(1L, 4);
+        nodeB.markModified("s1");
+        nodeB.flush();
+
+        // A borra con la versión 1, pero B ya escribió la versión 2
+        nodeA.remove("s1");
+        nodeA.flush();
+
+        assertThat(table).containsKey("s1");
+        assertThat(table.get("s1").version).isEqualTo(2);
+    }
+
+    /**
+     * Métodos auxiliares privados
+     */
+    private static void addItem(VersionedStore store, String sessionId, Long productId, int quantity) {
+        CartSession cartSession = store.getOrCreate(sessionId);
+        cartSession.addItem(new CartItem(productId, "P" + productId, BigDecimal.TEN, quantity));
+        store.markModified(sessionId);
+    }
+
+    private CartSession persisted(String sessionId) {
+        return CartSessionCodec.decode(table.get(sessionId).payload);
+    }
+
+    private record Row(byte[] payload, long version) {
+    }
+
+    /**
+     * Persistencia compartida en un mapa con la misma semántica de versiones que la tabla cart_session
+     */
+    private static final class VersionedStore extends WriteBehindCartStore {
+
+        private final Map<String, Row> table;
+        private final Map<String, Long> known = new ConcurrentHashMap<>();
+
+        private VersionedStore(Map<String, Row> table) {
+            super(new InMemoryCartStore(1_000, Long.MAX_VALUE, 60));
+            this.table = table;
+        }
+
+        @Override
+        protected CartSession load(String sessionId) {
+            Row row = table.get(sessionId);
+            if (row == null) {
+                known.remove(sessionId);
+                return null;
+            }
+            known.put(sessionId, row.version);
+            return CartSessionCodec.decode(row.payload);
+        }
+
+        @Override
+        protected CartSession loadIfChanged(String sessionId) {
+            Row row = table.get(sessionId);
+            if (row == null || row.version <= known.getOrDefault(sessionId, 0L)) {
+                return null;
+            }
+            known.put(sessionId, row.version);
+            return CartSessionCodec.decode(row.payload);
+        }
+
+        @Override
+        protected Collection<String> persist(Map<String, byte[]> payloads, Collection<String> deletedSessionIds) {
+            List<String> conflicted = new ArrayList<>();
+            for (Map.Entry<String, byte[]> payload : payloads.entrySet()) {
+                String sessionId = payload.getKey();
+                long expected = known.getOrDefault(sessionId, 0L);
+                Row next = new Row(payload.getValue(), expected + 1);
+
+                boolean written;
+                if (expected == 0) {
+                    written = table.putIfAbsent(sessionId, next) == null;
+                } else {
+                    Row current = table.get(sessionId);
+                    written = current != null && current.version == expected && table.replace(sessionId, current, next);
+                }
+
+                if (written) {
+                    known.put(sessionId, expected + 1);
+                } else {
+                    conflicted.add(sessionId);
+                }
+            }
+
+            for (String sessionId : deletedSessionIds) {
+                Long expected = known.remove(sessionId);
+                Row current = table.get(sessionId);
+                if (expected != null && current != null && current.version == expected) {
+                    table.remove(sessionId, current);
+                }
+            }
+            return conflicted;
+        }
+
+        @Override
+        protected String getType() {
+            return "test";
+        }
+    }
+}